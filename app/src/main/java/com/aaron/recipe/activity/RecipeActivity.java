@@ -5,25 +5,30 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.support.v4.app.FragmentActivity;
 import android.support.v4.app.FragmentManager;
-import android.support.v4.app.FragmentPagerAdapter;
+import android.support.v4.app.FragmentStatePagerAdapter;
 import android.support.v4.view.ViewPager;
+import android.support.v7.widget.RecyclerView;
 import android.view.MenuItem;
 
 import com.aaron.recipe.R;
+import com.aaron.recipe.adapter.RecipeDetailAdapter;
 import com.aaron.recipe.adapter.RecipePagerAdapter;
 import com.aaron.recipe.bean.Recipe;
 import com.aaron.recipe.bean.Settings;
 import com.aaron.recipe.fragment.Backable;
 import com.aaron.recipe.listener.PageChangeListener;
 import com.aaron.recipe.model.LogsManager;
+import com.aaron.recipe.model.RecipeCache;
+import com.aaron.recipe.model.RecipeManager;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
 
 import static com.aaron.recipe.bean.DataKey.EXTRA_PAGE;
-import static com.aaron.recipe.bean.DataKey.EXTRA_RECIPE;
-import static com.aaron.recipe.bean.DataKey.EXTRA_RECIPE_LIST;
+import static com.aaron.recipe.bean.DataKey.EXTRA_RECIPE_IDS;
 import static com.aaron.recipe.bean.DataKey.EXTRA_SETTINGS;
-import static java.util.Objects.nonNull;
 
 /**
  * Recipe activity, uses old SDK to support view pager.
@@ -31,10 +36,18 @@ import static java.util.Objects.nonNull;
 public class RecipeActivity extends FragmentActivity implements Backable
 {
     public static final String CLASS_NAME = RecipeActivity.class.getSimpleName();
-
-    private ArrayList<Recipe> recipeList;
-    private Recipe recipe;
+    // Pages kept alive on each side of the current page, the other pages are destroyed and recreated from their saved state
+    private static final int OFFSCREEN_PAGE_LIMIT = 1;
+    // Pages prefetched on each side of the current page, one more than the kept pages so the next created page is already loaded
+    private static final int PREFETCHED_PAGES = OFFSCREEN_PAGE_LIMIT + 1;
+    // Enough recycled lines to fill a page, the default pool only keeps 5 rows per view type
+    private static final int MAX_RECYCLED_LINES = 40;
+
+    private int[] recipeIds;
     private Settings settings;
+    private RecipeManager recipeManager;
+    private Disposable prefetch = Disposables.disposed();
+    private final RecyclerView.RecycledViewPool recipeLinePool = new RecyclerView.RecycledViewPool();
 
     @Override
     public void onCreate(Bundle savedInstanceState)
@@ -42,13 +55,22 @@ public class RecipeActivity extends FragmentActivity implements Backable
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_fragment_container);
 
-        this.recipeList = this.getIntent().getParcelableArrayListExtra(EXTRA_RECIPE_LIST.toString());
-        this.recipe = this.getIntent().getParcelableExtra(EXTRA_RECIPE.toString());
+        this.recipeIds = this.getIntent().getIntArrayExtra(EXTRA_RECIPE_IDS.toString());
         this.settings = this.getIntent().getParcelableExtra(EXTRA_SETTINGS.toString());
         int page = this.getIntent().getIntExtra(EXTRA_PAGE.toString(), 0);
+        this.recipeManager = new RecipeManager(this);
+        this.recipeLinePool.setMaxRecycledViews(RecipeDetailAdapter.TYPE_LINE, MAX_RECYCLED_LINES);
 
-        setTitle(getRecipeTitleFromRecipeElsePage(page));
+        setTitle(getRecipeTitleFromPage(page));
         initializeViewPager(page);
+        prefetchRecipesAroundPage(page);
+    }
+
+    @Override
+    protected void onDestroy()
+    {
+        super.onDestroy();
+        this.prefetch.dispose();
     }
 
     private void initializeViewPager(int page)
@@ -57,8 +79,9 @@ public class RecipeActivity extends FragmentActivity implements Backable
         Settings settings = this.getIntent().getParcelableExtra(EXTRA_SETTINGS.toString());
 
         ViewPager viewPager = findViewById(R.id.view_pager);
-        FragmentPagerAdapter pagerAdapter = new RecipePagerAdapter(fm, recipeList, settings);
+        FragmentStatePagerAdapter pagerAdapter = new RecipePagerAdapter(fm, recipeIds, settings);
 
+        viewPager.setOffscreenPageLimit(OFFSCREEN_PAGE_LIMIT);
         viewPager.setAdapter(pagerAdapter);
         viewPager.setCurrentItem(page);
         viewPager.clearOnPageChangeListeners();
@@ -66,19 +89,44 @@ public class RecipeActivity extends FragmentActivity implements Backable
         viewPager.addOnPageChangeListener(new PageChangeListener(this));
     }
 
-    private String getRecipeTitleFromRecipeElsePage(int page)
+    /**
+     * Returns the title of the recipe in the given page. Empty if the recipe is not yet loaded, e.g. when the process was restarted.
+     *
+     * @param page the page of the recipe
+     * @return the recipe title
+     */
+    public String getRecipeTitleFromPage(int page)
     {
-        if(nonNull(recipe))
-        {
-            return recipeList.get(recipeList.indexOf(recipe)).getTitle();
-        }
+        Recipe recipe = RecipeCache.getRecipe(recipeIds[page]);
 
-        return recipeList.get(page).getTitle();
+        return recipe == null ? "" : recipe.getTitle();
     }
 
-    public String getRecipeTitleFromPage(int page)
+    /**
+     * Returns the recycled rows shared by the recipe pages.
+     *
+     * @return RecyclerView.RecycledViewPool
+     */
+    public RecyclerView.RecycledViewPool getRecipeLinePool()
+    {
+        return this.recipeLinePool;
+    }
+
+    /**
+     * Loads the ingredients and instructions of the recipes around the given page in the background. The previous prefetch is cancelled,
+     * the user already swiped away from its pages.
+     *
+     * @param page the current page
+     */
+    public void prefetchRecipesAroundPage(int page)
     {
-        return recipeList.get(page).getTitle();
+        int from = Math.max(0, page - PREFETCHED_PAGES);
+        int to = Math.min(this.recipeIds.length, page + PREFETCHED_PAGES + 1);
+
+        this.prefetch.dispose();
+        this.prefetch = this.recipeManager.prefetchRecipes(Arrays.copyOfRange(this.recipeIds, from, to))
+                .subscribe(loaded -> LogsManager.log(CLASS_NAME, "prefetchRecipesAroundPage", "page=" + page + " loaded=" + loaded),
+                        e -> LogsManager.log(CLASS_NAME, "prefetchRecipesAroundPage", "Error prefetching recipes. Error: " + e.getMessage(), e));
     }
 
     /**
@@ -0,0 +1,30 @@
+package com.aaron.recipe.activity;
+
+import android.app.Fragment;
+
+import com.aaron.recipe.fragment.ShoppingListFragment;
+
+/**
+ * Shopping list activity.
+ */
+public class ShoppingListActivity extends SingleFragmentActivity
+{
+    private ShoppingListFragment fragment;
+
+    /**
+     * Returns a shopping list fragment.
+     *
+     * @return a fragment to be added.
+     */
+    @Override
+    protected Fragment createFragment()
+    {
+        if(this.fragment == null)
+        {
+            this.fragment = new ShoppingListFragment();
+        }
+
+        return this.fragment;
+    }
+
+}
@@ -0,0 +1,254 @@
+package com.aaron.recipe.adapter;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.util.TypedValue;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.aaron.recipe.bean.Recipe;
+import com.aaron.recipe.bean.ScaledIngredients;
+import com.aaron.recipe.bean.Settings;
+import com.aaron.recipe.model.RecipeCache;
+
+/**
+ * RecyclerView adapter for the lines of a recipe page: the recipe details, then the ingredients and the instructions sections with their headers.
+ * The lines are not copied into a list, each line is read from the recipe when its row is bound, so only the visible lines are created.
+ * The ingredients can be shown scaled to other servings.
+ */
+public class RecipeDetailAdapter extends RecyclerView.Adapter<RecipeDetailAdapter.ViewHolder>
+{
+    public static final int TYPE_LINE = 0;
+    public static final int TYPE_HEADER = 1;
+
+    // Title, category, preparation time, servings and description
+    private static final int DETAIL_LINES = 5;
+    private static final int SERVINGS_POSITION = 3;
+    // The ingredients and instructions headers, and the empty line at the end of the page
+    private static final int SECTION_LINES = 3;
+
+    private Activity activity;
+    private Settings settings;
+    private Recipe recipe;
+    // Zero shows the recipe's own servings
+    private int servings;
+    private ScaledIngredients scaledIngredients;
+
+    /**
+     * Default constructor.
+     *
+     * @param activity the current activity
+     * @param settings the current user settings
+     */
+    public RecipeDetailAdapter(final Activity activity, final Settings settings)
+    {
+        this.activity = activity;
+        this.settings = settings;
+    }
+
+    /**
+     * Shows the recipe. When the ingredients and instructions of the shown recipe summary are loaded, only their lines are inserted.
+     *
+     * @param recipe the recipe summary, or the recipe with its ingredients and instructions
+     */
+    public void setRecipe(final Recipe recipe)
+    {
+        Recipe shownRecipe = this.recipe;
+        if(shownRecipe == recipe)
+        {
+            return;
+        }
+
+        int shownCount = getItemCount();
+        this.recipe = recipe;
+        updateScaledIngredients();
+
+        if(shownRecipe != null && shownRecipe.getId() == recipe.getId() && !shownRecipe.hasDetails())
+        {
+            notifyItemRangeInserted(shownCount, getItemCount() - shownCount);
+        }
+        else
+        {
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Shows the ingredients scaled to the given servings. Only the servings and ingredients lines are rebound.
+     *
+     * @param servings the servings to show, zero for the recipe's own servings
+     */
+    public void setServings(int servings)
+    {
+        if(this.servings == servings)
+        {
+            return;
+        }
+
+        this.servings = servings;
+        updateScaledIngredients();
+
+        if(this.recipe != null)
+        {
+            notifyItemChanged(SERVINGS_POSITION);
+            if(this.recipe.hasDetails())
+            {
+                notifyItemRangeChanged(getIngredientsHeaderPosition() + 1, getIngredientsCount());
+            }
+        }
+    }
+
+    /**
+     * The scaled ingredients are cached, switching back to servings already shown does not scale again.
+     */
+    private void updateScaledIngredients()
+    {
+        if(this.recipe != null && this.recipe.hasDetails() && this.servings > 0 && this.servings != this.recipe.getServings())
+        {
+            this.scaledIngredients = RecipeCache.getScaledIngredients(this.recipe, this.servings);
+        }
+        else
+        {
+            this.scaledIngredients = null;
+        }
+    }
+
+    @Override
+    public int getItemCount()
+    {
+        if(this.recipe == null)
+        {
+            return 0;
+        }
+        else if(!this.recipe.hasDetails())
+        {
+            return DETAIL_LINES;
+        }
+
+        return DETAIL_LINES + SECTION_LINES + getIngredientsCount() + getInstructionsCount();
+    }
+
+    @Override
+    public int getItemViewType(int position)
+    {
+        return position == getIngredientsHeaderPosition() || position == getInstructionsHeaderPosition() ? TYPE_HEADER : TYPE_LINE;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType)
+    {
+        TextView textView = new TextView(this.activity);
+        textView.setTextSize(TypedValue.COMPLEX_UNIT_SP, this.settings.getFontSize());
+        textView.setTypeface(this.settings.getTypeface(false));
+
+        RecyclerView.LayoutParams layoutParams = new RecyclerView.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+        if(viewType == TYPE_HEADER)
+        {
+            layoutParams.setMargins(0, 30, 0, 5);
+        }
+        else
+        {
+            layoutParams.setMargins(0, 10, 5, 0);
+        }
+        textView.setLayoutParams(layoutParams);
+
+        return new ViewHolder(textView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position)
+    {
+        holder.textView.setText(getLine(position));
+    }
+
+    /**
+     * Returns the text of the line in the given position.
+     *
+     * @param position the position of the line
+     * @return String
+     */
+    String getLine(int position)
+    {
+        switch(position)
+        {
+            case 0:
+                return "Title: " + this.recipe.getTitle();
+            case 1:
+                return "Category: " + this.recipe.getCategory();
+            case 2:
+                return "Preparation Time: " + this.recipe.getPreparationTimeString();
+            case 3:
+                return "Servings: " + (this.servings > 0 ? this.servings : this.recipe.getServings());
+            case 4:
+                return "Description: " + this.recipe.getDescription();
+            default:
+                break;
+        }
+
+        int ingredientsHeaderPosition = getIngredientsHeaderPosition();
+        int instructionsHeaderPosition = getInstructionsHeaderPosition();
+        if(position == ingredientsHeaderPosition)
+        {
+            return "Ingredients:";
+        }
+        else if(position < instructionsHeaderPosition)
+        {
+            int ingredientPosition = position - ingredientsHeaderPosition - 1;
+            if(this.scaledIngredients != null)
+            {
+                return this.scaledIngredients.getLine(ingredientPosition);
+            }
+
+            return this.recipe.getIngredients().getIngredientsList().get(ingredientPosition).toString();
+        }
+        else if(position == instructionsHeaderPosition)
+        {
+            return "Instructions:";
+        }
+        else if(position < instructionsHeaderPosition + 1 + getInstructionsCount())
+        {
+            int count = position - instructionsHeaderPosition;
+            return count + ". " + this.recipe.getInstructions().getInstructionsList().get(count - 1);
+        }
+
+        // Newline at the end of the page
+        return "";
+    }
+
+    private int getIngredientsHeaderPosition()
+    {
+        return DETAIL_LINES;
+    }
+
+    private int getInstructionsHeaderPosition()
+    {
+        return this.recipe.hasDetails() ? DETAIL_LINES + 1 + getIngredientsCount() : -1;
+    }
+
+    private int getIngredientsCount()
+    {
+        return this.recipe.getIngredients().getIngredientsList().size();
+    }
+
+    private int getInstructionsCount()
+    {
+        return this.recipe.getInstructions().getInstructionsList().size();
+    }
+
+    /**
+     * Holds the TextView of a recipe line.
+     */
+    public static class ViewHolder extends RecyclerView.ViewHolder
+    {
+        private TextView textView;
+
+        private ViewHolder(TextView textView)
+        {
+            super(textView);
+
+            this.textView = textView;
+        }
+    }
+}
@@ -2,11 +2,11 @@ package com.aaron.recipe.adapter;
 
 import android.app.Activity;
 import android.support.annotation.NonNull;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.util.TypedValue;
 import android.view.View;
-import android.view.View.OnTouchListener;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.HorizontalScrollView;
 import android.widget.TextView;
 
@@ -14,83 +14,107 @@ import com.aaron.recipe.R;
 import com.aaron.recipe.bean.Recipe;
 import com.aaron.recipe.bean.Settings;
 import com.aaron.recipe.listener.RecipeListRowTouchListener;
+import com.aaron.recipe.model.LogsManager;
+import com.aaron.recipe.model.RecipeCache;
+import com.aaron.recipe.model.RecipeTitleIndex;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import static java.util.Collections.unmodifiableList;
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.schedulers.Schedulers;
 
 /**
- * ListView adapter for recipe list.
+ * RecyclerView adapter for recipe list. The recipe ids are the stable item ids, and the shown list is replaced with a diff computed in the
+ * background, so only the rows of the changed recipes are rebound.
  */
-public class RecipeListRowAdapter extends ArrayAdapter<Recipe>
+public class RecipeListRowAdapter extends RecyclerView.Adapter<RecipeListRowAdapter.ViewHolder>
 {
     public static final String CLASS_NAME = RecipeListRowAdapter.class.getSimpleName();
     private Activity activity;
     private ArrayList<Recipe> recipeList;
-    private ArrayList<Recipe> recipeListAllUnfiltered;
+    // Replaced on the UI thread, read by the search on a background thread
+    private volatile RecipeTitleIndex titleIndex;
     private Settings settings;
+    private RecipeListRowTouchListener rowTouchListener;
+    private Disposable pendingDiff = Disposables.disposed();
 
     /**
-     * Default constructor. 0 is passed to the resource id, because we will be creating our own custom layout.
+     * Default constructor.
      *
      * @param activity   the current activity
-     * @param recipeList the vocabulary list
+     * @param recipeList the recipe list shown, updated in place
      * @param settings   the current user settings
      */
     public RecipeListRowAdapter(final Activity activity, final ArrayList<Recipe> recipeList, final Settings settings)
     {
-        super(activity, 0, recipeList);
-
         this.activity = activity;
         this.recipeList = recipeList;
-        this.recipeListAllUnfiltered = new ArrayList<>(recipeList);
+        this.titleIndex = new RecipeTitleIndex(recipeList);
         this.settings = settings;
+        this.rowTouchListener = new RecipeListRowTouchListener(activity, recipeList, settings);
+
+        setHasStableIds(true);
     }
 
-    public List<Recipe> getRecipeListAllUnfiltered()
+    /**
+     * Returns the title search index of the unfiltered recipe list, rebuilt only when the list is updated.
+     *
+     * @return RecipeTitleIndex
+     */
+    public RecipeTitleIndex getTitleIndex()
     {
-        return unmodifiableList(recipeListAllUnfiltered);
+        return titleIndex;
     }
 
     /**
-     * Populates the ListView.
+     * Returns the ids of the shown recipes, filtered by the category and the search.
+     *
+     * @return the recipe ids, in the shown order
      */
+    public int[] getRecipeIds()
+    {
+        return RecipeCache.toIds(recipeList);
+    }
+
     @NonNull
     @Override
-    public View getView(int position, View convertView, @NonNull ViewGroup parent)
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType)
     {
-        ViewHolder holder;
-        View listRowView;
-
-        if(convertView == null)
-        {
-            listRowView = this.activity.getLayoutInflater().inflate(R.layout.fragment_recipe_list_row, parent, false);
+        View listRowView = this.activity.getLayoutInflater().inflate(R.layout.fragment_recipe_list_row, parent, false);
+        ViewHolder holder = new ViewHolder(listRowView);
+        holder.scroll.setTag(holder);
+        holder.scroll.setOnTouchListener(rowTouchListener);
 
-            holder = new ViewHolder();
-            holder.titleText = listRowView.findViewById(R.id.text_row_title);
-            holder.categoryText = listRowView.findViewById(R.id.text_row_category);
-            holder.servingsText = listRowView.findViewById(R.id.text_row_servings);
-            holder.preparationTimeText = listRowView.findViewById(R.id.text_row_preparation_time);
-            holder.description = listRowView.findViewById(R.id.text_row_description);
-            holder.scroll = listRowView.findViewById(R.id.horizontalscroll_list_row);
+        return holder;
+    }
 
-            listRowView.setTag(holder);
-        }
-        else
-        {
-            listRowView = convertView;
-            holder = (ViewHolder) convertView.getTag();
-        }
+    /**
+     * Populates the row of the recipe in the given position. Called while scrolling, only sets the row's views without allocating.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position)
+    {
+        holder.setRecipeView(recipeList.get(position), settings);
+    }
 
-        Recipe recipe = getItem(position);
-        holder.setRecipeView(recipe, settings, new RecipeListRowTouchListener(activity, recipeList, settings, recipe, position));
+    @Override
+    public int getItemCount()
+    {
+        return recipeList.size();
+    }
 
-        return listRowView;
+    @Override
+    public long getItemId(int position)
+    {
+        return recipeList.get(position).getId();
     }
 
     /**
-     * Updates the recipe list.
+     * Updates the unfiltered recipe list, and shows it.
      *
      * @param list the list to replace the current
      */
@@ -98,25 +122,78 @@ public class RecipeListRowAdapter extends ArrayAdapter<Recipe>
     {
         if(list != null)
         {
-            // Store this new list into temp, because the list parameter shares the same reference as the Adapter's list.
-            // Thus, calling clear() will clear out both the adapter's list and the new list.
-            ArrayList<Recipe> tmpList = new ArrayList<>(list);
-            clear();
-
-            // If user deletes recipe list in AboutFragment
-            if(!tmpList.isEmpty())
-            {
-                addAll(tmpList);
-                recipeListAllUnfiltered.clear();
-                recipeListAllUnfiltered.addAll(tmpList);
-            }
+            titleIndex = new RecipeTitleIndex(list);
+            showRecipes(list);
         }
     }
 
     /**
-     * Helper class for storing view values. Ensures findViewById() will only be called ones if convertView is not null.
+     * Replaces the shown recipes. The difference with the shown recipes is computed in the background, then only the changed rows are
+     * notified. A pending replacement is cancelled, must be called on the UI thread.
+     *
+     * @param recipes the recipes to show
      */
-    private static class ViewHolder
+    public void showRecipes(List<Recipe> recipes)
+    {
+        // Copied, because the list parameter may share the same reference as the Adapter's list.
+        List<Recipe> oldList = new ArrayList<>(recipeList);
+        List<Recipe> newList = new ArrayList<>(recipes);
+
+        pendingDiff.dispose();
+        pendingDiff = Single.fromCallable(() -> DiffUtil.calculateDiff(new RecipeDiffCallback(oldList, newList)))
+                .subscribeOn(Schedulers.computation())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(diff ->
+                {
+                    recipeList.clear();
+                    recipeList.addAll(newList);
+                    diff.dispatchUpdatesTo(this);
+                }, e -> LogsManager.log(CLASS_NAME, "showRecipes", "Error computing the list changes. Error: " + e.getMessage(), e));
+    }
+
+    /**
+     * Compares recipes by id, a recipe with the same id but a different content is rebound.
+     */
+    private static class RecipeDiffCallback extends DiffUtil.Callback
+    {
+        private final List<Recipe> oldList;
+        private final List<Recipe> newList;
+
+        private RecipeDiffCallback(List<Recipe> oldList, List<Recipe> newList)
+        {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize()
+        {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize()
+        {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition)
+        {
+            return oldList.get(oldItemPosition).getId() == newList.get(newItemPosition).getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition)
+        {
+            return oldList.get(oldItemPosition).equals(newList.get(newItemPosition));
+        }
+    }
+
+    /**
+     * Holds the views of a row, findViewById() is only called when the row is created.
+     */
+    public static class ViewHolder extends RecyclerView.ViewHolder
     {
         private TextView titleText;
         private TextView categoryText;
@@ -125,10 +202,20 @@ public class RecipeListRowAdapter extends ArrayAdapter<Recipe>
         private TextView description;
         private HorizontalScrollView scroll;
 
-        private void setRecipeView(Recipe recipe, Settings settings, OnTouchListener listener)
+        private ViewHolder(View listRowView)
         {
-            this.scroll.setOnTouchListener(listener);
+            super(listRowView);
+
+            this.titleText = listRowView.findViewById(R.id.text_row_title);
+            this.categoryText = listRowView.findViewById(R.id.text_row_category);
+            this.servingsText = listRowView.findViewById(R.id.text_row_servings);
+            this.preparationTimeText = listRowView.findViewById(R.id.text_row_preparation_time);
+            this.description = listRowView.findViewById(R.id.text_row_description);
+            this.scroll = listRowView.findViewById(R.id.horizontalscroll_list_row);
+        }
 
+        private void setRecipeView(Recipe recipe, Settings settings)
+        {
             this.titleText.setText(recipe.getTitle());
             this.titleText.setTextSize(TypedValue.COMPLEX_UNIT_SP, settings.getFontSize());
             this.titleText.setTypeface(settings.getTypeface(true));
@@ -137,7 +224,7 @@ public class RecipeListRowAdapter extends ArrayAdapter<Recipe>
             this.categoryText.setTextSize(TypedValue.COMPLEX_UNIT_SP, settings.getFontSize());
             this.categoryText.setTypeface(settings.getTypeface(false));
 
-            this.servingsText.setText(String.valueOf(recipe.getServings()));
+            this.servingsText.setText(recipe.getServingsString());
             this.servingsText.setTextSize(TypedValue.COMPLEX_UNIT_SP, settings.getFontSize());
             this.servingsText.setTypeface(settings.getTypeface(false));
 
@@ -2,30 +2,28 @@ package com.aaron.recipe.adapter;
 
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
-import android.support.v4.app.FragmentPagerAdapter;
+import android.support.v4.app.FragmentStatePagerAdapter;
 
-import com.aaron.recipe.bean.Recipe;
 import com.aaron.recipe.bean.Settings;
 import com.aaron.recipe.fragment.RecipeFragment;
 
-import java.util.ArrayList;
-
 /**
- * Adapter class for RecipeFragment ViewPager.
+ * Adapter class for RecipeFragment ViewPager. Only the fragments of the pages around the current page are kept, the other pages are destroyed
+ * and only their saved state is kept, so the memory used does not grow with the number of visited recipes.
  */
-public class RecipePagerAdapter extends FragmentPagerAdapter
+public class RecipePagerAdapter extends FragmentStatePagerAdapter
 {
-    private ArrayList<Recipe> recipeList;
+    private int[] recipeIds;
     private Settings settings;
 
     /**
      * Default constructor.
      */
-    public RecipePagerAdapter(FragmentManager fm, final ArrayList<Recipe> recipeList, final Settings settings)
+    public RecipePagerAdapter(FragmentManager fm, final int[] recipeIds, final Settings settings)
     {
         super(fm);
 
-        this.recipeList = recipeList;
+        this.recipeIds = recipeIds;
         this.settings = settings;
     }
 
@@ -37,7 +35,7 @@ public class RecipePagerAdapter extends FragmentPagerAdapter
     @Override
     public Fragment getItem(int position)
     {
-        return RecipeFragment.newInstance(position, this.recipeList, this.settings);
+        return RecipeFragment.newInstance(this.recipeIds[position], this.settings);
     }
 
     /**
@@ -48,6 +46,6 @@ public class RecipePagerAdapter extends FragmentPagerAdapter
     @Override
     public int getCount()
     {
-        return this.recipeList.size();
+        return this.recipeIds.length;
     }
 }
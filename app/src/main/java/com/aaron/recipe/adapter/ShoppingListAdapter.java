@@ -0,0 +1,92 @@
+package com.aaron.recipe.adapter;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.util.TypedValue;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.aaron.recipe.bean.Ingredient;
+import com.aaron.recipe.bean.Settings;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RecyclerView adapter for the shopping list. The merged ingredients are appended as they are read from disk, only the appended rows are
+ * notified.
+ */
+public class ShoppingListAdapter extends RecyclerView.Adapter<ShoppingListAdapter.ViewHolder>
+{
+    private Activity activity;
+    private Settings settings;
+    private final ArrayList<Ingredient> ingredients = new ArrayList<>();
+
+    /**
+     * Default constructor.
+     *
+     * @param activity the current activity
+     * @param settings the current user settings
+     */
+    public ShoppingListAdapter(final Activity activity, final Settings settings)
+    {
+        this.activity = activity;
+        this.settings = settings;
+    }
+
+    /**
+     * Appends the ingredients to the shown list.
+     *
+     * @param ingredients the merged ingredients read from disk
+     */
+    public void addIngredients(List<Ingredient> ingredients)
+    {
+        int shownCount = this.ingredients.size();
+        this.ingredients.addAll(ingredients);
+
+        notifyItemRangeInserted(shownCount, ingredients.size());
+    }
+
+    @Override
+    public int getItemCount()
+    {
+        return this.ingredients.size();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType)
+    {
+        TextView textView = new TextView(this.activity);
+        textView.setTextSize(TypedValue.COMPLEX_UNIT_SP, this.settings.getFontSize());
+        textView.setTypeface(this.settings.getTypeface(false));
+
+        RecyclerView.LayoutParams layoutParams = new RecyclerView.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+        layoutParams.setMargins(10, 10, 5, 0);
+        textView.setLayoutParams(layoutParams);
+
+        return new ViewHolder(textView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position)
+    {
+        holder.textView.setText(this.ingredients.get(position).toString());
+    }
+
+    /**
+     * Holds the TextView of a shopping list row.
+     */
+    public static class ViewHolder extends RecyclerView.ViewHolder
+    {
+        private TextView textView;
+
+        private ViewHolder(TextView textView)
+        {
+            super(textView);
+
+            this.textView = textView;
+        }
+    }
+}
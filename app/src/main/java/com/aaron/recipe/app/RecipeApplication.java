@@ -50,8 +50,12 @@ public class RecipeApplication extends Application
         LogsManager.log(CLASS_NAME, "onCreate", "Init categories");
 
         CategoryManager categoryManager = new CategoryManager(this);
-        SparseArray<String> categoriesArray = categoryManager.getCategoriesFromDisk();
+        categoryManager.loadCategories().subscribe(categoriesArray -> saveOrUpdateCategories(categoryManager, categoriesArray),
+                e -> LogsManager.log(CLASS_NAME, "loadCategories", "Error loading categories. Error: " + e.getMessage(), e));
+    }
 
+    private void saveOrUpdateCategories(CategoryManager categoryManager, SparseArray<String> categoriesArray)
+    {
         boolean haveCategories = categoriesArray != null && categoriesArray.size() > 1;
         if(haveCategories)
         {
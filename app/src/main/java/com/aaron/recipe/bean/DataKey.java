@@ -6,9 +6,10 @@ package com.aaron.recipe.bean;
 public enum DataKey
 {
     EXTRA_PAGE("com.aaron.recipe.adapter.page"),
-    EXTRA_RECIPE("com.aaron.recipe.adapter.recipe"),
+    EXTRA_RECIPE_ID("com.aaron.recipe.adapter.recipe_id"),
+    EXTRA_SERVINGS("com.aaron.recipe.fragment.recipe.servings"),
     EXTRA_SETTINGS("com.aaron.recipe.fragment.settings"),
-    EXTRA_RECIPE_LIST("com.aaron.recipe.fragment.recipe_list.list");
+    EXTRA_RECIPE_IDS("com.aaron.recipe.fragment.recipe_list.ids");
 
     private String value;
 
@@ -5,9 +5,9 @@ import android.os.Parcelable;
 
 import com.aaron.recipe.model.MathUtils;
 
-import java.util.Arrays;
-import java.util.Optional;
-import java.util.function.Predicate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Represents a decimal number as fraction.
@@ -15,27 +15,33 @@ import java.util.function.Predicate;
 public class Fraction implements Parcelable
 {
     private static final String PLUS = " + ";
+    // The decimal places shown of an exact number without a fraction, e.g. a third of 1/2 cup
+    private static final int SHOWN_DECIMAL_PLACES = 2;
 
     /**
-     * Constants for fractional characters.
+     * Constants for fractional characters. The value is the decimal stored for the fraction, the numerator and denominator are its exact value.
      */
     public enum CommonFraction
     {
-        THREE_FOURTH("¾", 0.75),
-        TWO_THIRD("⅔", 0.66),
-        ONE_HALF("½", 0.5),
-        ONE_THIRD("⅓", 0.33),
-        ONE_FOURTH("¼", 0.25),
-        ONE_FIFTH("⅕", 0.2),
-        ONE_EIGHT("⅛", 0.125);
+        THREE_FOURTH("¾", 0.75, 3, 4),
+        TWO_THIRD("⅔", 0.66, 2, 3),
+        ONE_HALF("½", 0.5, 1, 2),
+        ONE_THIRD("⅓", 0.33, 1, 3),
+        ONE_FOURTH("¼", 0.25, 1, 4),
+        ONE_FIFTH("⅕", 0.2, 1, 5),
+        ONE_EIGHT("⅛", 0.125, 1, 8);
 
         private final String code;
         private final double value;
+        private final long numerator;
+        private final long denominator;
 
-        CommonFraction(String code, double value)
+        CommonFraction(String code, double value, long numerator, long denominator)
         {
             this.code = code;
             this.value = value;
+            this.numerator = numerator;
+            this.denominator = denominator;
         }
 
         public String getCode()
@@ -47,6 +53,46 @@ public class Fraction implements Parcelable
         {
             return this.value;
         }
+
+        public long getNumerator()
+        {
+            return this.numerator;
+        }
+
+        public long getDenominator()
+        {
+            return this.denominator;
+        }
+
+        /**
+         * Returns true if this fraction is exactly numerator / denominator, compared without dividing.
+         */
+        private boolean isEqualTo(long numerator, long denominator)
+        {
+            return this.numerator * denominator == numerator * this.denominator;
+        }
+    }
+
+    // The rounded decimals have 3 places, FRACTIONS[i] is the fraction of i / 1000, empty if it has no fraction
+    private static final int DECIMAL_PLACES = 3;
+    private static final int DECIMALS = 1000;
+    private static final String[] FRACTIONS = new String[DECIMALS];
+    private static final int MAX_CACHED_NUMBERS = 256;
+    private static final Map<Double, String> FORMATTED_NUMBERS = Collections.synchronizedMap(new LinkedHashMap<Double, String>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Double, String> eldest)
+        {
+            return size() > MAX_CACHED_NUMBERS;
+        }
+    });
+
+    static
+    {
+        for(int i = 0; i < DECIMALS; i++)
+        {
+            FRACTIONS[i] = deriveFractionFromDecimal(MathUtils.round(i / (double) DECIMALS, DECIMAL_PLACES));
+        }
     }
 
     private String fraction;
@@ -58,7 +104,7 @@ public class Fraction implements Parcelable
      */
     public Fraction(double number)
     {
-        this.fraction = this.convertToFraction(number);
+        this.fraction = format(number);
     }
 
     /**
@@ -71,18 +117,96 @@ public class Fraction implements Parcelable
         return this.fraction;
     }
 
+    /**
+     * Returns the fractional form of the given decimal number, without creating a Fraction. The recently formatted numbers are cached,
+     * because the same few quantities are formatted again every time an ingredient is shown.
+     *
+     * @param number the decimal number to be converted to fractional form
+     * @return String
+     */
+    public static String format(double number)
+    {
+        String formatted = FORMATTED_NUMBERS.get(number);
+        if(formatted == null)
+        {
+            formatted = convertToFraction(number);
+            FORMATTED_NUMBERS.put(number, formatted);
+        }
+
+        return formatted;
+    }
+
+    /**
+     * Returns the fractional form of the given exact number. The fraction is shown as one or the sum of two CommonFraction, else the number is
+     * shown as a decimal rounded to 2 places.
+     *
+     * @param number the exact number, e.g. a scaled quantity
+     * @return String
+     */
+    public static String format(Rational number)
+    {
+        long wholeNumber = number.getWholePart();
+        long denominator = number.getDenominator();
+        long numerator = number.getNumerator() - wholeNumber * denominator;
+        if(numerator == 0)
+        {
+            return String.valueOf(wholeNumber);
+        }
+
+        String fraction = getFraction(numerator, denominator);
+        if(fraction.isEmpty())
+        {
+            return format(MathUtils.round(number.toDouble(), SHOWN_DECIMAL_PLACES));
+        }
+
+        return (wholeNumber == 0 ? "" : wholeNumber) + fraction;
+    }
+
+    /**
+     * Returns one or the sum of two common fractions exactly equal to numerator / denominator, empty if there is none. The sums are searched in
+     * the same order as the decimals of the lookup table.
+     */
+    private static String getFraction(long numerator, long denominator)
+    {
+        CommonFraction[] commonFractions = CommonFraction.values();
+        for(CommonFraction cf : commonFractions)
+        {
+            if(cf.isEqualTo(numerator, denominator))
+            {
+                return cf.getCode();
+            }
+        }
+
+        for(int firstFractionIndex = commonFractions.length - 1; firstFractionIndex > 0; firstFractionIndex--)
+        {
+            for(int secondFractionIndex = firstFractionIndex - 1; secondFractionIndex >= 0; secondFractionIndex--)
+            {
+                CommonFraction firstFraction = commonFractions[firstFractionIndex];
+                CommonFraction secondFraction = commonFractions[secondFractionIndex];
+                long sumNumerator = firstFraction.numerator * secondFraction.denominator + secondFraction.numerator * firstFraction.denominator;
+                long sumDenominator = firstFraction.denominator * secondFraction.denominator;
+                if(sumNumerator * denominator == numerator * sumDenominator)
+                {
+                    return secondFraction.getCode() + PLUS + firstFraction.getCode();
+                }
+            }
+        }
+
+        return "";
+    }
+
     /**
      * Converts the given decimal number to its fractional form with regards to CommonFraction enum. If the number is not found in CommonFraction then it will not be converted.
      *
      * @param decimalNumber the decimal number
      * @return String
      */
-    private String convertToFraction(final double decimalNumber)
+    private static String convertToFraction(final double decimalNumber)
     {
         int wholeNumber = (int) decimalNumber;
-        double decimal = MathUtils.round(decimalNumber - wholeNumber, 3);
+        double decimal = MathUtils.round(decimalNumber - wholeNumber, DECIMAL_PLACES);
 
-        String fraction = deriveFractionFromDecimal(decimal);
+        String fraction = getFraction(decimal);
         if(fraction.isEmpty())
         {
             if(decimal == 0)
@@ -100,27 +224,34 @@ public class Fraction implements Parcelable
         }
     }
 
-    private String deriveFractionFromDecimal(double decimal)
+    /**
+     * Looks up the fraction of the decimal rounded to 3 places in the table built from the CommonFraction enum.
+     */
+    private static String getFraction(double decimal)
     {
-        Predicate<CommonFraction> isFractionDecimalEqualToDecimal = cf -> cf.getValue() == decimal;
-        Optional<CommonFraction> cf = Arrays.stream(CommonFraction.values()).filter(isFractionDecimalEqualToDecimal).findFirst();
-        String fraction;
-        if(cf.isPresent())
-        {
-            fraction = cf.get().getCode();
-        }
-        else
+        // Negative and rounded up to 1 decimals have no fraction
+        int index = (int) Math.round(decimal * DECIMALS);
+
+        return index >= 0 && index < DECIMALS ? FRACTIONS[index] : "";
+    }
+
+    private static String deriveFractionFromDecimal(double decimal)
+    {
+        for(CommonFraction cf : CommonFraction.values())
         {
-            fraction = getComplexFraction(decimal);
+            if(cf.getValue() == decimal)
+            {
+                return cf.getCode();
+            }
         }
 
-        return fraction;
+        return getComplexFraction(decimal);
     }
 
     /**
-     *
+     * Returns the sum of two common fractions that is equal to the decimal, empty if there is none. Only used to build the lookup table.
      */
-    private String getComplexFraction(double decimal)
+    private static String getComplexFraction(double decimal)
     {
         CommonFraction[] commonFractions = CommonFraction.values();
         int lastIndex = commonFractions.length - 1;
@@ -17,6 +17,8 @@ public class Ingredient implements Parcelable
     private String measurement;
     private String ingredient;
     private String comment;
+    // Parsed from the measurement, stored with the ingredient on disk
+    private Unit unit;
 
     /**
      * Default constructor.
@@ -54,6 +56,21 @@ public class Ingredient implements Parcelable
         return this.measurement;
     }
 
+    /**
+     * Gets the unit of the measurement. Loaded with the ingredient from disk, else parsed once from the measurement.
+     *
+     * @return Unit
+     */
+    public Unit getUnit()
+    {
+        if(this.unit == null)
+        {
+            this.unit = Unit.parse(this.measurement);
+        }
+
+        return this.unit;
+    }
+
     /**
      * Gets the ingredient.
      * 
@@ -74,6 +91,19 @@ public class Ingredient implements Parcelable
         return this.comment;
     }
 
+    /**
+     * Scales the quantity from the given servings to the other servings, exactly. Nothing is allocated, the result is set in the given number.
+     *
+     * @param fromServings the servings of the quantity, not zero
+     * @param toServings   the servings to scale to
+     * @param result       set to the scaled quantity
+     * @return the result
+     */
+    public Rational scaleQuantity(int fromServings, int toServings, Rational result)
+    {
+        return result.setDecimal(this.quantity).multiply(toServings, fromServings);
+    }
+
     public Ingredient setQuantity(double quantity)
     {
         this.quantity = quantity;
@@ -83,6 +113,19 @@ public class Ingredient implements Parcelable
     public Ingredient setMeasurement(String measurement)
     {
         this.measurement = measurement;
+        this.unit = null;
+        return this;
+    }
+
+    /**
+     * Sets the unit already parsed from the measurement, must be set after the measurement.
+     *
+     * @param unit the unit of the measurement
+     * @return this
+     */
+    public Ingredient setUnit(Unit unit)
+    {
+        this.unit = unit;
         return this;
     }
 
@@ -135,9 +178,23 @@ public class Ingredient implements Parcelable
     @Override
     public String toString()
     {
-        Fraction quantityInFraction = new Fraction(this.quantity);
+        return toString(Fraction.format(this.quantity));
+    }
 
-        String toReturn = quantityInFraction.getFraction() + " " + this.measurement + " " + this.ingredient;
+    /**
+     * Returns a string representation of the object, with the given quantity instead of its own.
+     *
+     * @param quantity the quantity to show, e.g. scaled to other servings
+     * @return String
+     */
+    public String toString(Rational quantity)
+    {
+        return toString(Fraction.format(quantity));
+    }
+
+    private String toString(String quantity)
+    {
+        String toReturn = quantity + " " + this.measurement + " " + this.ingredient;
 
         if(StringUtils.isNotBlank(comment))
         {
@@ -156,6 +213,7 @@ public class Ingredient implements Parcelable
         this.measurement = in.readString();
         this.ingredient = in.readString();
         this.comment = in.readString();
+        this.unit = Unit.fromName(in.readString());
     }
 
     /**
@@ -168,6 +226,7 @@ public class Ingredient implements Parcelable
         dest.writeString(this.measurement);
         dest.writeString(this.ingredient);
         dest.writeString(this.comment);
+        dest.writeString(getUnit().name());
     }
 
     /**
@@ -41,6 +41,22 @@ public class Ingredients implements Parcelable
         this.ingredientsList.add(ingredient);
     }
 
+    /**
+     * Scales the quantities of the ingredients from the given servings to the other servings, exactly. Nothing is allocated, the results
+     * are set in the given numbers.
+     *
+     * @param fromServings the servings of the quantities, not zero
+     * @param toServings   the servings to scale to
+     * @param quantities   quantities[i] is set to the scaled quantity of the i-th ingredient, at least as long as the ingredients list
+     */
+    public void scaleQuantities(int fromServings, int toServings, Rational[] quantities)
+    {
+        for(int i = 0; i < this.ingredientsList.size(); i++)
+        {
+            this.ingredientsList.get(i).scaleQuantity(fromServings, toServings, quantities[i]);
+        }
+    }
+
     /**
      * Gets the instructionsList.
      * @return ArrayList<String>
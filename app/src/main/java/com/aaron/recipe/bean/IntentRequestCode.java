@@ -2,7 +2,7 @@ package com.aaron.recipe.bean;
 
 public enum IntentRequestCode
 {
-    SETTINGS(1), ABOUT(2), LOGS(3), RECIPE(4);
+    SETTINGS(1), ABOUT(2), LOGS(3), RECIPE(4), SHOPPING_LIST(5);
 
     private int code;
 
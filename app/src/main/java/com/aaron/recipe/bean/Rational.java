@@ -0,0 +1,245 @@
+package com.aaron.recipe.bean;
+
+/**
+ * A rational number, the numerator and denominator are kept normalized by their GCD with a positive denominator. Mutable, so a quantity can
+ * be scaled and summed in place without allocating, e.g. while binding a list row. Use {@link Fraction#format(Rational)} to show it.
+ */
+public final class Rational
+{
+    // The quantities are stored as decimals with 3 places, and thirds are stored as 0.33 and 0.66
+    private static final long THOUSANDTHS = 1000;
+    private static final long THIRDS = 3;
+
+    private long numerator;
+    private long denominator;
+
+    /**
+     * Creates a rational number equal to zero.
+     */
+    public Rational()
+    {
+        this(0, 1);
+    }
+
+    /**
+     * Creates the rational number numerator / denominator.
+     *
+     * @param numerator   the numerator
+     * @param denominator the denominator, not zero
+     */
+    public Rational(long numerator, long denominator)
+    {
+        set(numerator, denominator);
+    }
+
+    /**
+     * Sets this number to numerator / denominator.
+     *
+     * @param numerator   the numerator
+     * @param denominator the denominator, not zero
+     * @return this
+     * @throws ArithmeticException if the denominator is zero
+     */
+    public Rational set(long numerator, long denominator)
+    {
+        if(denominator == 0)
+        {
+            throw new ArithmeticException("Denominator is zero.");
+        }
+
+        long gcd = gcd(numerator, denominator);
+        if(denominator < 0)
+        {
+            gcd = -gcd;
+        }
+
+        this.numerator = numerator / gcd;
+        this.denominator = denominator / gcd;
+
+        return this;
+    }
+
+    /**
+     * Sets this number to the given number.
+     *
+     * @param other the number to copy
+     * @return this
+     */
+    public Rational set(Rational other)
+    {
+        this.numerator = other.numerator;
+        this.denominator = other.denominator;
+
+        return this;
+    }
+
+    /**
+     * Sets this number to the given decimal rounded to 3 places. The decimals of a third, like 0.33 and 0.667, are read as thirds.
+     *
+     * @param decimal the decimal number, e.g. the quantity of an ingredient
+     * @return this
+     */
+    public Rational setDecimal(double decimal)
+    {
+        long thousandths = Math.round(decimal * THOUSANDTHS);
+        long whole = thousandths / THOUSANDTHS;
+        long remainder = thousandths % THOUSANDTHS;
+
+        long thirds;
+        switch((int) Math.abs(remainder))
+        {
+            case 330:
+            case 333:
+                thirds = 1;
+                break;
+            case 660:
+            case 666:
+            case 667:
+                thirds = 2;
+                break;
+            default:
+                return set(thousandths, THOUSANDTHS);
+        }
+
+        return set(whole * THIRDS + Long.signum(remainder) * thirds, THIRDS);
+    }
+
+    /**
+     * Multiplies this number by numerator / denominator. Reduced before multiplying, so the result only overflows if its normalized form does.
+     *
+     * @param numerator   the numerator of the factor
+     * @param denominator the denominator of the factor, not zero
+     * @return this
+     * @throws ArithmeticException if the denominator is zero or the result overflows
+     */
+    public Rational multiply(long numerator, long denominator)
+    {
+        if(denominator == 0)
+        {
+            throw new ArithmeticException("Denominator is zero.");
+        }
+
+        long gcd1 = gcd(this.numerator, denominator);
+        long gcd2 = gcd(numerator, this.denominator);
+
+        return set(Math.multiplyExact(this.numerator / gcd1, numerator / gcd2), Math.multiplyExact(this.denominator / gcd2, denominator / gcd1));
+    }
+
+    /**
+     * Adds numerator / denominator to this number.
+     *
+     * @param numerator   the numerator of the addend
+     * @param denominator the denominator of the addend, not zero
+     * @return this
+     * @throws ArithmeticException if the denominator is zero or the result overflows
+     */
+    public Rational add(long numerator, long denominator)
+    {
+        if(denominator == 0)
+        {
+            throw new ArithmeticException("Denominator is zero.");
+        }
+
+        // Sum over the least common multiple of the denominators
+        long gcd = gcd(this.denominator, denominator);
+        long thisFactor = denominator / gcd;
+        long otherFactor = this.denominator / gcd;
+
+        return set(Math.addExact(Math.multiplyExact(this.numerator, thisFactor), Math.multiplyExact(numerator, otherFactor)),
+                Math.multiplyExact(this.denominator, thisFactor));
+    }
+
+    /**
+     * Adds the given number to this number.
+     *
+     * @param other the addend
+     * @return this
+     * @throws ArithmeticException if the result overflows
+     */
+    public Rational add(Rational other)
+    {
+        return add(other.numerator, other.denominator);
+    }
+
+    public long getNumerator()
+    {
+        return this.numerator;
+    }
+
+    public long getDenominator()
+    {
+        return this.denominator;
+    }
+
+    /**
+     * Returns the whole part, rounded towards zero.
+     *
+     * @return long
+     */
+    public long getWholePart()
+    {
+        return this.numerator / this.denominator;
+    }
+
+    /**
+     * Returns the closest double, only for showing numbers without a common fraction.
+     *
+     * @return double
+     */
+    public double toDouble()
+    {
+        return (double) this.numerator / this.denominator;
+    }
+
+    /**
+     * Returns the greatest common divisor, always positive. The GCD of zero and zero is one, so it can always divide.
+     *
+     * @param a a number
+     * @param b another number
+     * @return long
+     */
+    static long gcd(long a, long b)
+    {
+        a = Math.abs(a);
+        b = Math.abs(b);
+        while(b != 0)
+        {
+            long remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+
+        return a == 0 ? 1 : a;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if(this == o)
+        {
+            return true;
+        }
+
+        if(o == null || getClass() != o.getClass())
+        {
+            return false;
+        }
+
+        Rational that = (Rational) o;
+
+        // Both are normalized
+        return this.numerator == that.numerator && this.denominator == that.denominator;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * Long.hashCode(this.numerator) + Long.hashCode(this.denominator);
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.numerator + "/" + this.denominator;
+    }
+}
@@ -13,10 +13,14 @@ import java.util.Objects;
 public class Recipe implements Parcelable
 {
     private int id;
+    private int serverId;
     private String title;
     private String category;
     private int servings;
     private int preparationTime;
+    // Formatted on first use, the recipe rows are bound again while scrolling
+    private String servingsString;
+    private String preparationTimeString;
     private String description;
     private Ingredients ingredients;
     private Instructions instructions;
@@ -55,39 +59,30 @@ public class Recipe implements Parcelable
      *            the minutes to convert
      * @return the minutes converted to hours+minutes
      */
-    private String formatPreparationTime(final int minutes)
+    private static String formatPreparationTime(final int minutes)
     {
         int hrs = minutes / 60;
         int mins = minutes % 60;
-        String formattedPreparationTime = "";
-
-        // set minute/s
-        if(mins > 0)
-        {
-            formattedPreparationTime = mins + "";
-        }
+        StringBuilder formattedPreparationTime = new StringBuilder(16);
 
         // set hour/s and hr/hrs string
-        if(hrs == 1)
+        if(hrs > 0)
         {
-            formattedPreparationTime = hrs + " hr " + formattedPreparationTime;
-        }
-        else if(hrs > 1)
-        {
-            formattedPreparationTime = hrs + " hrs " + formattedPreparationTime;
+            formattedPreparationTime.append(hrs).append(hrs == 1 ? " hr" : " hrs");
         }
 
-        // set min/mins string
-        if(mins == 1)
-        {
-            formattedPreparationTime += " min";
-        }
-        else if(mins > 1)
+        // set minute/s and min/mins string
+        if(mins > 0)
         {
-            formattedPreparationTime += " mins";
+            if(formattedPreparationTime.length() > 0)
+            {
+                formattedPreparationTime.append(' ');
+            }
+
+            formattedPreparationTime.append(mins).append(mins == 1 ? " min" : " mins");
         }
 
-        return formattedPreparationTime.trim();
+        return formattedPreparationTime.toString();
     }
 
     /**
@@ -100,6 +95,16 @@ public class Recipe implements Parcelable
         return this.id;
     }
 
+    /**
+     * Gets the id of the recipe in the server, used as the stable key when syncing.
+     *
+     * @return int
+     */
+    public int getServerId()
+    {
+        return this.serverId;
+    }
+
     /**
      * Gets the title.
      *
@@ -120,6 +125,21 @@ public class Recipe implements Parcelable
         return this.servings;
     }
 
+    /**
+     * Gets the servings.
+     *
+     * @return String
+     */
+    public String getServingsString()
+    {
+        if(this.servingsString == null)
+        {
+            this.servingsString = String.valueOf(this.servings);
+        }
+
+        return this.servingsString;
+    }
+
     /**
      * Gets the category.
      *
@@ -137,7 +157,12 @@ public class Recipe implements Parcelable
      */
     public String getPreparationTimeString()
     {
-        return this.formatPreparationTime(this.preparationTime);
+        if(this.preparationTimeString == null)
+        {
+            this.preparationTimeString = formatPreparationTime(this.preparationTime);
+        }
+
+        return this.preparationTimeString;
     }
 
     /**
@@ -180,12 +205,47 @@ public class Recipe implements Parcelable
         return this.instructions;
     }
 
+    /**
+     * Checks if the ingredients and instructions are loaded. Recipes listed from disk are only summaries, without the ingredients and instructions.
+     *
+     * @return true if both ingredients and instructions are present
+     */
+    public boolean hasDetails()
+    {
+        return this.ingredients != null && this.instructions != null;
+    }
+
+    /**
+     * Scales the ingredient quantities of this recipe to the given servings, exactly. Nothing is allocated, the results are set in the given
+     * numbers. The quantities are not scaled if this recipe has no servings.
+     *
+     * @param servings   the servings to scale to
+     * @param quantities quantities[i] is set to the scaled quantity of the i-th ingredient, at least as long as the ingredients list
+     */
+    public void scaleIngredients(int servings, Rational[] quantities)
+    {
+        if(this.servings > 0)
+        {
+            this.ingredients.scaleQuantities(this.servings, servings, quantities);
+        }
+        else
+        {
+            this.ingredients.scaleQuantities(1, 1, quantities);
+        }
+    }
+
     public Recipe setId(int id)
     {
         this.id = id;
         return this;
     }
 
+    public Recipe setServerId(int serverId)
+    {
+        this.serverId = serverId;
+        return this;
+    }
+
     public Recipe setTitle(String title)
     {
         this.title = title;
@@ -201,12 +261,14 @@ public class Recipe implements Parcelable
     public Recipe setServings(int servings)
     {
         this.servings = servings;
+        this.servingsString = null;
         return this;
     }
 
     public Recipe setPreparationTime(int preparationTime)
     {
         this.preparationTime = preparationTime;
+        this.preparationTimeString = null;
         return this;
     }
 
@@ -245,6 +307,7 @@ public class Recipe implements Parcelable
 
         return new EqualsBuilder()
                 .append(id, recipe.id)
+                .append(serverId, recipe.serverId)
                 .append(servings, recipe.servings)
                 .append(preparationTime, recipe.preparationTime)
                 .append(title, recipe.title)
@@ -258,7 +321,7 @@ public class Recipe implements Parcelable
     @Override
     public int hashCode()
     {
-        return Objects.hash(id, title, category, servings, preparationTime, description, ingredients, instructions);
+        return Objects.hash(id, serverId, title, category, servings, preparationTime, description, ingredients, instructions);
     }
 
     /**
@@ -270,6 +333,7 @@ public class Recipe implements Parcelable
     public String toString()
     {
         return "Id: " + this.id +
+                " Server Id: " + this.serverId +
                 " Title: " + this.title +
                 " Category: " + this.category +
                 " Servings: " + this.servings +
@@ -285,6 +349,7 @@ public class Recipe implements Parcelable
     private Recipe(Parcel in)
     {
         this.id = in.readInt();
+        this.serverId = in.readInt();
         this.title = in.readString();
         this.category = in.readString();
         this.servings = in.readInt();
@@ -301,6 +366,7 @@ public class Recipe implements Parcelable
     public void writeToParcel(Parcel dest, int flags)
     {
         dest.writeInt(this.id);
+        dest.writeInt(this.serverId);
         dest.writeString(this.title);
         dest.writeString(this.category);
         dest.writeInt(this.servings);
@@ -0,0 +1,81 @@
+package com.aaron.recipe.bean;
+
+import java.util.ArrayList;
+
+/**
+ * The ingredients of a recipe scaled to other servings. The ingredients are not copied, only the scaled quantities and the lines of the shown
+ * ingredients are kept, both computed on first use.
+ */
+public class ScaledIngredients
+{
+    private final Recipe recipe;
+    private final int servings;
+    private Rational[] quantities;
+    private String[] lines;
+
+    /**
+     * Default constructor, nothing is scaled yet.
+     *
+     * @param recipe   the recipe with its ingredients
+     * @param servings the servings to scale to
+     */
+    public ScaledIngredients(final Recipe recipe, final int servings)
+    {
+        this.recipe = recipe;
+        this.servings = servings;
+    }
+
+    public Recipe getRecipe()
+    {
+        return this.recipe;
+    }
+
+    public int getServings()
+    {
+        return this.servings;
+    }
+
+    /**
+     * Returns the scaled quantity of the ingredient in the given position.
+     *
+     * @param position the position of the ingredient in the recipe's ingredients list
+     * @return the scaled quantity, must not be modified
+     */
+    public synchronized Rational getQuantity(int position)
+    {
+        if(this.quantities == null)
+        {
+            ArrayList<Ingredient> ingredientsList = this.recipe.getIngredients().getIngredientsList();
+            this.quantities = new Rational[ingredientsList.size()];
+            for(int i = 0; i < this.quantities.length; i++)
+            {
+                this.quantities[i] = new Rational();
+            }
+
+            this.recipe.scaleIngredients(this.servings, this.quantities);
+        }
+
+        return this.quantities[position];
+    }
+
+    /**
+     * Returns the line of the ingredient in the given position, with its scaled quantity.
+     *
+     * @param position the position of the ingredient in the recipe's ingredients list
+     * @return String
+     */
+    public synchronized String getLine(int position)
+    {
+        if(this.lines == null)
+        {
+            this.lines = new String[this.recipe.getIngredients().getIngredientsList().size()];
+        }
+
+        if(this.lines[position] == null)
+        {
+            this.lines[position] = this.recipe.getIngredients().getIngredientsList().get(position).toString(getQuantity(position));
+        }
+
+        return this.lines[position];
+    }
+}
@@ -35,6 +35,10 @@ public class Settings implements Parcelable
     private int fontSize;
     private String serverURL;
 
+    // Created on first use from the font name and style, not part of the settings state
+    private Typeface typeface;
+    private Typeface boldTypeface;
+
     /**
      * Default constructor, initializes with default values.
      */
@@ -136,12 +140,32 @@ public class Settings implements Parcelable
     }
 
     /**
-     * Returns the typeface of this recipe.
+     * Returns the typeface of this recipe. The typeface is only created once, until the font name or style changes.
      *
      * @param isBold checker if typeface will return bold regardless of the selected settings
      * @return Typeface
      */
     public Typeface getTypeface(final boolean isBold)
+    {
+        if(isBold)
+        {
+            if(this.boldTypeface == null)
+            {
+                this.boldTypeface = this.createTypeface(true);
+            }
+
+            return this.boldTypeface;
+        }
+
+        if(this.typeface == null)
+        {
+            this.typeface = this.createTypeface(false);
+        }
+
+        return this.typeface;
+    }
+
+    private Typeface createTypeface(final boolean isBold)
     {
         Typeface family;
 
@@ -191,6 +215,7 @@ public class Settings implements Parcelable
     public Settings setFontName(final FontName fontName)
     {
         this.fontName = fontName;
+        this.clearTypefaces();
         return this;
     }
 
@@ -203,9 +228,16 @@ public class Settings implements Parcelable
     public Settings setFontStyle(final FontStyle fontStyle)
     {
         this.fontStyle = fontStyle;
+        this.clearTypefaces();
         return this;
     }
 
+    private void clearTypefaces()
+    {
+        this.typeface = null;
+        this.boldTypeface = null;
+    }
+
     /**
      * Sets the fontSize new value.
      *
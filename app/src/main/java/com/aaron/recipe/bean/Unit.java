@@ -0,0 +1,164 @@
+package com.aaron.recipe.bean;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The canonical units of the ingredient measurements. A measurement is parsed once when the recipes are saved, the unit and the quantity in
+ * the base unit of its family are stored with the ingredient, so the quantities can be compared, converted and summed without parsing again.
+ */
+public enum Unit
+{
+    // Volumes in 10^-11 milliliters, so the US customary units are exact multiples of each other
+    TEASPOON(Family.VOLUME, 492_892_159_375L, "tsp", "teaspoon", "teaspoons", "tsps", "tsp.", "t"),
+    TABLESPOON(Family.VOLUME, 1_478_676_478_125L, "tbsp", "tablespoon", "tablespoons", "tbsps", "tbsp.", "tbs", "tbs.", "tbl", "tbl."),
+    FLUID_OUNCE(Family.VOLUME, 2_957_352_956_250L, "fl oz", "fluid ounce", "fluid ounces", "fl. oz.", "fl.oz.", "floz"),
+    CUP(Family.VOLUME, 23_658_823_650_000L, "cup", "cups", "c", "c."),
+    PINT(Family.VOLUME, 47_317_647_300_000L, "pint", "pints", "pt", "pt."),
+    QUART(Family.VOLUME, 94_635_294_600_000L, "quart", "quarts", "qt", "qt."),
+    GALLON(Family.VOLUME, 378_541_178_400_000L, "gallon", "gallons", "gal", "gal."),
+    MILLILITER(Family.VOLUME, 100_000_000_000L, "ml", "milliliter", "milliliters", "millilitre", "millilitres", "ml."),
+    LITER(Family.VOLUME, 100_000_000_000_000L, "l", "liter", "liters", "litre", "litres", "l."),
+    // Masses in 10^-9 grams, so the avoirdupois units are exact
+    MILLIGRAM(Family.MASS, 1_000_000L, "mg", "milligram", "milligrams", "mg."),
+    GRAM(Family.MASS, 1_000_000_000L, "g", "gram", "grams", "gr", "g.", "gr."),
+    KILOGRAM(Family.MASS, 1_000_000_000_000L, "kg", "kilogram", "kilograms", "kilo", "kilos", "kg."),
+    OUNCE(Family.MASS, 28_349_523_125L, "oz", "ounce", "ounces", "oz."),
+    POUND(Family.MASS, 453_592_370_000L, "lb", "pound", "pounds", "lbs", "lb.", "lbs."),
+    // Pieces, cloves, a pinch or any other measurement, only the same measurement text can be summed
+    OTHER(Family.OTHER, 1L);
+
+    /**
+     * The units of the same family can be converted to each other.
+     */
+    public enum Family
+    {
+        // Base unit milliliter
+        VOLUME(100_000_000_000L),
+        // Base unit gram
+        MASS(1_000_000_000L),
+        OTHER(1L);
+
+        private final long baseFactor;
+
+        Family(long baseFactor)
+        {
+            this.baseFactor = baseFactor;
+        }
+    }
+
+    private static final Map<String, Unit> UNITS_BY_ALIAS = new HashMap<>();
+    private static final Map<String, Unit> UNITS_BY_NAME = new HashMap<>();
+
+    static
+    {
+        for(Unit unit : values())
+        {
+            UNITS_BY_NAME.put(unit.name(), unit);
+            for(String alias : unit.aliases)
+            {
+                UNITS_BY_ALIAS.put(alias, unit);
+            }
+        }
+    }
+
+    private final Family family;
+    private final double baseFactor;
+    private final String[] aliases;
+
+    Unit(Family family, long factor, String... aliases)
+    {
+        this.family = family;
+        this.baseFactor = (double) factor / family.baseFactor;
+        this.aliases = aliases;
+    }
+
+    /**
+     * Parses the measurement of an ingredient, e.g. "cups", "C." and "Tbsp". The case is ignored, except "T" for tablespoon and "t" for
+     * teaspoon.
+     *
+     * @param measurement the free text measurement
+     * @return the unit, or OTHER if the measurement is not a known unit
+     */
+    public static Unit parse(String measurement)
+    {
+        if(measurement == null)
+        {
+            return OTHER;
+        }
+
+        String trimmed = measurement.trim();
+        if("T".equals(trimmed))
+        {
+            return TABLESPOON;
+        }
+
+        Unit unit = UNITS_BY_ALIAS.get(trimmed.toLowerCase(Locale.ENGLISH));
+
+        return unit == null ? OTHER : unit;
+    }
+
+    /**
+     * Returns the unit of the name stored with the ingredient. Unlike valueOf(), an unknown or renamed name does not fail the loading of the
+     * recipe.
+     *
+     * @param name the stored name of the unit
+     * @return the unit, or OTHER if the name is not a unit
+     */
+    public static Unit fromName(String name)
+    {
+        Unit unit = UNITS_BY_NAME.get(name);
+
+        return unit == null ? OTHER : unit;
+    }
+
+    public Family getFamily()
+    {
+        return this.family;
+    }
+
+    /**
+     * Returns the canonical abbreviation of the unit, e.g. "tbsp". Empty for OTHER, its measurement text is shown instead.
+     *
+     * @return String
+     */
+    public String getSymbol()
+    {
+        return this.aliases.length == 0 ? "" : this.aliases[0];
+    }
+
+    /**
+     * Returns true if a quantity of this unit can be converted to the given unit.
+     *
+     * @param other the unit to convert to
+     * @return boolean
+     */
+    public boolean isConvertibleTo(Unit other)
+    {
+        return this.family == other.family && this.family != Family.OTHER;
+    }
+
+    /**
+     * Returns the quantity in the base unit of the family: milliliters for volumes and grams for masses. The quantity of OTHER is unchanged.
+     * Stored with the ingredient, so quantities of the same family can be summed in SQL.
+     *
+     * @param quantity the quantity in this unit
+     * @return double
+     */
+    public double toBaseQuantity(double quantity)
+    {
+        return quantity * this.baseFactor;
+    }
+
+    /**
+     * Returns the quantity in this unit of the given quantity in the base unit of the family, the inverse of {@link #toBaseQuantity(double)}.
+     *
+     * @param baseQuantity the quantity in the base unit of the family
+     * @return double
+     */
+    public double fromBaseQuantity(double baseQuantity)
+    {
+        return baseQuantity / this.baseFactor;
+    }
+}
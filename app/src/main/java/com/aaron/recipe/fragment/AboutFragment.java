@@ -23,6 +23,8 @@ import com.aaron.recipe.model.RecipeManager;
 
 import java.util.Map;
 
+import io.reactivex.disposables.CompositeDisposable;
+
 import static com.aaron.recipe.bean.DataKey.EXTRA_SETTINGS;
 import static com.aaron.recipe.model.RecipeManager.DATE_FORMAT_DATABASE;
 
@@ -36,6 +38,7 @@ public class AboutFragment extends Fragment implements Backable
 
     private RecipeManager recipeManager;
     private Settings settings;
+    private final CompositeDisposable disposables = new CompositeDisposable();
 
     /**
      * Initializes non-fragment user interface.
@@ -79,29 +82,42 @@ public class AboutFragment extends Fragment implements Backable
         final TextView buildNumberTextView = view.findViewById(R.id.text_build_number);
         buildNumberTextView.setText(buildNumber);
 
-        String lastUpdated = this.recipeManager.getLastUpdated(DATE_FORMAT_DATABASE);
         TextView lastUpdatedTextView = view.findViewById(R.id.text_last_updated);
-        lastUpdatedTextView.setText(lastUpdated);
+        this.disposables.add(this.recipeManager.loadLastUpdated(DATE_FORMAT_DATABASE).subscribe(lastUpdatedTextView::setText, this::logLoadError));
 
-        initializeRecipeCount(view);
+        GridLayout grid = view.findViewById(R.id.gridlayout_count);
+        this.disposables.add(this.recipeManager.loadRecipesCount().subscribe(recipesCount -> initializeRecipeCount(grid, recipesCount), this::logLoadError));
 
         return view;
     }
 
+    @Override
+    public void onDestroyView()
+    {
+        super.onDestroyView();
+        this.disposables.clear();
+    }
+
+    private void logLoadError(Throwable e)
+    {
+        LogsManager.log(CLASS_NAME, "onCreateView", "Error loading recipes information. Error: " + e.getMessage(), e);
+    }
+
     private void initializeView(View view)
     {
         view.setFocusableInTouchMode(true);
         view.requestFocus();
         view.setOnKeyListener(new BackButtonListener(this));
-        view.setOnLongClickListener(new DeleteLongClickListener(this, recipeManager, this::setFragmentActivityResult));
+
+        DeleteLongClickListener deleteLongClickListener = new DeleteLongClickListener(this, recipeManager, this::setFragmentActivityResult);
+        this.disposables.add(deleteLongClickListener);
+        view.setOnLongClickListener(deleteLongClickListener);
     }
 
-    private void initializeRecipeCount(View view)
+    private void initializeRecipeCount(GridLayout grid, Map<String, Integer> recipesCount)
     {
-        GridLayout grid = view.findViewById(R.id.gridlayout_count);
         grid.setColumnCount(RECIPE_COUNT_COLUMNS);
 
-        Map<String, Integer> recipesCount = this.recipeManager.getRecipesCount();
         int gridRowCount = recipesCount.size();
         grid.setRowCount(gridRowCount);
 
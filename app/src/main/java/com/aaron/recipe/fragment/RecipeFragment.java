@@ -5,26 +5,31 @@ import android.app.Activity;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.v4.app.Fragment;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.util.Log;
-import android.util.TypedValue;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuInflater;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.LinearLayout;
-import android.widget.ScrollView;
-import android.widget.TextView;
 
 import com.aaron.recipe.R;
-import com.aaron.recipe.bean.Ingredient;
+import com.aaron.recipe.activity.RecipeActivity;
+import com.aaron.recipe.adapter.RecipeDetailAdapter;
 import com.aaron.recipe.bean.Recipe;
 import com.aaron.recipe.bean.Settings;
 import com.aaron.recipe.model.LogsManager;
+import com.aaron.recipe.model.RecipeCache;
+import com.aaron.recipe.model.RecipeManager;
 
-import java.util.ArrayList;
+import io.reactivex.Single;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
 
-import static android.widget.LinearLayout.LayoutParams;
-import static com.aaron.recipe.bean.DataKey.EXTRA_PAGE;
-import static com.aaron.recipe.bean.DataKey.EXTRA_RECIPE_LIST;
+import static com.aaron.recipe.bean.DataKey.EXTRA_RECIPE_ID;
+import static com.aaron.recipe.bean.DataKey.EXTRA_SERVINGS;
 import static com.aaron.recipe.bean.DataKey.EXTRA_SETTINGS;
 
 /**
@@ -35,34 +40,36 @@ public class RecipeFragment extends Fragment
     public static final String CLASS_NAME = RecipeFragment.class.getSimpleName();
 
     private Settings settings;
+    private int recipeId;
     private Recipe recipe;
+    // Zero shows the recipe's own servings
+    private int servings;
+    private RecipeDetailAdapter adapter;
+    private final CompositeDisposable disposables = new CompositeDisposable();
 
     /**
      * Creates a new RecipeFragment instance and stores the passed Recipe data as arguments. Note: Android will call no-argument constructor of a fragment
      * when it decides to recreate the fragment; hence, overloading a fragment constructor for data passing will not be able to save the passed data. That
      * is why this static initializer is used. There is also no way to pass data to RecipePageAdapter through savedInstanceState intent, that is why we
-     * pass data through instance creation.
+     * pass data through instance creation. Only the recipe id is passed, the recipe is resolved from {@link RecipeCache}.
      *
-     * @param page the page
-     * @param recipeList the recipe list
+     * @param recipeId the id of the recipe
      * @param settings the settings
      */
-    public static RecipeFragment newInstance(int page, final ArrayList<Recipe> recipeList, final Settings settings)
+    public static RecipeFragment newInstance(int recipeId, final Settings settings)
     {
         Bundle bundle = new Bundle();
-        bundle.putInt(EXTRA_PAGE.toString(), page);
-        bundle.putParcelableArrayList(EXTRA_RECIPE_LIST.toString(), recipeList);
+        bundle.putInt(EXTRA_RECIPE_ID.toString(), recipeId);
         bundle.putParcelable(EXTRA_SETTINGS.toString(), settings);
 
         RecipeFragment recipeFragment = new RecipeFragment();
         recipeFragment.setArguments(bundle);
 
-        LogsManager.log(CLASS_NAME, "newInstance", "page=" + page);
+        LogsManager.log(CLASS_NAME, "newInstance", "recipeId=" + recipeId);
 
         return recipeFragment;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void onCreate(Bundle savedInstanceState)
     {
@@ -74,6 +81,11 @@ public class RecipeFragment extends Fragment
             parseBundleArguments(args);
         }
 
+        if(savedInstanceState != null)
+        {
+            this.servings = savedInstanceState.getInt(EXTRA_SERVINGS.toString());
+        }
+
         setHasOptionsMenu(true);
         initializeActionBar();
 
@@ -84,9 +96,10 @@ public class RecipeFragment extends Fragment
     {
         this.settings = args.getParcelable(EXTRA_SETTINGS.toString());
 
-        int page = args.getInt(EXTRA_PAGE.toString());
-        ArrayList<Recipe> recipeList = args.getParcelableArrayList(EXTRA_RECIPE_LIST.toString());
-        this.recipe = recipeList == null ? null : recipeList.get(page);
+        // Usually only the recipe summary is cached, the ingredients and instructions are loaded when the view is created.
+        // Not cached if the process was restarted, then the whole recipe is loaded from disk.
+        this.recipeId = args.getInt(EXTRA_RECIPE_ID.toString());
+        this.recipe = RecipeCache.getRecipe(this.recipeId);
     }
 
     private void initializeActionBar()
@@ -105,72 +118,117 @@ public class RecipeFragment extends Fragment
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup parent, Bundle savedInstanceState)
     {
-        LinearLayout linearLayout = (LinearLayout) inflater.inflate(R.layout.fragment_recipe, parent, false);
+        RecyclerView recyclerView = (RecyclerView) inflater.inflate(R.layout.fragment_recipe, parent, false);
+        recyclerView.setHasFixedSize(true);
+        recyclerView.setLayoutManager(new LinearLayoutManager(getActivity()));
 
-        LayoutParams layoutParamsLabel = new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
-        layoutParamsLabel.setMargins(0, 10, 5, 0);
-
-        LayoutParams layoutParamsListLabel = new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
-        layoutParamsListLabel.setMargins(0, 30, 0, 5);
+        // The pages share their recycled rows, the rows of a destroyed page are reused by the next created page
+        Activity activity = getActivity();
+        if(activity instanceof RecipeActivity)
+        {
+            recyclerView.setRecycledViewPool(((RecipeActivity) activity).getRecipeLinePool());
+        }
 
-        initializeRecipeViewDetails(linearLayout, layoutParamsLabel);
-        initializeIngredientsAndInstructionsView(linearLayout, layoutParamsLabel, layoutParamsListLabel);
+        RecipeDetailAdapter adapter = new RecipeDetailAdapter(activity, this.settings);
+        adapter.setServings(this.servings);
+        recyclerView.setAdapter(adapter);
+        this.adapter = adapter;
 
-        // Add newline at the end of the page
-        linearLayout.addView(createTextView(""), layoutParamsLabel);
+        boolean recipeCached = this.recipe != null;
+        if(recipeCached)
+        {
+            adapter.setRecipe(this.recipe);
+        }
 
-        ScrollView scroll = new ScrollView(getActivity());
-        scroll.addView(linearLayout);
+        RecipeManager recipeManager = new RecipeManager(getContext());
+        Single<Recipe> loadRecipe = recipeCached ? recipeManager.loadRecipeDetails(this.recipe) : recipeManager.loadRecipe(this.recipeId);
+        Disposable disposable = loadRecipe
+                .subscribe(recipeWithDetails ->
+                        {
+                            this.recipe = recipeWithDetails;
+                            adapter.setRecipe(recipeWithDetails);
+                        },
+                        e -> LogsManager.log(CLASS_NAME, "onCreateView", "Error loading recipe details. Error: " + e.getMessage(), e));
+        this.disposables.add(disposable);
 
         Log.d(LogsManager.TAG, CLASS_NAME + ": onCreateView.");
 
-        return scroll;
+        return recyclerView;
+    }
+
+    @Override
+    public void onDestroyView()
+    {
+        super.onDestroyView();
+        this.disposables.clear();
+        this.adapter = null;
     }
 
-    private void initializeRecipeViewDetails(LinearLayout linearLayout, LayoutParams layoutParamsLabel)
+    @Override
+    public void onSaveInstanceState(@NonNull Bundle outState)
     {
-        linearLayout.addView(createTextView("Title: " + this.recipe.getTitle()), layoutParamsLabel);
-        linearLayout.addView(createTextView("Category: " + this.recipe.getCategory()), layoutParamsLabel);
-        linearLayout.addView(createTextView("Preparation Time: " + this.recipe.getPreparationTimeString()), layoutParamsLabel);
-        linearLayout.addView(createTextView("Servings: " + this.recipe.getServings()), layoutParamsLabel);
-        linearLayout.addView(createTextView("Description: " + this.recipe.getDescription()), layoutParamsLabel);
+        super.onSaveInstanceState(outState);
+        outState.putInt(EXTRA_SERVINGS.toString(), this.servings);
     }
 
-    private void initializeIngredientsAndInstructionsView(LinearLayout linearLayout, LayoutParams layoutParamsLabel, LayoutParams layoutParamsListLabel)
+    /**
+     * Inflates the servings menu items in the action bar. Only shown for the current page.
+     */
+    @Override
+    public void onCreateOptionsMenu(Menu menu, MenuInflater inflater)
     {
-        linearLayout.addView(createTextView("Ingredients:"), layoutParamsListLabel);
+        super.onCreateOptionsMenu(menu, inflater);
+        inflater.inflate(R.menu.recipe_servings, menu);
+    }
 
-        ArrayList<Ingredient> ingredientsList = recipe.getIngredients().getIngredientsList();
-        for(Ingredient ingredient : ingredientsList)
+    /**
+     * Scales the ingredients to one serving less or more.
+     */
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item)
+    {
+        switch(item.getItemId())
         {
-            linearLayout.addView(createTextView(ingredient.toString()), layoutParamsLabel);
+            case R.id.menu_fewer_servings:
+            {
+                showServings(getShownServings() - 1);
+                return true;
+            }
+            case R.id.menu_more_servings:
+            {
+                showServings(getShownServings() + 1);
+                return true;
+            }
+            default:
+            {
+                return super.onOptionsItemSelected(item);
+            }
         }
+    }
 
-        linearLayout.addView(createTextView("Instructions:"), layoutParamsListLabel);
-
-        int count = 1;
-        ArrayList<String> instructionsList = recipe.getInstructions().getInstructionsList();
-        for(String instruction : instructionsList)
+    private int getShownServings()
+    {
+        if(this.servings > 0)
         {
-            linearLayout.addView(createTextView(count + ". " + instruction), layoutParamsLabel);
-            count++;
+            return this.servings;
         }
+
+        return this.recipe == null ? 0 : this.recipe.getServings();
     }
 
-    /**
-     * Creates a TextView with the given text and current selected settings.
-     *
-     * @param text
-     *            the text of the TextView to create
-     * @return TextView
-     */
-    private TextView createTextView(final String text)
+    private void showServings(int servings)
     {
-        TextView textView = new TextView(getActivity());
-        textView.setText(text);
-        textView.setTextSize(TypedValue.COMPLEX_UNIT_SP, this.settings.getFontSize());
-        textView.setTypeface(this.settings.getTypeface(false));
+        if(servings < 1 || this.recipe == null || this.recipe.getServings() < 1)
+        {
+            return;
+        }
+
+        this.servings = servings;
+        if(this.adapter != null)
+        {
+            this.adapter.setServings(servings);
+        }
 
-        return textView;
+        LogsManager.log(CLASS_NAME, "showServings", "recipeId=" + this.recipeId + " servings=" + servings);
     }
 }
@@ -1,9 +1,11 @@
 package com.aaron.recipe.fragment;
 
 import android.app.Activity;
-import android.app.ListFragment;
+import android.app.Fragment;
 import android.content.Intent;
 import android.os.Bundle;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -13,29 +15,34 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.EditText;
 import android.widget.ProgressBar;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import com.aaron.recipe.R;
 import com.aaron.recipe.activity.AboutActivity;
 import com.aaron.recipe.activity.LogsActivity;
 import com.aaron.recipe.activity.SettingsActivity;
+import com.aaron.recipe.activity.ShoppingListActivity;
 import com.aaron.recipe.adapter.RecipeListRowAdapter;
 import com.aaron.recipe.bean.IntentRequestCode;
 import com.aaron.recipe.bean.Recipe;
 import com.aaron.recipe.bean.Settings;
 import com.aaron.recipe.listener.RecipeSearchListener;
-import com.aaron.recipe.listener.ShowHideFastScrollListener;
 import com.aaron.recipe.model.CategoryManager;
 import com.aaron.recipe.model.LogsManager;
+import com.aaron.recipe.model.RecipeCache;
 import com.aaron.recipe.model.RecipeManager;
 
 import java.util.ArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import static com.aaron.recipe.bean.DataKey.EXTRA_RECIPE_LIST;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+
+import static com.aaron.recipe.bean.DataKey.EXTRA_RECIPE_IDS;
 import static com.aaron.recipe.bean.DataKey.EXTRA_SETTINGS;
 
-public class RecipeListFragment extends ListFragment
+public class RecipeListFragment extends Fragment
 {
     public static final String CLASS_NAME = RecipeListFragment.class.getSimpleName();
     private static final AtomicBoolean IS_UPDATING = new AtomicBoolean(false);
@@ -46,11 +53,13 @@ public class RecipeListFragment extends ListFragment
     private RecipeManager recipeManager;
     private RecipeListRowAdapter recipeAdapter;
     private ProgressBar updateProgressBar;
+    private TextView emptyListText;
+    private RecipeSearchListener searchListener;
+    private final CompositeDisposable disposables = new CompositeDisposable();
 
     /**
      * Initializes non-fragment user interface.
      */
-    @SuppressWarnings("unchecked")
     @Override
     public void onCreate(Bundle savedInstanceState)
     {
@@ -60,8 +69,12 @@ public class RecipeListFragment extends ListFragment
         {
             this.settings = savedInstanceState.getParcelable(EXTRA_SETTINGS.toString());
 
-            // But we are sure of its type
-            this.list = savedInstanceState.getParcelableArrayList(EXTRA_RECIPE_LIST.toString());
+            // Only the ids are saved, the list is loaded again from disk if the recipes are no longer cached, e.g. after a process restart
+            int[] recipeIds = savedInstanceState.getIntArray(EXTRA_RECIPE_IDS.toString());
+            if(recipeIds != null)
+            {
+                this.list = RecipeCache.getRecipes(recipeIds);
+            }
         }
 
         if(this.settings == null)
@@ -72,13 +85,38 @@ public class RecipeListFragment extends ListFragment
         this.categoryManager = new CategoryManager(getContext());
         this.recipeManager = new RecipeManager(getContext());
 
-        if(this.list == null)
+        boolean listNotRestored = this.list == null;
+        if(listNotRestored)
         {
-            this.list = this.recipeManager.getRecipesFromDisk(this.settings.getCategory());
+            this.list = new ArrayList<>();
         }
 
         this.recipeAdapter = new RecipeListRowAdapter(getActivity(), this.list, this.settings);
-        this.setListAdapter(this.recipeAdapter);
+        this.recipeAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver()
+        {
+            @Override
+            public void onChanged()
+            {
+                showEmptyListText();
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount)
+            {
+                showEmptyListText();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount)
+            {
+                showEmptyListText();
+            }
+        });
+
+        if(listNotRestored)
+        {
+            this.loadRecipeList();
+        }
 
         setHasOptionsMenu(true);
 
@@ -93,23 +131,28 @@ public class RecipeListFragment extends ListFragment
     {
         View view = inflater.inflate(R.layout.fragment_recipe_list, parent, false);
 
+        RecyclerView recipeListView = view.findViewById(R.id.recyclerview_recipe_list);
+        recipeListView.setLayoutManager(new LinearLayoutManager(getActivity()));
+        recipeListView.setHasFixedSize(true);
+        recipeListView.setAdapter(this.recipeAdapter);
+
         updateProgressBar = view.findViewById(R.id.progress_bar_update);
+        emptyListText = view.findViewById(R.id.text_empty_list);
+        showEmptyListText();
         Log.d(LogsManager.TAG, CLASS_NAME + ": onCreateView.");
 
         return view;
     }
 
     /**
-     * Called after onCreateView(), sets the action listeners of the UI.
+     * Shows the empty list text only if there is no recipe to show.
      */
-    @Override
-    public void onActivityCreated(Bundle savedInstanceState)
+    private void showEmptyListText()
     {
-        super.onActivityCreated(savedInstanceState);
-
-        getListView().setOnScrollListener(new ShowHideFastScrollListener());
-
-        Log.d(LogsManager.TAG, CLASS_NAME + ": onActivityCreated.");
+        if(emptyListText != null)
+        {
+            emptyListText.setVisibility(this.recipeAdapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+        }
     }
 
     /**
@@ -121,7 +164,7 @@ public class RecipeListFragment extends ListFragment
         super.onSaveInstanceState(outState);
 
         outState.putParcelable(EXTRA_SETTINGS.toString(), this.settings);
-        outState.putParcelableArrayList(EXTRA_RECIPE_LIST.toString(), this.list);
+        outState.putIntArray(EXTRA_RECIPE_IDS.toString(), RecipeCache.toIds(this.list));
 
         Log.d(LogsManager.TAG, CLASS_NAME + ": onSaveInstanceState");
     }
@@ -145,30 +188,38 @@ public class RecipeListFragment extends ListFragment
         {
             this.settings = data.getParcelableExtra(EXTRA_SETTINGS.toString());
 
-            this.list = this.recipeManager.getRecipesFromDisk(this.settings.getCategory());
-            this.updateListOnUiThread(this.list);
+            this.loadRecipeList();
         }
     }
 
     /**
-     * Updates the list view on UI thread.
+     * Loads the recipes of the selected category in the background, then updates the list view.
+     * Also called after a sync, it only returns the changed recipes and may have deleted some, so the list is reloaded from disk.
+     */
+    private void loadRecipeList()
+    {
+        Disposable disposable = this.recipeManager.loadRecipeSummaries(this.settings.getCategory())
+                .subscribe(this::updateList,
+                        e -> LogsManager.log(CLASS_NAME, "loadRecipeList", "Error loading recipes. Error: " + e.getMessage(), e));
+
+        this.disposables.add(disposable);
+    }
+
+    /**
+     * Updates the list view, must be called on the UI thread.
      *
      * @param list
      *            the new list
      */
-    private void updateListOnUiThread(final ArrayList<Recipe> list)
+    private void updateList(final ArrayList<Recipe> list)
     {
-        if(list == null)
-        {
-            return;
-        }
-
-        Runnable updateListInAdapter = () -> recipeAdapter.update(list);
-        getActivity().runOnUiThread(updateListInAdapter);
+        this.list = list;
+        this.recipeAdapter.update(list);
     }
 
     /**
-     * Inflates the menu items in the action bar.
+     * Inflates the menu items in the action bar. The menu is created again when invalidated, the search listener of the previous menu is
+     * disposed.
      */
     @Override
     public void onCreateOptionsMenu(Menu menu, MenuInflater inflater)
@@ -182,7 +233,15 @@ public class RecipeListFragment extends ListFragment
         // Get the edit text from the action view
         EditText searchTextfield = view.findViewById(R.id.edittext_search_field);
         searchTextfield.setHint(R.string.hint_recipe);
-        searchTextfield.addTextChangedListener(new RecipeSearchListener(this.recipeAdapter));
+
+        if(this.searchListener != null)
+        {
+            this.disposables.remove(this.searchListener);
+        }
+
+        this.searchListener = new RecipeSearchListener(this.recipeAdapter, this.recipeManager);
+        searchTextfield.addTextChangedListener(this.searchListener);
+        this.disposables.add(this.searchListener);
     }
 
     /**
@@ -212,6 +271,11 @@ public class RecipeListFragment extends ListFragment
 
                 return true;
             }
+            case R.id.menu_shopping_list:
+            {
+                startShoppingListActivity();
+                return true;
+            }
             case R.id.menu_settings:
             {
                 startNextActivityWithExtraSettingsData(SettingsActivity.class, IntentRequestCode.SETTINGS);
@@ -242,6 +306,13 @@ public class RecipeListFragment extends ListFragment
         RecipeManager.clearRecipesWebObserver();
     }
 
+    @Override
+    public void onDestroy()
+    {
+        super.onDestroy();
+        this.disposables.clear();
+    }
+
     private void preUpdating()
     {
         IS_UPDATING.set(true);
@@ -251,7 +322,7 @@ public class RecipeListFragment extends ListFragment
     public void updateRecipes()
     {
         CategoryManager.doneUpdating();
-        recipeManager.updateRecipesFromWeb(this::doneUpdating, this::updateRecipeList);
+        recipeManager.updateRecipesFromWeb(this::doneUpdating, this::loadRecipeList);
     }
 
     private void doneUpdating()
@@ -260,13 +331,15 @@ public class RecipeListFragment extends ListFragment
         updateProgressBar.setVisibility(View.INVISIBLE);
     }
 
-    private void updateRecipeList(ArrayList<Recipe> recipeList)
+    /**
+     * Opens the shopping list of the shown recipes, so the recipes are selected by the category and the search.
+     */
+    private void startShoppingListActivity()
     {
-        if(recipeList != null && !recipeList.isEmpty())
-        {
-            this.list = recipeList;
-            updateListOnUiThread(this.list);
-        }
+        Intent intent = new Intent(getActivity(), ShoppingListActivity.class);
+        intent.putExtra(EXTRA_SETTINGS.toString(), this.settings);
+        intent.putExtra(EXTRA_RECIPE_IDS.toString(), this.recipeAdapter.getRecipeIds());
+        startActivityForResult(intent, IntentRequestCode.SHOPPING_LIST.getCode());
     }
 
     private void startNextActivityWithExtraSettingsData(Class<? extends Activity> nextActivityClass, IntentRequestCode requestCode)
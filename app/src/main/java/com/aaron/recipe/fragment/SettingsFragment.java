@@ -46,6 +46,7 @@ public class SettingsFragment extends Fragment implements Backable
 
     private ImageView categoryImageView;
     private EditText serverURLEditText;
+    private ServerUrlTextListener serverUrlTextListener;
 
     private CategoryManager categoryManager;
 
@@ -135,7 +136,8 @@ public class SettingsFragment extends Fragment implements Backable
         this.fontSizeSpinner.setSelection(this.settings.getFontSizeIndex());
 
         this.serverURLEditText = view.findViewById(R.id.edittext_server_url);
-        this.serverURLEditText.addTextChangedListener(new ServerUrlTextListener(this.settings));
+        this.serverUrlTextListener = new ServerUrlTextListener(this.settings);
+        this.serverURLEditText.addTextChangedListener(this.serverUrlTextListener);
         String serverUrl = getServerUrl();
         this.serverURLEditText.setText(serverUrl);
         this.serverURLEditText.setOnKeyListener(backButtonListener);
@@ -164,6 +166,13 @@ public class SettingsFragment extends Fragment implements Backable
         CategoryManager.clearCategoriesWebObserver();
     }
 
+    @Override
+    public void onDestroyView()
+    {
+        super.onDestroyView();
+        this.serverUrlTextListener.dispose();
+    }
+
     /**
      * This method is called when a user selects an item in the menu bar. Home button. the fragment of selected item.
      */
@@ -0,0 +1,172 @@
+package com.aaron.recipe.fragment;
+
+import android.app.ActionBar;
+import android.app.Activity;
+import android.app.Fragment;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.aaron.recipe.R;
+import com.aaron.recipe.adapter.ShoppingListAdapter;
+import com.aaron.recipe.bean.Settings;
+import com.aaron.recipe.listener.BackButtonListener;
+import com.aaron.recipe.model.LogsManager;
+import com.aaron.recipe.model.ShoppingListManager;
+
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+
+import static com.aaron.recipe.bean.DataKey.EXTRA_RECIPE_IDS;
+import static com.aaron.recipe.bean.DataKey.EXTRA_SETTINGS;
+
+/**
+ * The shopping list fragment, shows the merged ingredients of the selected recipes.
+ */
+public class ShoppingListFragment extends Fragment implements Backable
+{
+    public static final String CLASS_NAME = ShoppingListFragment.class.getSimpleName();
+    // The rows are shown in batches while the ingredients are read, instead of notifying each row
+    private static final int SHOWN_INGREDIENTS_BATCH = 20;
+
+    private ShoppingListAdapter shoppingListAdapter;
+    private TextView emptyListText;
+    private Settings settings;
+    private Disposable shoppingList = Disposables.disposed();
+
+    /**
+     * Initializes non-fragment user interface, and starts reading the shopping list.
+     */
+    @Override
+    public void onCreate(Bundle savedInstanceState)
+    {
+        super.onCreate(savedInstanceState);
+
+        setHasOptionsMenu(true);
+        getActivity().setTitle(R.string.menu_shopping_list);
+        initializeActionBar();
+
+        Intent intent = getActivity().getIntent();
+        this.settings = intent.getParcelableExtra(EXTRA_SETTINGS.toString());
+        int[] recipeIds = intent.getIntArrayExtra(EXTRA_RECIPE_IDS.toString());
+
+        this.shoppingListAdapter = new ShoppingListAdapter(getActivity(), this.settings);
+        this.loadShoppingList(recipeIds == null ? new int[0] : recipeIds);
+
+        Log.d(LogsManager.TAG, CLASS_NAME + ": onCreate.");
+    }
+
+    private void initializeActionBar()
+    {
+        ActionBar actionBar = getActivity().getActionBar();
+        if(actionBar != null)
+        {
+            actionBar.setDisplayHomeAsUpEnabled(true);
+        }
+    }
+
+    /**
+     * Reads the shopping list in the background, the rows are appended while it is read.
+     *
+     * @param recipeIds the ids of the selected recipes
+     */
+    private void loadShoppingList(final int[] recipeIds)
+    {
+        this.shoppingList = new ShoppingListManager(getActivity()).loadShoppingList(recipeIds)
+                .buffer(SHOWN_INGREDIENTS_BATCH)
+                .doOnComplete(this::showEmptyListText)
+                .subscribe(this.shoppingListAdapter::addIngredients,
+                        e -> LogsManager.log(CLASS_NAME, "loadShoppingList", "Error loading the shopping list. Error: " + e.getMessage(), e));
+    }
+
+    /**
+     * Initializes shopping list fragment user interface.
+     */
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup parent, Bundle savedInstanceState)
+    {
+        View view = inflater.inflate(R.layout.fragment_shopping_list, parent, false);
+        view.setFocusableInTouchMode(true);
+        view.requestFocus();
+        view.setOnKeyListener(new BackButtonListener(this));
+
+        RecyclerView shoppingListView = view.findViewById(R.id.recyclerview_shopping_list);
+        shoppingListView.setLayoutManager(new LinearLayoutManager(getActivity()));
+        shoppingListView.setAdapter(this.shoppingListAdapter);
+
+        this.emptyListText = view.findViewById(R.id.text_empty_shopping_list);
+        if(this.shoppingList.isDisposed())
+        {
+            showEmptyListText();
+        }
+
+        Log.d(LogsManager.TAG, CLASS_NAME + ": onCreateView.");
+
+        return view;
+    }
+
+    /**
+     * Shows the empty list text only if the shopping list is read and there is no ingredient to show.
+     */
+    private void showEmptyListText()
+    {
+        if(this.emptyListText != null)
+        {
+            this.emptyListText.setVisibility(this.shoppingListAdapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+        }
+    }
+
+    /**
+     * This method is called when a user selects an item in the menu bar. Home button.
+     */
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item)
+    {
+        switch(item.getItemId())
+        {
+            case android.R.id.home:
+            {
+                this.setFragmentActivityResult();
+                return true;
+            }
+            default:
+            {
+                return super.onOptionsItemSelected(item);
+            }
+        }
+    }
+
+    @Override
+    public void onDestroy()
+    {
+        super.onDestroy();
+        this.shoppingList.dispose();
+    }
+
+    @Override
+    public void setActivityResultOnBackEvent()
+    {
+        setFragmentActivityResult();
+    }
+
+    /**
+     * Sets the current settings and sends it to the main activity fragment.
+     */
+    private void setFragmentActivityResult()
+    {
+        Intent data = new Intent();
+
+        data.putExtra(EXTRA_SETTINGS.toString(), this.settings);
+        getActivity().setResult(Activity.RESULT_OK, data);
+        getActivity().finish();
+
+        LogsManager.log(CLASS_NAME, "setFragmentActivityResult", "Current settings -> " + this.settings);
+    }
+}
@@ -11,10 +11,14 @@ import com.aaron.recipe.model.RecipeManager;
 
 import java.lang.ref.WeakReference;
 
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+
 /**
- * Handles the deleting of all Recipe upon long click/press.
+ * Handles the deleting of all Recipe upon long click/press. Disposed with the view of the fragment, so a delete finishing after the view is
+ * destroyed does not call back into the fragment.
  */
-public class DeleteLongClickListener implements View.OnLongClickListener
+public class DeleteLongClickListener implements View.OnLongClickListener, Disposable
 {
     private static final String YES = "Yes";
     private static final String No = "No";
@@ -22,6 +26,7 @@ public class DeleteLongClickListener implements View.OnLongClickListener
     private RecipeManager recipeManager;
     private WeakReference<AboutFragment> fragmentRef;
     private Action postDeleteAction;
+    private final CompositeDisposable deletes = new CompositeDisposable();
 
     /**
      * Default Constructor.
@@ -73,8 +78,8 @@ public class DeleteLongClickListener implements View.OnLongClickListener
     {
         logDialogAction(YES);
 
-        recipeManager.deleteRecipeFromDisk();
-        postDeleteAction.execute();
+        this.deletes.add(recipeManager.deleteRecipes().subscribe(postDeleteAction::execute,
+                e -> LogsManager.log(AboutFragment.CLASS_NAME, "promptUserOnDelete", "Error deleting recipes. Error: " + e.getMessage(), e)));
     }
 
     private void noButtonAction(DialogInterface dialog, int id)
@@ -88,4 +93,16 @@ public class DeleteLongClickListener implements View.OnLongClickListener
     {
         LogsManager.log(AboutFragment.CLASS_NAME, "promptUserOnDelete", action + "  selected.");
     }
-}
\ No newline at end of file
+
+    @Override
+    public void dispose()
+    {
+        this.deletes.dispose();
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.deletes.isDisposed();
+    }
+}
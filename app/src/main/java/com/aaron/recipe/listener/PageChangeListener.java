@@ -39,9 +39,16 @@ public class PageChangeListener implements OnPageChangeListener
         }
     }
 
+    /**
+     * Loads the neighboring recipes in the background, so they are shown right away when swiped to.
+     */
     @Override
     public void onPageSelected(int position)
     {
-        // No Action
+        RecipeActivity activity = this.activityRef.get();
+        if(activity != null)
+        {
+            activity.prefetchRecipesAroundPage(position);
+        }
     }
 }
\ No newline at end of file
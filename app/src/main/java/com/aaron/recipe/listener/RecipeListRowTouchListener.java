@@ -2,6 +2,7 @@ package com.aaron.recipe.listener;
 
 import android.app.Activity;
 import android.content.Intent;
+import android.support.v7.widget.RecyclerView;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.View.OnTouchListener;
@@ -10,13 +11,13 @@ import com.aaron.recipe.activity.RecipeActivity;
 import com.aaron.recipe.bean.IntentRequestCode;
 import com.aaron.recipe.bean.Recipe;
 import com.aaron.recipe.bean.Settings;
+import com.aaron.recipe.model.RecipeCache;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 
 import static com.aaron.recipe.bean.DataKey.EXTRA_PAGE;
-import static com.aaron.recipe.bean.DataKey.EXTRA_RECIPE;
-import static com.aaron.recipe.bean.DataKey.EXTRA_RECIPE_LIST;
+import static com.aaron.recipe.bean.DataKey.EXTRA_RECIPE_IDS;
 import static com.aaron.recipe.bean.DataKey.EXTRA_SETTINGS;
 
 /**
@@ -28,21 +29,16 @@ public class RecipeListRowTouchListener implements OnTouchListener
     private ArrayList<Recipe> recipeList;
     private Settings settings;
     private float historicX;
-    private Recipe recipe;
-    private int page;
 
     /**
-     * Default constructor.
-     *
-     * @param page the position of the selected recipe
+     * Default constructor. One listener is shared by all rows, the touched row's ViewHolder must be the tag of the touched view.
+     * The position of the row is read when the row is selected, because rows are moved without rebinding.
      */
-    public RecipeListRowTouchListener(Activity activity, ArrayList<Recipe> recipeList, Settings settings, final Recipe recipe, final int page)
+    public RecipeListRowTouchListener(Activity activity, ArrayList<Recipe> recipeList, Settings settings)
     {
         this.activityRef = new WeakReference<>(activity);
         this.recipeList = recipeList;
         this.settings = settings;
-        this.recipe = recipe;
-        this.page = page;
     }
 
     /**
@@ -68,7 +64,7 @@ public class RecipeListRowTouchListener implements OnTouchListener
                     boolean touchMovedLessThan10Pixels = Math.abs(this.historicX - event.getX()) < 15;
                     if(touchMovedLessThan10Pixels)
                     {
-                        startRecipeActivity(activity);
+                        startRecipeActivity(activity, (RecyclerView.ViewHolder) v.getTag());
                     }
                 }
 
@@ -86,12 +82,18 @@ public class RecipeListRowTouchListener implements OnTouchListener
         return true;
     }
 
-    private void startRecipeActivity(Activity activity)
+    private void startRecipeActivity(Activity activity, RecyclerView.ViewHolder holder)
     {
+        int page = holder.getAdapterPosition();
+        if(page == RecyclerView.NO_POSITION)
+        {
+            return;
+        }
+
         Intent intent = new Intent(activity, RecipeActivity.class);
-        intent.putExtra(EXTRA_PAGE.toString(), this.page);
-        intent.putExtra(EXTRA_RECIPE.toString(), this.recipe);
-        intent.putExtra(EXTRA_RECIPE_LIST.toString(), this.recipeList);
+        // Only the ids are passed, RecipeActivity resolves the recipes from the cache
+        intent.putExtra(EXTRA_PAGE.toString(), page);
+        intent.putExtra(EXTRA_RECIPE_IDS.toString(), RecipeCache.toIds(this.recipeList));
         intent.putExtra(EXTRA_SETTINGS.toString(), this.settings);
         activity.startActivityForResult(intent, IntentRequestCode.RECIPE.getCode());
     }
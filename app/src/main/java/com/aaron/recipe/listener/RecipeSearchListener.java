@@ -6,36 +6,54 @@ import android.text.TextWatcher;
 import com.aaron.recipe.adapter.RecipeListRowAdapter;
 import com.aaron.recipe.bean.Recipe;
 import com.aaron.recipe.model.LogsManager;
+import com.aaron.recipe.model.RecipeManager;
+import com.aaron.recipe.model.RecipeTitleIndex;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
 
-import static java.util.Arrays.asList;
-import static java.util.Arrays.stream;
-import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
-public class RecipeSearchListener implements TextWatcher
+/**
+ * Filters the recipe list while the user types. The keystrokes are debounced, a new search cancels the previous one, and the list is searched
+ * on a computation thread. The adapter is updated once per search result.
+ */
+public class RecipeSearchListener implements TextWatcher, Disposable
 {
     public static final String CLASS_NAME = RecipeSearchListener.class.getSimpleName();
-    private static final Set<String> IGNORABLE_WORDS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    static final long DEBOUNCE_MILLIS = 250;
 
     private RecipeListRowAdapter adapter;
+    private RecipeManager recipeManager;
+    private final PublishSubject<String> searches = PublishSubject.create();
+    private final Disposable searchResults;
 
-    static
-    {
-        IGNORABLE_WORDS.addAll(asList("a", "an", "and", "at", "by", "in", "on", "the", "with"));
-    }
-
-    public RecipeSearchListener(RecipeListRowAdapter adapter)
+    public RecipeSearchListener(RecipeListRowAdapter adapter, RecipeManager recipeManager)
     {
         this.adapter = adapter;
+        this.recipeManager = recipeManager;
+
+        this.searchResults = this.searches
+                .debounce(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS, Schedulers.computation())
+                .switchMap(this::search)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(this::showRecipes,
+                        e -> LogsManager.log(CLASS_NAME, "searchResults", "Error searching recipes. Error: " + e.getMessage(), e));
     }
 
     /**
-     * Filters the recipe list in the adapter with the given searched text. Only shows recipe title that starts with the searched text.
+     * Searches the recipe list with the given searched text, once the user stopped typing.
      *
      * @param editable the searched word
      */
@@ -43,44 +61,80 @@ public class RecipeSearchListener implements TextWatcher
     public void afterTextChanged(Editable editable)
     {
         String searched = editable.toString();
+        this.searches.onNext(searched.trim());
 
-        adapter.clear();
-        String searchedText = searched.trim();
+        LogsManager.log(CLASS_NAME, "afterTextChanged", "searched=" + searched);
+    }
+
+    /**
+     * First emits the recipe titles that start with the searched text, then appends the recipes found by the full-text search of their
+     * description, ingredients and instructions.
+     *
+     * @param searchedText the trimmed searched text
+     * @return Observable of the recipes to show
+     */
+    private Observable<List<Recipe>> search(String searchedText)
+    {
+        RecipeTitleIndex titleIndex = this.adapter.getTitleIndex();
 
         if(isBlank(searchedText))
         {
-            adapter.addAll(adapter.getRecipeListAllUnfiltered());
+            return Observable.just(titleIndex.getRecipes());
         }
-        else
-        {
-            filterRecipeByTitle(searchedText);
-        }
-
-        LogsManager.log(CLASS_NAME, "afterTextChanged", "New list size -> " + adapter.getCount());
 
-        LogsManager.log(CLASS_NAME, "afterTextChanged", "searched=" + searched);
+        return Observable.fromCallable(() -> titleIndex.search(searchedText))
+                .subscribeOn(Schedulers.computation())
+                .concatMap(titleMatches -> Observable.just(titleMatches)
+                        .concatWith(this.recipeManager.loadSearchedRecipeIds(searchedText)
+                                .map(recipeIds -> appendSearchedRecipes(titleIndex.getRecipes(), titleMatches, recipeIds))
+                                .toObservable()));
     }
 
-    private void filterRecipeByTitle(String searchedText)
+    /**
+     * Appends the searched recipes that are not in the title matches, in the order of the search result.
+     *
+     * @param recipes      all recipes of the list
+     * @param titleMatches the recipes with a title that starts with the searched text
+     * @param recipeIds    the ids of the searched recipes, best match first
+     * @return the title matches followed by the searched recipes
+     */
+    private List<Recipe> appendSearchedRecipes(List<Recipe> recipes, List<Recipe> titleMatches, List<Integer> recipeIds)
     {
-        adapter.getRecipeListAllUnfiltered().stream().filter(r -> recipeTitleStartsWithSearchedText(searchedText, r)).forEach(adapter::add);
-    }
+        Map<Integer, Recipe> recipesById = new HashMap<>();
+        for(Recipe recipe : recipes)
+        {
+            recipesById.put(recipe.getId(), recipe);
+        }
 
-    private boolean recipeTitleStartsWithSearchedText(String searchedText, Recipe recipe)
-    {
-        String search = searchedText.toLowerCase(Locale.getDefault());
-        String title = recipe.getTitle().toLowerCase(Locale.getDefault());
-        List<String> titleWordParts = stream(title.split(" ")).filter(s -> !IGNORABLE_WORDS.contains(s)).collect(toList());
+        List<Recipe> matches = new ArrayList<>(titleMatches);
+        Set<Integer> matchedIds = new HashSet<>();
+        for(Recipe recipe : titleMatches)
+        {
+            matchedIds.add(recipe.getId());
+        }
 
-        for(String word : titleWordParts)
+        for(Integer recipeId : recipeIds)
         {
-            if(word.startsWith(search))
+            Recipe recipe = recipesById.get(recipeId);
+            if(recipe != null && matchedIds.add(recipeId))
             {
-                return true;
+                matches.add(recipe);
             }
         }
 
-        return false;
+        return matches;
+    }
+
+    /**
+     * Replaces the shown recipes, only the changed rows are notified. Must be called on the UI thread.
+     *
+     * @param recipes the recipes to show
+     */
+    private void showRecipes(List<Recipe> recipes)
+    {
+        this.adapter.showRecipes(recipes);
+
+        LogsManager.log(CLASS_NAME, "showRecipes", "New list size -> " + recipes.size());
     }
 
     @Override
@@ -94,4 +148,19 @@ public class RecipeSearchListener implements TextWatcher
     {
         // No Action
     }
-}
\ No newline at end of file
+
+    /**
+     * Stops the search, the pending and running searches are cancelled.
+     */
+    @Override
+    public void dispose()
+    {
+        this.searchResults.dispose();
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.searchResults.isDisposed();
+    }
+}
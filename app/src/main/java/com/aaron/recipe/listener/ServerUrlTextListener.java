@@ -5,17 +5,39 @@ import android.text.TextWatcher;
 
 import com.aaron.recipe.bean.Settings;
 import com.aaron.recipe.model.HttpClient;
+import com.aaron.recipe.model.LogsManager;
 
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
-public class ServerUrlTextListener implements TextWatcher
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+
+/**
+ * Switches the server while the user types its address. The keystrokes are debounced, the server is only switched to a valid address that
+ * differs from the previous one.
+ */
+public class ServerUrlTextListener implements TextWatcher, Disposable
 {
+    public static final String CLASS_NAME = ServerUrlTextListener.class.getSimpleName();
+    static final long DEBOUNCE_MILLIS = 500;
     private static final Pattern IP_ADDRESS_PATTERN = Pattern.compile("(\\d{1,3}\\.){3}\\d{1,3}");
+
     private Settings settings;
+    private final PublishSubject<String> urls = PublishSubject.create();
+    private final Disposable serverSwitches;
 
     public ServerUrlTextListener(Settings settings)
     {
         this.settings = settings;
+
+        this.serverSwitches = this.urls
+                .debounce(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS, Schedulers.computation())
+                .filter(this::isValidURL)
+                .distinctUntilChanged()
+                .subscribe(HttpClient::reinitializeRetrofit,
+                        e -> LogsManager.log(CLASS_NAME, "serverSwitches", "Error switching server. Error: " + e.getMessage(), e));
     }
 
     @Override
@@ -30,20 +52,36 @@ public class ServerUrlTextListener implements TextWatcher
         // No Action
     }
 
+    /**
+     * Saves the typed address in the settings, and switches the server once the user stopped typing.
+     *
+     * @param editable the typed server address
+     */
     @Override
     public void afterTextChanged(Editable editable)
     {
         String newBaseUrl = editable.toString();
         this.settings.setServerURL(newBaseUrl);
-
-        if(isValidURL(newBaseUrl))
-        {
-            HttpClient.reinitializeRetrofit(newBaseUrl);
-        }
+        this.urls.onNext(newBaseUrl);
     }
 
     private boolean isValidURL(String newBaseUrl)
     {
         return IP_ADDRESS_PATTERN.matcher(newBaseUrl).matches();
     }
-}
\ No newline at end of file
+
+    /**
+     * Stops listening. The last typed address is not lost, the server is switched to it right away if it is still waiting for the debounce.
+     */
+    @Override
+    public void dispose()
+    {
+        this.urls.onComplete();
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.serverSwitches.isDisposed();
+    }
+}
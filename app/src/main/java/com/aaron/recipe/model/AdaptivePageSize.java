@@ -0,0 +1,70 @@
+package com.aaron.recipe.model;
+
+/**
+ * The number of recipes requested per page of a sync. The size follows the observed throughput of the pages, so a page takes about the
+ * target time: large pages on a fast connection, small pages on a slow one, where a failed page loses less. The size changes at most twice
+ * or half per page, so a single slow or fast page does not swing it.
+ */
+class AdaptivePageSize
+{
+    static final int DEFAULT_SIZE = 50;
+    static final int MIN_SIZE = 10;
+    static final int MAX_SIZE = 500;
+    // Well under the 10 seconds read timeout of the http client
+    static final long TARGET_PAGE_MILLIS = 2000;
+    // Weight of the latest page in the average throughput
+    private static final double SMOOTHING = 0.5;
+
+    private int size;
+    // Recipes per millisecond, negative until a page is observed
+    private double throughput = -1;
+
+    /**
+     * Default constructor.
+     *
+     * @param size
+     *            the size of the first page, e.g. the size saved when a sync was interrupted
+     */
+    AdaptivePageSize(int size)
+    {
+        this.size = clamp(size, MIN_SIZE, MAX_SIZE);
+    }
+
+    /**
+     * Returns the size of the next page.
+     *
+     * @return int
+     */
+    int get()
+    {
+        return this.size;
+    }
+
+    /**
+     * Adapts the size of the next page to the throughput of a fetched page. A page without recipes, e.g. the last page, says nothing about
+     * the throughput and is ignored.
+     *
+     * @param recipes
+     *            the number of recipes in the page
+     * @param elapsedMillis
+     *            the time taken to fetch the page, from the request to the parsed response
+     */
+    void onPageFetched(int recipes, long elapsedMillis)
+    {
+        if(recipes <= 0)
+        {
+            return;
+        }
+
+        double pageThroughput = (double) recipes / Math.max(elapsedMillis, 1);
+        this.throughput = this.throughput < 0 ? pageThroughput : SMOOTHING * pageThroughput + (1 - SMOOTHING) * this.throughput;
+
+        int targetSize = (int) Math.min(Math.round(this.throughput * TARGET_PAGE_MILLIS), MAX_SIZE);
+        this.size = clamp(clamp(targetSize, this.size / 2, this.size * 2), MIN_SIZE, MAX_SIZE);
+    }
+
+    private static int clamp(int value, int min, int max)
+    {
+        return Math.max(min, Math.min(value, max));
+    }
+}
@@ -3,6 +3,7 @@ package com.aaron.recipe.model;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.util.SparseArray;
 import android.widget.Toast;
@@ -17,15 +18,19 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.IntConsumer;
 import java.util.stream.IntStream;
 
+import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Action;
-import io.reactivex.observers.DisposableSingleObserver;
+import io.reactivex.observers.DisposableMaybeObserver;
 import io.reactivex.schedulers.Schedulers;
+import retrofit2.Response;
 
 import static com.aaron.recipe.model.MySQLiteHelper.ColumnCategories;
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnHttpValidators;
 import static com.aaron.recipe.model.MySQLiteHelper.TABLE_CATEGORIES;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_HTTP_VALIDATORS;
 
 /**
  * Handles the web call to retrieve recipes in JSON object representation. Handles the data storage of recipes.
@@ -49,20 +54,26 @@ public class CategoryManager
      */
     public CategoryManager(final Context context)
     {
-        this.dbHelper = new MySQLiteHelper(context);
+        this.dbHelper = MySQLiteHelper.getInstance(context);
         this.httpClient = new HttpClient(context);
         this.contextRef = new WeakReference<>(context);
     }
 
     /**
-     * Retrieves the categories from the server, then update cache and database.
+     * Retrieves the categories from the server, then update cache and database on the database writer thread.
+     * The request is conditional on the validators saved with the categories. If the categories did not change since the last update, the
+     * server answers 304 and nothing is saved.
      */
     public void updateCategories(Action doFinally)
     {
         startUpdating();
 
-        Disposable disposable = httpClient.getCategories()
-                .subscribeOn(Schedulers.io())
+        Disposable disposable = Single.fromCallable(this::getCategoriesValidatorsFromDisk)
+                .subscribeOn(DatabaseExecutor.reader())
+                .observeOn(Schedulers.io())
+                .flatMapMaybe(httpClient::getCategories)
+                .observeOn(DatabaseExecutor.writer())
+                .map(this::saveCategories)
                 .observeOn(AndroidSchedulers.mainThread())
                 .doFinally(doFinally)
                 .subscribeWith(getCategoriesFromWebObserver());
@@ -70,14 +81,13 @@ public class CategoryManager
         compositeDisposable.add(disposable);
     }
 
-    private DisposableSingleObserver<List<ResponseCategory>> getCategoriesFromWebObserver()
+    private DisposableMaybeObserver<Boolean> getCategoriesFromWebObserver()
     {
-        return new DisposableSingleObserver<List<ResponseCategory>>()
+        return new DisposableMaybeObserver<Boolean>()
         {
             @Override
-            public void onSuccess(List<ResponseCategory> response)
+            public void onSuccess(Boolean saved)
             {
-                boolean saved = saveCategories(response);
                 if(saved)
                 {
                     LogsManager.log(CLASS_NAME, "onSuccess", "Categories = " + Categories.getCategories());
@@ -93,6 +103,12 @@ public class CategoryManager
                 }
             }
 
+            @Override
+            public void onComplete()
+            {
+                LogsManager.log(CLASS_NAME, "onComplete", "Categories not modified.");
+            }
+
             @Override
             public void onError(Throwable e)
             {
@@ -109,16 +125,47 @@ public class CategoryManager
     }
 
     /**
-     * Store categories in cache and persist to the database.
+     * Retrieves the validators saved with the categories. None are returned while the cache holds only the default category, e.g. the
+     * categories are not loaded from the database yet, or there are no categories in the database, so a 304 never leaves the application
+     * without categories.
      *
-     * @param responseCategories the categories response to save
+     * @return HttpValidators, {@link HttpValidators#NONE} if there are none to send
+     */
+    private HttpValidators getCategoriesValidatorsFromDisk()
+    {
+        SQLiteDatabase db = this.dbHelper.getReadableDatabase();
+        if(!Categories.isCategoriesUpdated() || DatabaseUtils.queryNumEntries(db, TABLE_CATEGORIES) == 0)
+        {
+            return HttpValidators.NONE;
+        }
+
+        String[] columns = new String[] { ColumnHttpValidators.etag.name(), ColumnHttpValidators.last_modified.name() };
+        String whereClause = ColumnHttpValidators.name.name() + " = ?";
+        String[] whereArgs = new String[] { TABLE_CATEGORIES };
+
+        try(Cursor cursor = db.query(TABLE_HTTP_VALIDATORS, columns, whereClause, whereArgs, null, null, null))
+        {
+            if(cursor.moveToFirst())
+            {
+                return new HttpValidators(cursor.getString(0), cursor.getString(1));
+            }
+        }
+
+        return HttpValidators.NONE;
+    }
+
+    /**
+     * Store categories in cache and persist to the database, with the validators of the response.
+     *
+     * @param response the categories response to save
      */
-    private boolean saveCategories(List<ResponseCategory> responseCategories)
+    private boolean saveCategories(Response<List<ResponseCategory>> response)
     {
+        List<ResponseCategory> responseCategories = response.body();
         if(responseCategories != null && !responseCategories.isEmpty())
         {
             saveCategoriesInCache(responseCategories);
-            saveCategoriesInDatabase(responseCategories);
+            saveCategoriesInDatabase(responseCategories, HttpValidators.of(response.headers()));
 
             return true;
         }
@@ -146,11 +193,12 @@ public class CategoryManager
     }
 
     /**
-     * Persists the category list to the database.
+     * Persists the category list to the database, and its validators in the same transaction.
      *
      * @param responseCategories the categories response to save
+     * @param validators the validators of the categories response
      */
-    private void saveCategoriesInDatabase(List<ResponseCategory> responseCategories)
+    private void saveCategoriesInDatabase(List<ResponseCategory> responseCategories, HttpValidators validators)
     {
         SQLiteDatabase db = this.dbHelper.getWritableDatabase();
 
@@ -166,13 +214,13 @@ public class CategoryManager
                 saveCategoryInDatabase(db, category.getId(), category.getName());
             }
 
+            saveCategoriesValidatorsInDatabase(db, validators);
+
             db.setTransactionSuccessful();
         }
         finally
         {
             db.endTransaction();
-            db.close();
-            this.dbHelper.close();
         }
     }
 
@@ -184,6 +232,15 @@ public class CategoryManager
         db.insert(TABLE_CATEGORIES, null, categoryValues);
     }
 
+    private void saveCategoriesValidatorsInDatabase(SQLiteDatabase db, HttpValidators validators)
+    {
+        ContentValues validatorsValues = new ContentValues();
+        validatorsValues.put(ColumnHttpValidators.name.name(), TABLE_CATEGORIES);
+        validatorsValues.put(ColumnHttpValidators.etag.name(), validators.getETag());
+        validatorsValues.put(ColumnHttpValidators.last_modified.name(), validators.getLastModified());
+        db.replace(TABLE_HTTP_VALIDATORS, null, validatorsValues);
+    }
+
     /**
      * Clears all observer in the composite disposable.
      * Uses clear because the CompositeDisposable is static and is used throughout the life of the application.
@@ -215,22 +272,20 @@ public class CategoryManager
     public SparseArray<String> getCategoriesFromDisk()
     {
         SparseArray<String> array;
-        try(SQLiteDatabase db = this.dbHelper.getReadableDatabase())
+        SQLiteDatabase db = this.dbHelper.getReadableDatabase();
+        String[] columns = new String[] { ColumnCategories.id.name(), ColumnCategories.name.name() };
+        String orderBy = ColumnCategories.name.name() + " ASC";
+
+        try(Cursor cursor = db.query(TABLE_CATEGORIES, columns, null, null, null, null, orderBy))
         {
-            String[] columns = new String[] { ColumnCategories.id.name(), ColumnCategories.name.name() };
-            String orderBy = ColumnCategories.name.name() + " ASC";
+            array = new SparseArray<>(cursor.getCount());
 
-            try(Cursor cursor = db.query(TABLE_CATEGORIES, columns, null, null, null, null, orderBy))
+            if(cursor.moveToFirst())
             {
-                array = new SparseArray<>(cursor.getCount());
-
-                if(cursor.moveToFirst())
+                do
                 {
-                    do
-                    {
-                        array.append(cursor.getInt(0), cursor.getString(1));
-                    } while(cursor.moveToNext());
-                }
+                    array.append(cursor.getInt(0), cursor.getString(1));
+                } while(cursor.moveToNext());
             }
         }
 
@@ -239,6 +294,17 @@ public class CategoryManager
         return array;
     }
 
+    /**
+     * Retrieves the categories from the database on a database reader thread.
+     *
+     * @return Single, emits on the main thread
+     * @see #getCategoriesFromDisk()
+     */
+    public Single<SparseArray<String>> loadCategories()
+    {
+        return DatabaseExecutor.read(this::getCategoriesFromDisk);
+    }
+
     private static void startUpdating()
     {
         IS_UPDATING.set(true);
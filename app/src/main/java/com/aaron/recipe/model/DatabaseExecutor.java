@@ -0,0 +1,126 @@
+package com.aaron.recipe.model;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.functions.Action;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Runs the database work off the main thread. All writes are serialized on one thread, while reads run on a small pool of threads.
+ * With write-ahead logging enabled in {@link MySQLiteHelper}, the readers are not blocked by the writer.
+ */
+public final class DatabaseExecutor
+{
+    // Android's default WAL connection pool has 4 connections, one of them is the primary connection used by the writer.
+    private static final int READER_THREADS = 3;
+
+    private static final Scheduler WRITER = Schedulers.from(Executors.newSingleThreadExecutor(threadFactory("database-writer")));
+    private static final Scheduler READERS = Schedulers.from(Executors.newFixedThreadPool(READER_THREADS, threadFactory("database-reader")));
+
+    private static volatile Scheduler writer = WRITER;
+    private static volatile Scheduler readers = READERS;
+
+    private DatabaseExecutor()
+    {
+    }
+
+    /**
+     * The scheduler of the single database writer thread.
+     *
+     * @return Scheduler
+     */
+    public static Scheduler writer()
+    {
+        return writer;
+    }
+
+    /**
+     * The scheduler of the database reader threads.
+     *
+     * @return Scheduler
+     */
+    public static Scheduler reader()
+    {
+        return readers;
+    }
+
+    /**
+     * Replaces the writer and reader schedulers, e.g. with trampoline in tests. Not through the Schedulers.io() hook, so replacing the io
+     * scheduler never replaces the single writer thread.
+     *
+     * @param writerScheduler the scheduler of the database writes
+     * @param readerScheduler the scheduler of the database reads
+     */
+    static void setSchedulers(Scheduler writerScheduler, Scheduler readerScheduler)
+    {
+        writer = writerScheduler;
+        readers = readerScheduler;
+    }
+
+    /**
+     * Restores the writer thread and the reader threads.
+     */
+    static void resetSchedulers()
+    {
+        writer = WRITER;
+        readers = READERS;
+    }
+
+    /**
+     * Runs the query on a reader thread, the result is delivered on the main thread.
+     *
+     * @param query the database query
+     * @return Single
+     */
+    public static <T> Single<T> read(Callable<T> query)
+    {
+        return Single.fromCallable(query)
+                .subscribeOn(reader())
+                .observeOn(AndroidSchedulers.mainThread());
+    }
+
+    /**
+     * Runs the write on the writer thread, the result is delivered on the main thread.
+     *
+     * @param write the database write
+     * @return Single
+     */
+    public static <T> Single<T> write(Callable<T> write)
+    {
+        return Single.fromCallable(write)
+                .subscribeOn(writer())
+                .observeOn(AndroidSchedulers.mainThread());
+    }
+
+    /**
+     * Runs the update on the writer thread, the completion is delivered on the main thread.
+     *
+     * @param update the database update
+     * @return Completable
+     */
+    public static Completable update(Action update)
+    {
+        return Completable.fromAction(update)
+                .subscribeOn(writer())
+                .observeOn(AndroidSchedulers.mainThread());
+    }
+
+    private static ThreadFactory threadFactory(String name)
+    {
+        AtomicInteger count = new AtomicInteger();
+
+        return runnable ->
+        {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -4,19 +4,28 @@ import android.content.Context;
 
 import com.aaron.recipe.R;
 import com.aaron.recipe.response.ResponseCategory;
-import com.aaron.recipe.response.ResponseRecipes;
 
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+import io.reactivex.Maybe;
 import io.reactivex.Single;
+import okhttp3.Cache;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.HttpException;
+import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
 import retrofit2.converter.jackson.JacksonConverterFactory;
@@ -31,45 +40,108 @@ public class HttpClient
     private static final String AUTHORIZATION = "Authorization";
     private static final String AUTHORIZATION_VALUE = new String(Hex.encodeHex(DigestUtils.md5("aaron")));
     private static final String BASE_URL = "http://%s/Recipe/web_service/";
+    private static final String CACHE_CONTROL = "Cache-Control";
+    private static final String CATEGORIES_PATH = "categories";
+    private static final String HTTP_CACHE_DIRECTORY = "http";
+    private static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024;
 
-    private static OkHttpClient okHttpClient;
-    private static RecipeService service;
+    // The services of the servers used so far, all sharing the same client
+    private static final Map<String, RecipeService> SERVICES_BY_BASE_URL = new ConcurrentHashMap<>();
+    // The service of the current server, replaced as a whole when the server changes
+    private static final AtomicReference<RecipeService> SERVICE = new AtomicReference<>();
 
+    // One client for the whole process, so its connection pool, dispatcher and cache are kept when a manager or the server changes
+    private static volatile OkHttpClient okHttpClient;
+
+    /**
+     * Initializes the shared http client on first use, and the server to the default server if none was set yet.
+     *
+     * @param context the caller context
+     */
     public HttpClient(Context context)
     {
-        initializeRetrofit(context.getString(R.string.url_address_default));
+        initializeOkHttpClient(context.getApplicationContext());
+
+        if(SERVICE.get() == null)
+        {
+            SERVICE.compareAndSet(null, getService(context.getString(R.string.url_address_default)));
+        }
     }
 
-    private void initializeRetrofit(String hostname)
+    private static synchronized void initializeOkHttpClient(Context context)
     {
+        if(okHttpClient != null)
+        {
+            return;
+        }
+
+        // OkHttp asks for gzip and decompresses the responses by itself, as long as no Accept-Encoding header is set here
         okHttpClient = new OkHttpClient.Builder()
                 .connectTimeout(DEFAUT_TIMEOUT, TimeUnit.SECONDS)
                 .readTimeout(DEFAUT_TIMEOUT, TimeUnit.SECONDS)
                 .writeTimeout(DEFAUT_TIMEOUT, TimeUnit.SECONDS)
                 .pingInterval(DEFAUT_TIMEOUT, TimeUnit.SECONDS)
-                .addInterceptor(this::authorizationHeaderInterceptor)
+                .cache(new Cache(new File(context.getCacheDir(), HTTP_CACHE_DIRECTORY), HTTP_CACHE_SIZE))
+                .addInterceptor(HttpClient::authorizationHeaderInterceptor)
+                .addNetworkInterceptor(HttpClient::cacheControlInterceptor)
                 .build();
 
-        reinitializeRetrofit(hostname);
+        LogsManager.log(CLASS_NAME, "initializeOkHttpClient", "Initialized");
     }
 
     /**
-     * Sets the retrofit http client.
+     * Closes the shared http client and forgets the services of the servers, so the next HttpClient initializes them again with the cache
+     * directory of its context. Used by the tests, each of them has its own cache directory.
+     */
+    static synchronized void reset() throws IOException
+    {
+        if(okHttpClient != null)
+        {
+            okHttpClient.cache().close();
+            okHttpClient = null;
+        }
+
+        SERVICES_BY_BASE_URL.clear();
+        SERVICE.set(null);
+    }
+
+    /**
+     * Switches all the following requests to the given server. The retrofit of each server is created once, then reused when switching back.
+     *
+     * @param hostname the hostname of the server, with its port if any
+     * @throws IllegalStateException if no HttpClient was created yet
      */
     public static void reinitializeRetrofit(String hostname)
     {
-        String baseUrl = String.format(BASE_URL, hostname);
+        SERVICE.set(getService(hostname));
+
+        LogsManager.log(CLASS_NAME, "reinitializeRetrofit", "New hostname=" + hostname);
+    }
+
+    private static RecipeService getService(String hostname)
+    {
+        if(okHttpClient == null)
+        {
+            throw new IllegalStateException("The http client is not initialized.");
+        }
+
+        return SERVICES_BY_BASE_URL.computeIfAbsent(String.format(BASE_URL, hostname), HttpClient::createService);
+    }
+
+    private static RecipeService createService(String baseUrl)
+    {
         Retrofit retrofit = new Retrofit.Builder()
                 .baseUrl(baseUrl)
                 .client(okHttpClient).addConverterFactory(JacksonConverterFactory.create())
                 .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
                 .build();
-        service = retrofit.create(RecipeService.class);
 
-        LogsManager.log(CLASS_NAME, "reinitializeRetrofit", "New BaseUrl=" + baseUrl);
+        LogsManager.log(CLASS_NAME, "createService", "New BaseUrl=" + baseUrl);
+
+        return retrofit.create(RecipeService.class);
     }
 
-    private okhttp3.Response authorizationHeaderInterceptor(Interceptor.Chain chain) throws IOException
+    private static okhttp3.Response authorizationHeaderInterceptor(Interceptor.Chain chain) throws IOException
     {
         Request request = chain.request().newBuilder()
                 .addHeader(AUTHORIZATION, AUTHORIZATION_VALUE)
@@ -79,23 +151,73 @@ public class HttpClient
     }
 
     /**
-     * Performs a GET request to /categories.
+     * Stores the categories responses without caching headers as always stale. Otherwise the cache would guess how long they are fresh from
+     * their Last-Modified date, and serve them without asking the server. The cached response is revalidated with its ETag or Last-Modified
+     * date instead, the server answers 304 without a body if it did not change. The other responses, e.g. the streamed recipes pages, are
+     * read once then written to the database, so they are never stored.
+     */
+    private static okhttp3.Response cacheControlInterceptor(Interceptor.Chain chain) throws IOException
+    {
+        okhttp3.Response response = chain.proceed(chain.request());
+        if(!isCategoriesRequest(chain.request()))
+        {
+            return response.newBuilder()
+                    .header(CACHE_CONTROL, "no-store")
+                    .build();
+        }
+
+        if(response.header(CACHE_CONTROL) == null)
+        {
+            return response.newBuilder()
+                    .header(CACHE_CONTROL, "no-cache")
+                    .build();
+        }
+
+        return response;
+    }
+
+    private static boolean isCategoriesRequest(Request request)
+    {
+        List<String> pathSegments = request.url().pathSegments();
+
+        return CATEGORIES_PATH.equals(pathSegments.get(pathSegments.size() - 1));
+    }
+
+    /**
+     * Performs a GET request to /categories, conditional on the given validators of the saved categories.
      *
-     * @return Single<List<ResponseCategory>>
+     * @param validators the validators of the saved categories, {@link HttpValidators#NONE} to always get the categories
+     * @return Maybe<Response<List<ResponseCategory>>>, completes without a response if the categories did not change since the validators
      */
-    public Single<List<ResponseCategory>> getCategories()
+    public Maybe<Response<List<ResponseCategory>>> getCategories(HttpValidators validators)
     {
-        return service.getCategories();
+        return SERVICE.get().getCategories(validators.getETag(), validators.getLastModified()).flatMapMaybe(response ->
+        {
+            if(response.code() == HttpURLConnection.HTTP_NOT_MODIFIED)
+            {
+                return Maybe.<Response<List<ResponseCategory>>>empty();
+            }
+
+            if(!response.isSuccessful())
+            {
+                throw new HttpException(response);
+            }
+
+            return Maybe.just(response);
+        });
     }
 
     /**
-     * Performs a GET request to /recipes.
+     * Performs a GET request to /recipes for one page of the recipes. The body is not read into memory, it must be read as a stream then
+     * closed.
      *
      * @param lastUpdated the last updated query parameter
-     * @return Single<ResponseRecipes>
+     * @param cursor the cursor query parameter, null for the first page
+     * @param pageSize the page size query parameter
+     * @return Single<ResponseBody>
      */
-    public Single<ResponseRecipes> getRecipes(String lastUpdated)
+    public Single<ResponseBody> getRecipesPage(String lastUpdated, String cursor, int pageSize)
     {
-        return service.getRecipes(lastUpdated);
+        return SERVICE.get().getRecipesPage(lastUpdated, cursor, pageSize);
     }
 }
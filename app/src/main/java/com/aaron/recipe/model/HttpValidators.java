@@ -0,0 +1,51 @@
+package com.aaron.recipe.model;
+
+import okhttp3.Headers;
+
+/**
+ * The ETag and Last-Modified date of a saved response. They are sent back with the next request of the resource, and the server answers 304
+ * without a body if it did not change since.
+ */
+public final class HttpValidators
+{
+    public static final HttpValidators NONE = new HttpValidators(null, null);
+
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+
+    private final String eTag;
+    private final String lastModified;
+
+    /**
+     * Default constructor.
+     *
+     * @param eTag the ETag of the response, null if none
+     * @param lastModified the Last-Modified date of the response, null if none
+     */
+    public HttpValidators(String eTag, String lastModified)
+    {
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Reads the validators of a response.
+     *
+     * @param headers the headers of the response
+     * @return HttpValidators, with null values for the missing headers
+     */
+    public static HttpValidators of(Headers headers)
+    {
+        return new HttpValidators(headers.get(ETAG), headers.get(LAST_MODIFIED));
+    }
+
+    public String getETag()
+    {
+        return this.eTag;
+    }
+
+    public String getLastModified()
+    {
+        return this.lastModified;
+    }
+}
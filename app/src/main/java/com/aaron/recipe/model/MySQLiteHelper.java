@@ -1,10 +1,21 @@
 package com.aaron.recipe.model;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.util.Log;
 
+import com.aaron.recipe.bean.Unit;
+
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneId;
+import org.threeten.bp.format.DateTimeFormatter;
+import org.threeten.bp.format.DateTimeParseException;
+
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Model for creating and updating the database.
  */
@@ -12,12 +23,16 @@ public class MySQLiteHelper extends SQLiteOpenHelper
 {
     public static final String TAG = "MySQLiteHelper";
     public static final String DATABASE_NAME = "aaron_recipe.db";
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 8;
+    private static final int INITIAL_DATABASE_VERSION = 1;
 
     public static final String TABLE_RECIPE = "recipe";
     public static final String TABLE_INGREDIENTS = "ingredients";
     public static final String TABLE_INSTRUCTIONS = "instructions";
     public static final String TABLE_CATEGORIES = "categories";
+    public static final String TABLE_RECIPE_SEARCH = "recipe_search";
+    public static final String TABLE_SYNC_STATE = "sync_state";
+    public static final String TABLE_HTTP_VALIDATORS = "http_validators";
     public static final String[] COLUMN_COUNT = new String[] { "COUNT(*)", };
 
     /**
@@ -25,7 +40,7 @@ public class MySQLiteHelper extends SQLiteOpenHelper
      */
     public enum ColumnRecipe
     {
-        id, title, category_id, preparation_time, description, servings, date_in,
+        id, title, category_id, preparation_time, description, servings, date_in, server_id,
     }
 
     /**
@@ -33,7 +48,7 @@ public class MySQLiteHelper extends SQLiteOpenHelper
      */
     public enum ColumnIngredients
     {
-        recipe_id, quantity, measurement, ingredient, comment_, count,
+        recipe_id, quantity, measurement, ingredient, comment_, count, unit, base_quantity,
     }
 
     /**
@@ -52,6 +67,31 @@ public class MySQLiteHelper extends SQLiteOpenHelper
         id, name,
     }
 
+    /**
+     * The database's full-text search table column names. The docid of each row is the id of the recipe.
+     */
+    public enum ColumnRecipeSearch
+    {
+        docid, title, description, ingredients, instructions,
+    }
+
+    /**
+     * The database's sync state table column names. A row is the checkpoint of an interrupted paginated sync.
+     */
+    public enum ColumnSyncState
+    {
+        name, last_updated, cursor, page_size,
+    }
+
+    /**
+     * The database's http validators table column names. A row is the ETag and Last-Modified date of a saved response, named after the
+     * table the response is saved in.
+     */
+    public enum ColumnHttpValidators
+    {
+        name, etag, last_modified,
+    }
+
     private static final String CREATE_TABLE_RECIPE = "CREATE TABLE " + TABLE_RECIPE +
             "(" +
             ColumnRecipe.id.name() + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
@@ -89,16 +129,139 @@ public class MySQLiteHelper extends SQLiteOpenHelper
             ColumnCategories.name.name() + " TEXT UNIQUE NOT NULL" +
             ");";
 
+    public static final String INDEX_INGREDIENTS_RECIPE_ID_COUNT = "index_ingredients_recipe_id_count";
+    public static final String INDEX_INSTRUCTIONS_RECIPE_ID_COUNT = "index_instructions_recipe_id_count";
+    public static final String INDEX_RECIPE_CATEGORY_ID_TITLE = "index_recipe_category_id_title";
+    public static final String INDEX_RECIPE_DATE_IN = "index_recipe_date_in";
+    public static final String INDEX_RECIPE_SERVER_ID = "index_recipe_server_id";
+
+    private static final String CREATE_INDEX_INGREDIENTS_RECIPE_ID_COUNT = "CREATE INDEX IF NOT EXISTS " + INDEX_INGREDIENTS_RECIPE_ID_COUNT +
+            " ON " + TABLE_INGREDIENTS + "(" + ColumnIngredients.recipe_id.name() + ", " + ColumnIngredients.count.name() + ");";
+
+    private static final String CREATE_INDEX_INSTRUCTIONS_RECIPE_ID_COUNT = "CREATE INDEX IF NOT EXISTS " + INDEX_INSTRUCTIONS_RECIPE_ID_COUNT +
+            " ON " + TABLE_INSTRUCTIONS + "(" + ColumnInstructions.recipe_id.name() + ", " + ColumnInstructions.count.name() + ");";
+
+    private static final String CREATE_INDEX_RECIPE_CATEGORY_ID_TITLE = "CREATE INDEX IF NOT EXISTS " + INDEX_RECIPE_CATEGORY_ID_TITLE +
+            " ON " + TABLE_RECIPE + "(" + ColumnRecipe.category_id.name() + ", " + ColumnRecipe.title.name() + ");";
+
+    private static final String CREATE_INDEX_RECIPE_DATE_IN = "CREATE INDEX IF NOT EXISTS " + INDEX_RECIPE_DATE_IN +
+            " ON " + TABLE_RECIPE + "(" + ColumnRecipe.date_in.name() + ");";
+
+    private static final String ADD_COLUMN_RECIPE_SERVER_ID = "ALTER TABLE " + TABLE_RECIPE + " ADD COLUMN " + ColumnRecipe.server_id.name() + " INTEGER;";
+
+    private static final String CREATE_TABLE_RECIPE_SEARCH = "CREATE VIRTUAL TABLE " + TABLE_RECIPE_SEARCH + " USING fts4(" +
+            ColumnRecipeSearch.title.name() + ", " +
+            ColumnRecipeSearch.description.name() + ", " +
+            ColumnRecipeSearch.ingredients.name() + ", " +
+            ColumnRecipeSearch.instructions.name() +
+            ");";
+
+    private static final String INSERT_RECIPE_SEARCH_OF_ALL_RECIPES = "INSERT INTO " + TABLE_RECIPE_SEARCH + "(" +
+            ColumnRecipeSearch.docid.name() + ", " + ColumnRecipeSearch.title.name() + ", " + ColumnRecipeSearch.description.name() + ", " +
+            ColumnRecipeSearch.ingredients.name() + ", " + ColumnRecipeSearch.instructions.name() + ")" +
+            " SELECT r." + ColumnRecipe.id.name() + ", r." + ColumnRecipe.title.name() + ", r." + ColumnRecipe.description.name() + "," +
+            " (SELECT group_concat(" + ColumnIngredients.ingredient.name() + ", ' ') FROM " + TABLE_INGREDIENTS +
+            " WHERE " + ColumnIngredients.recipe_id.name() + " = r." + ColumnRecipe.id.name() + ")," +
+            " (SELECT group_concat(" + ColumnInstructions.instruction.name() + ", ' ') FROM " + TABLE_INSTRUCTIONS +
+            " WHERE " + ColumnInstructions.recipe_id.name() + " = r." + ColumnRecipe.id.name() + ")" +
+            " FROM " + TABLE_RECIPE + " r;";
+
+    private static final String ADD_COLUMN_INGREDIENTS_UNIT = "ALTER TABLE " + TABLE_INGREDIENTS + " ADD COLUMN " + ColumnIngredients.unit.name() +
+            " TEXT NOT NULL DEFAULT '" + Unit.OTHER.name() + "';";
+
+    private static final String ADD_COLUMN_INGREDIENTS_BASE_QUANTITY = "ALTER TABLE " + TABLE_INGREDIENTS + " ADD COLUMN " +
+            ColumnIngredients.base_quantity.name() + " REAL NOT NULL DEFAULT 0;";
+
+    private static final String SELECT_DISTINCT_MEASUREMENTS = "SELECT DISTINCT " + ColumnIngredients.measurement.name() + " FROM " + TABLE_INGREDIENTS;
+
+    private static final String UPDATE_UNIT_OF_MEASUREMENT = "UPDATE " + TABLE_INGREDIENTS + " SET " + ColumnIngredients.unit.name() + " = ?, " +
+            ColumnIngredients.base_quantity.name() + " = " + ColumnIngredients.quantity.name() + " * ?" +
+            " WHERE " + ColumnIngredients.measurement.name() + " = ?";
+
+    private static final String CREATE_INDEX_RECIPE_SERVER_ID = "CREATE UNIQUE INDEX IF NOT EXISTS " + INDEX_RECIPE_SERVER_ID +
+            " ON " + TABLE_RECIPE + "(" + ColumnRecipe.server_id.name() + ");";
+
+    // SQLite cannot change the type of a column, the recipe table is rebuilt with date_in as epoch milliseconds
+    private static final String TABLE_RECIPE_REBUILT = TABLE_RECIPE + "_rebuilt";
+
+    private static final String RECIPE_COLUMNS = ColumnRecipe.id.name() + ", " + ColumnRecipe.title.name() + ", " + ColumnRecipe.category_id.name() +
+            ", " + ColumnRecipe.preparation_time.name() + ", " + ColumnRecipe.description.name() + ", " + ColumnRecipe.servings.name() + ", " +
+            ColumnRecipe.date_in.name() + ", " + ColumnRecipe.server_id.name();
+
+    private static final String CREATE_TABLE_RECIPE_REBUILT = "CREATE TABLE " + TABLE_RECIPE_REBUILT +
+            "(" +
+            ColumnRecipe.id.name() + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            ColumnRecipe.title.name() + " TEXT UNIQUE NOT NULL, " +
+            ColumnRecipe.category_id.name() + " INTEGER NOT NULL, " +
+            ColumnRecipe.preparation_time.name() + " INTEGER NOT NULL, " +
+            ColumnRecipe.description.name() + " TEXT NOT NULL, " +
+            ColumnRecipe.servings.name() + " INTEGER NOT NULL, " +
+            ColumnRecipe.date_in.name() + " INTEGER NOT NULL, " +
+            ColumnRecipe.server_id.name() + " INTEGER, " +
+            "FOREIGN KEY (" + ColumnRecipe.category_id.name() + ") REFERENCES " + TABLE_CATEGORIES + "(id)" +
+            ");";
+
+    private static final String COPY_RECIPE_INTO_REBUILT = "INSERT INTO " + TABLE_RECIPE_REBUILT + "(" + RECIPE_COLUMNS + ")" +
+            " SELECT " + RECIPE_COLUMNS + " FROM " + TABLE_RECIPE + ";";
+
+    private static final String SELECT_DISTINCT_DATE_IN_OF_REBUILT = "SELECT DISTINCT " + ColumnRecipe.date_in.name() + " FROM " + TABLE_RECIPE_REBUILT;
+
+    // Older than any sync, but not RecipeDatabaseWriter.PENDING_DATE_IN, the next sync would take these recipes for its own
+    private static final long UNKNOWN_DATE_IN = -1;
+    private static final String UPDATE_DATE_IN_OF_REBUILT = "UPDATE " + TABLE_RECIPE_REBUILT + " SET " + ColumnRecipe.date_in.name() + " = ?" +
+            " WHERE " + ColumnRecipe.date_in.name() + " = ?";
+
+    private static final String DROP_TABLE_RECIPE = "DROP TABLE " + TABLE_RECIPE + ";";
+
+    private static final String RENAME_REBUILT_TO_RECIPE = "ALTER TABLE " + TABLE_RECIPE_REBUILT + " RENAME TO " + TABLE_RECIPE + ";";
+
+    private static final String CREATE_TABLE_SYNC_STATE = "CREATE TABLE " + TABLE_SYNC_STATE +
+            "(" +
+            ColumnSyncState.name.name() + " TEXT PRIMARY KEY, " +
+            ColumnSyncState.last_updated.name() + " TEXT NOT NULL, " +
+            ColumnSyncState.cursor.name() + " TEXT NOT NULL, " +
+            ColumnSyncState.page_size.name() + " INTEGER NOT NULL" +
+            ");";
+
+    private static final String CREATE_TABLE_HTTP_VALIDATORS = "CREATE TABLE " + TABLE_HTTP_VALIDATORS +
+            "(" +
+            ColumnHttpValidators.name.name() + " TEXT PRIMARY KEY, " +
+            ColumnHttpValidators.etag.name() + " TEXT, " +
+            ColumnHttpValidators.last_modified.name() + " TEXT" +
+            ");";
+
+    private static MySQLiteHelper instance;
+
     /**
-     * Default constructor.
+     * Default constructor. Write-ahead logging is enabled, so reads can run concurrently with a write.
      */
     public MySQLiteHelper(Context context)
     {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * Returns the helper shared by the whole application. The database connection is shared across threads,
+     * so it is kept open for the life of the process and must not be closed by the callers.
+     *
+     * @param context
+     *            any context, only the application context is kept
+     * @return MySQLiteHelper
+     */
+    public static synchronized MySQLiteHelper getInstance(Context context)
+    {
+        if(instance == null)
+        {
+            instance = new MySQLiteHelper(context.getApplicationContext());
+        }
+
+        return instance;
     }
 
     /**
      * Called if the database name given in the constructor does not exists.
+     * Creates the initial tables, then applies all migrations to bring it to the current version.
      */
     @Override
     public void onCreate(SQLiteDatabase database)
@@ -117,6 +280,8 @@ public class MySQLiteHelper extends SQLiteOpenHelper
             database.execSQL(CREATE_TABLE_INSTRUCTIONS);
             database.execSQL(CREATE_TABLE_CATEGORIES);
 
+            this.upgrade(database, INITIAL_DATABASE_VERSION, DATABASE_VERSION);
+
             database.setTransactionSuccessful();
         }
         finally
@@ -127,32 +292,155 @@ public class MySQLiteHelper extends SQLiteOpenHelper
 
     /**
      * Called if the version given in the constructor is higher than the existing database version.
+     * Applies each migration between the two versions in order, the existing data is kept.
      */
     @Override
     public void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion)
     {
-        /**
-         * TODO
-         * (1) store db contents in temp --- NOT YET
-         * (2) drop db --- IMPLEMENTED
-         * (3) create new db --- IMPLEMENTED
-         * (4) insert temp data in new db --- NOT YET
-         */
+        Log.d(LogsManager.TAG, "MySQLiteHelper: onUpgrade. oldVersion=" + oldVersion + " newVersion=" + newVersion);
+
         try
         {
             database.beginTransaction();
-            database.execSQL("DROP TABLE IF EXISTS " + TABLE_RECIPE);
-            database.execSQL("DROP TABLE IF EXISTS " + TABLE_INGREDIENTS);
-            database.execSQL("DROP TABLE IF EXISTS " + TABLE_INSTRUCTIONS);
-            database.execSQL("DROP TABLE IF EXISTS " + TABLE_CATEGORIES);
+            this.upgrade(database, oldVersion, newVersion);
             database.setTransactionSuccessful();
         }
         finally
         {
             database.endTransaction();
         }
+    }
 
-        this.onCreate(database);
+    private void upgrade(SQLiteDatabase database, int oldVersion, int newVersion)
+    {
+        for(int version = oldVersion + 1; version <= newVersion; version++)
+        {
+            this.migrate(database, version);
+        }
     }
 
+    /**
+     * Upgrades the database from the previous version to the given version.
+     * New schema changes are added as a new case, existing cases must never be modified.
+     *
+     * @param database the database to upgrade
+     * @param version the version to upgrade to
+     */
+    private void migrate(SQLiteDatabase database, int version)
+    {
+        Log.d(LogsManager.TAG, "MySQLiteHelper: migrate. version=" + version);
+
+        switch(version)
+        {
+            case 2:
+            {
+                database.execSQL(CREATE_INDEX_INGREDIENTS_RECIPE_ID_COUNT);
+                database.execSQL(CREATE_INDEX_INSTRUCTIONS_RECIPE_ID_COUNT);
+                database.execSQL(CREATE_INDEX_RECIPE_CATEGORY_ID_TITLE);
+                database.execSQL(CREATE_INDEX_RECIPE_DATE_IN);
+                break;
+            }
+            case 3:
+            {
+                // Recipes saved before this version have no server id, they are matched by title on the next sync.
+                database.execSQL(ADD_COLUMN_RECIPE_SERVER_ID);
+                database.execSQL(CREATE_INDEX_RECIPE_SERVER_ID);
+                break;
+            }
+            case 4:
+            {
+                database.execSQL(CREATE_TABLE_RECIPE_SEARCH);
+                database.execSQL(INSERT_RECIPE_SEARCH_OF_ALL_RECIPES);
+                break;
+            }
+            case 5:
+            {
+                database.execSQL(ADD_COLUMN_INGREDIENTS_UNIT);
+                database.execSQL(ADD_COLUMN_INGREDIENTS_BASE_QUANTITY);
+                this.normalizeMeasurementsOfIngredients(database);
+                break;
+            }
+            case 6:
+            {
+                // Foreign keys are not enforced, so dropping the recipe table keeps the ingredients and instructions
+                database.execSQL(CREATE_TABLE_RECIPE_REBUILT);
+                database.execSQL(COPY_RECIPE_INTO_REBUILT);
+                this.convertDateInOfRecipesToEpochMillis(database);
+                database.execSQL(DROP_TABLE_RECIPE);
+                database.execSQL(RENAME_REBUILT_TO_RECIPE);
+                database.execSQL(CREATE_INDEX_RECIPE_CATEGORY_ID_TITLE);
+                database.execSQL(CREATE_INDEX_RECIPE_DATE_IN);
+                database.execSQL(CREATE_INDEX_RECIPE_SERVER_ID);
+                break;
+            }
+            case 7:
+            {
+                database.execSQL(CREATE_TABLE_SYNC_STATE);
+                break;
+            }
+            case 8:
+            {
+                // The categories saved before this version have no validators, they are requested again in full on the next update.
+                database.execSQL(CREATE_TABLE_HTTP_VALIDATORS);
+                break;
+            }
+            default:
+            {
+                throw new IllegalStateException("No migration to database version " + version);
+            }
+        }
+    }
+
+    /**
+     * Parses each distinct measurement of the saved ingredients once, then stores its unit and the quantities in the base unit.
+     */
+    private void normalizeMeasurementsOfIngredients(SQLiteDatabase database)
+    {
+        List<String> measurements = new ArrayList<>();
+        try(Cursor cursor = database.rawQuery(SELECT_DISTINCT_MEASUREMENTS, null))
+        {
+            while(cursor.moveToNext())
+            {
+                measurements.add(cursor.getString(0));
+            }
+        }
+
+        for(String measurement : measurements)
+        {
+            Unit unit = Unit.parse(measurement);
+            database.execSQL(UPDATE_UNIT_OF_MEASUREMENT, new Object[] { unit.name(), unit.toBaseQuantity(1), measurement });
+        }
+    }
+
+    /**
+     * Parses each distinct formatted date_in of the copied recipes once, then stores it as epoch milliseconds in the system time zone, the
+     * zone it was formatted in. A date_in that cannot be parsed is stored as {@link #UNKNOWN_DATE_IN}.
+     */
+    private void convertDateInOfRecipesToEpochMillis(SQLiteDatabase database)
+    {
+        List<String> datesIn = new ArrayList<>();
+        try(Cursor cursor = database.rawQuery(SELECT_DISTINCT_DATE_IN_OF_REBUILT, null))
+        {
+            while(cursor.moveToNext())
+            {
+                datesIn.add(cursor.getString(0));
+            }
+        }
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(RecipeManager.DATE_FORMAT_DATABASE);
+        for(String dateIn : datesIn)
+        {
+            long epochMillis = UNKNOWN_DATE_IN;
+            try
+            {
+                epochMillis = LocalDateTime.parse(dateIn, formatter).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+            catch(DateTimeParseException e)
+            {
+                Log.w(LogsManager.TAG, "MySQLiteHelper: convertDateInOfRecipesToEpochMillis. Invalid date_in=" + dateIn, e);
+            }
+
+            database.execSQL(UPDATE_DATE_IN_OF_REBUILT, new Object[] { epochMillis, dateIn });
+        }
+    }
 }
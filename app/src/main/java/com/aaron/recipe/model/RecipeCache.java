@@ -0,0 +1,150 @@
+package com.aaron.recipe.model;
+
+import android.util.LruCache;
+
+import com.aaron.recipe.bean.Recipe;
+import com.aaron.recipe.bean.ScaledIngredients;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide repository of the recipes loaded from disk, keyed by id. Screens pass recipe ids in Intents and Bundles, and resolve the recipes here.
+ * Holds the recipe summaries of the loaded lists, and the most recently used recipes whose ingredients and instructions are loaded.
+ */
+public class RecipeCache
+{
+    private static final int MAX_HYDRATED_RECIPES = 32;
+    private static final LruCache<Integer, Recipe> HYDRATED_RECIPES = new LruCache<>(MAX_HYDRATED_RECIPES);
+    private static final Map<Integer, Recipe> RECIPES = new ConcurrentHashMap<>();
+    private static final int MAX_SCALED_INGREDIENTS = 64;
+    // Keyed by the recipe id in the high 32 bits and the servings in the low 32 bits
+    private static final LruCache<Long, ScaledIngredients> SCALED_INGREDIENTS = new LruCache<>(MAX_SCALED_INGREDIENTS);
+
+    private RecipeCache()
+    {
+    }
+
+    /**
+     * Returns the recipe with its ingredients and instructions, if it is still in the cache.
+     *
+     * @param id the id of the recipe
+     * @return the cached recipe, or null if not cached
+     */
+    public static Recipe getHydratedRecipe(int id)
+    {
+        return HYDRATED_RECIPES.get(id);
+    }
+
+    /**
+     * Caches the recipe with its ingredients and instructions.
+     *
+     * @param recipe the fully loaded recipe
+     */
+    public static void putHydratedRecipe(Recipe recipe)
+    {
+        HYDRATED_RECIPES.put(recipe.getId(), recipe);
+    }
+
+    /**
+     * Returns the recipe, with its ingredients and instructions if they are cached, else its summary.
+     *
+     * @param id the id of the recipe
+     * @return the cached recipe, or null if not cached
+     */
+    public static Recipe getRecipe(int id)
+    {
+        Recipe hydratedRecipe = HYDRATED_RECIPES.get(id);
+
+        return hydratedRecipe != null ? hydratedRecipe : RECIPES.get(id);
+    }
+
+    /**
+     * Returns the recipes of the given ids, in the same order.
+     *
+     * @param ids the ids of the recipes
+     * @return the cached recipes, or null if a recipe is not cached
+     */
+    public static ArrayList<Recipe> getRecipes(int[] ids)
+    {
+        ArrayList<Recipe> recipes = new ArrayList<>(ids.length);
+        for(int id : ids)
+        {
+            Recipe recipe = getRecipe(id);
+            if(recipe == null)
+            {
+                return null;
+            }
+
+            recipes.add(recipe);
+        }
+
+        return recipes;
+    }
+
+    /**
+     * Caches the loaded recipes, usually only their summaries.
+     *
+     * @param recipes the recipes loaded from disk
+     */
+    public static void putRecipes(Collection<Recipe> recipes)
+    {
+        for(Recipe recipe : recipes)
+        {
+            RECIPES.put(recipe.getId(), recipe);
+        }
+    }
+
+    /**
+     * Returns the ids of the recipes, to pass in an Intent or Bundle instead of the recipes.
+     *
+     * @param recipes the recipes
+     * @return the recipe ids, in the same order
+     */
+    public static int[] toIds(List<Recipe> recipes)
+    {
+        int[] ids = new int[recipes.size()];
+        for(int i = 0; i < ids.length; i++)
+        {
+            ids[i] = recipes.get(i).getId();
+        }
+
+        return ids;
+    }
+
+    /**
+     * Returns the ingredients of the recipe scaled to the given servings. Cached per recipe and servings, so switching back to servings
+     * already shown does not scale again. The quantities are only scaled when first shown.
+     *
+     * @param recipe   the recipe with its ingredients
+     * @param servings the servings to scale to
+     * @return ScaledIngredients
+     */
+    public static ScaledIngredients getScaledIngredients(Recipe recipe, int servings)
+    {
+        long key = ((long) recipe.getId() << 32) | (servings & 0xFFFFFFFFL);
+        ScaledIngredients scaledIngredients = SCALED_INGREDIENTS.get(key);
+
+        // A recipe loaded again from disk is a new instance, its ingredients may have changed
+        if(scaledIngredients == null || scaledIngredients.getRecipe() != recipe)
+        {
+            scaledIngredients = new ScaledIngredients(recipe, servings);
+            SCALED_INGREDIENTS.put(key, scaledIngredients);
+        }
+
+        return scaledIngredients;
+    }
+
+    /**
+     * Removes all cached recipes. Called when the recipes on disk are modified.
+     */
+    public static void clear()
+    {
+        HYDRATED_RECIPES.evictAll();
+        RECIPES.clear();
+        SCALED_INGREDIENTS.evictAll();
+    }
+}
@@ -0,0 +1,98 @@
+package com.aaron.recipe.model;
+
+import android.util.SparseIntArray;
+
+/**
+ * Process-wide cache of the recipe count per category id. Loaded once from disk, then kept up to date by the changes of each sync and delete,
+ * so the counts never need to be queried again.
+ * <p>
+ * Every write changing the counts bumps a version when it starts and when it finishes. Counts queried from disk are only stored if no write
+ * started since they were queried, so a count read from a snapshot before a write is never stored after it.
+ */
+public class RecipeCountCache
+{
+    private static SparseIntArray counts;
+    private static long version;
+    private static int writesInProgress;
+
+    private RecipeCountCache()
+    {
+    }
+
+    /**
+     * Returns a copy of the cached recipe count per category id.
+     *
+     * @return the counts, or null if not yet loaded
+     */
+    public static synchronized SparseIntArray getCounts()
+    {
+        return counts == null ? null : counts.clone();
+    }
+
+    /**
+     * Returns the version of the counts, to be passed to {@link #setCounts(SparseIntArray, long)} with the counts queried after it.
+     *
+     * @return long
+     */
+    public static synchronized long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Replaces the cached counts. Ignored if a write started since the counts were queried, or is still running.
+     *
+     * @param recipeCounts the recipe count per category id
+     * @param queriedVersion the version returned by {@link #getVersion()} before the counts were queried
+     */
+    public static synchronized void setCounts(SparseIntArray recipeCounts, long queriedVersion)
+    {
+        if(queriedVersion != version || writesInProgress > 0)
+        {
+            return;
+        }
+
+        counts = recipeCounts.clone();
+    }
+
+    /**
+     * Marks the start of a write changing the recipe counts. Must be followed by {@link #endChanges(SparseIntArray)}, even if the write failed.
+     */
+    public static synchronized void beginChanges()
+    {
+        writesInProgress++;
+        version++;
+    }
+
+    /**
+     * Marks the end of a write, and adds its changes in recipe count to the cached counts. The changes are ignored if the counts are not yet
+     * loaded, they will be queried from disk.
+     *
+     * @param committedChanges the change in recipe count per category id, negative for removed recipes. Null if the write was rolled back.
+     */
+    public static synchronized void endChanges(SparseIntArray committedChanges)
+    {
+        writesInProgress--;
+        version++;
+
+        if(counts == null || committedChanges == null)
+        {
+            return;
+        }
+
+        for(int i = 0; i < committedChanges.size(); i++)
+        {
+            int categoryId = committedChanges.keyAt(i);
+            counts.put(categoryId, counts.get(categoryId) + committedChanges.valueAt(i));
+        }
+    }
+
+    /**
+     * Removes the cached counts, the next request will query them from disk.
+     */
+    public static synchronized void clear()
+    {
+        counts = null;
+        version++;
+    }
+}
@@ -0,0 +1,417 @@
+package com.aaron.recipe.model;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteStatement;
+import android.util.SparseIntArray;
+
+import com.aaron.recipe.bean.Categories;
+import com.aaron.recipe.bean.Ingredient;
+import com.aaron.recipe.bean.Recipe;
+import com.aaron.recipe.bean.Unit;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnIngredients;
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnInstructions;
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnRecipe;
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnRecipeSearch;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_INGREDIENTS;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_INSTRUCTIONS;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_RECIPE;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_RECIPE_SEARCH;
+
+/**
+ * Writes a batch of recipes to the database. Each statement is compiled once and only its parameters are bound for every row.
+ * Must be used inside a transaction, and closed after the batch.
+ */
+class RecipeDatabaseWriter implements AutoCloseable
+{
+    // The date_in of recipes written by a sync that is not finished yet, older than any sync
+    static final long PENDING_DATE_IN = 0;
+    // The limit of bound variables per statement of SQLite before 3.32, shipped by Android up to API 30
+    static final int MAX_SQL_VARIABLES = 999;
+
+    private static final String FIND_RECIPE_ID = "SELECT " + ColumnRecipe.id.name() + " FROM " + TABLE_RECIPE +
+            " WHERE " + ColumnRecipe.server_id.name() + " = ?1 OR " + ColumnRecipe.title.name() + " = ?2" +
+            " ORDER BY " + ColumnRecipe.server_id.name() + " = ?1 DESC LIMIT 1";
+
+    private static final String FIND_RECIPE_CATEGORY_ID = "SELECT " + ColumnRecipe.category_id.name() + " FROM " + TABLE_RECIPE +
+            " WHERE " + ColumnRecipe.id.name() + " = ?";
+
+    private static final String INSERT_RECIPE = "INSERT INTO " + TABLE_RECIPE + "(" + ColumnRecipe.server_id.name() + ", " +
+            ColumnRecipe.title.name() + ", " + ColumnRecipe.category_id.name() + ", " + ColumnRecipe.preparation_time.name() + ", " +
+            ColumnRecipe.servings.name() + ", " + ColumnRecipe.description.name() + ", " + ColumnRecipe.date_in.name() + ")" +
+            " VALUES(?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_RECIPE = "UPDATE " + TABLE_RECIPE + " SET " +
+            ColumnRecipe.server_id.name() + " = COALESCE(?, " + ColumnRecipe.server_id.name() + "), " +
+            ColumnRecipe.title.name() + " = ?, " + ColumnRecipe.category_id.name() + " = ?, " + ColumnRecipe.preparation_time.name() + " = ?, " +
+            ColumnRecipe.servings.name() + " = ?, " + ColumnRecipe.description.name() + " = ?, " + ColumnRecipe.date_in.name() + " = ?" +
+            " WHERE " + ColumnRecipe.id.name() + " = ?";
+
+    private static final String INSERT_INGREDIENT = "INSERT INTO " + TABLE_INGREDIENTS + "(" + ColumnIngredients.recipe_id.name() + ", " +
+            ColumnIngredients.quantity.name() + ", " + ColumnIngredients.measurement.name() + ", " + ColumnIngredients.ingredient.name() + ", " +
+            ColumnIngredients.comment_.name() + ", " + ColumnIngredients.count.name() + ", " + ColumnIngredients.unit.name() + ", " +
+            ColumnIngredients.base_quantity.name() + ")" +
+            " VALUES(?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_INSTRUCTION = "INSERT INTO " + TABLE_INSTRUCTIONS + "(" + ColumnInstructions.recipe_id.name() + ", " +
+            ColumnInstructions.instruction.name() + ", " + ColumnInstructions.count.name() + ")" +
+            " VALUES(?, ?, ?)";
+
+    private static final String DELETE_INGREDIENTS_OF_RECIPE = "DELETE FROM " + TABLE_INGREDIENTS +
+            " WHERE " + ColumnIngredients.recipe_id.name() + " = ?";
+
+    private static final String DELETE_INSTRUCTIONS_OF_RECIPE = "DELETE FROM " + TABLE_INSTRUCTIONS +
+            " WHERE " + ColumnInstructions.recipe_id.name() + " = ?";
+
+    private static final String DELETE_RECIPE_SEARCH = "DELETE FROM " + TABLE_RECIPE_SEARCH +
+            " WHERE " + ColumnRecipeSearch.docid.name() + " = ?";
+
+    private static final String INSERT_RECIPE_SEARCH = "INSERT INTO " + TABLE_RECIPE_SEARCH + "(" + ColumnRecipeSearch.docid.name() + ", " +
+            ColumnRecipeSearch.title.name() + ", " + ColumnRecipeSearch.description.name() + ", " + ColumnRecipeSearch.ingredients.name() + ", " +
+            ColumnRecipeSearch.instructions.name() + ")" +
+            " VALUES(?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_PENDING_DATE_IN = "UPDATE " + TABLE_RECIPE + " SET " + ColumnRecipe.date_in.name() + " = ?" +
+            " WHERE " + ColumnRecipe.date_in.name() + " = " + PENDING_DATE_IN;
+
+    private final SQLiteDatabase db;
+    private final long dateIn;
+
+    private final SparseIntArray countChanges = new SparseIntArray();
+
+    private final SQLiteStatement findRecipeIdStatement;
+    private final SQLiteStatement findRecipeCategoryIdStatement;
+    private final SQLiteStatement insertRecipeStatement;
+    private final SQLiteStatement updateRecipeStatement;
+    private final SQLiteStatement insertIngredientStatement;
+    private final SQLiteStatement insertInstructionStatement;
+    private final SQLiteStatement deleteIngredientsStatement;
+    private final SQLiteStatement deleteInstructionsStatement;
+    private final SQLiteStatement deleteRecipeSearchStatement;
+    private final SQLiteStatement insertRecipeSearchStatement;
+
+    /**
+     * Compiles the statements of the writer.
+     *
+     * @param db
+     *            the database connection to use, with a transaction already started
+     * @param dateIn
+     *            the date_in of all the recipes in the batch, in epoch milliseconds
+     */
+    RecipeDatabaseWriter(SQLiteDatabase db, long dateIn)
+    {
+        this.db = db;
+        this.dateIn = dateIn;
+
+        this.findRecipeIdStatement = db.compileStatement(FIND_RECIPE_ID);
+        this.findRecipeCategoryIdStatement = db.compileStatement(FIND_RECIPE_CATEGORY_ID);
+        this.insertRecipeStatement = db.compileStatement(INSERT_RECIPE);
+        this.updateRecipeStatement = db.compileStatement(UPDATE_RECIPE);
+        this.insertIngredientStatement = db.compileStatement(INSERT_INGREDIENT);
+        this.insertInstructionStatement = db.compileStatement(INSERT_INSTRUCTION);
+        this.deleteIngredientsStatement = db.compileStatement(DELETE_INGREDIENTS_OF_RECIPE);
+        this.deleteInstructionsStatement = db.compileStatement(DELETE_INSTRUCTIONS_OF_RECIPE);
+        this.deleteRecipeSearchStatement = db.compileStatement(DELETE_RECIPE_SEARCH);
+        this.insertRecipeSearchStatement = db.compileStatement(INSERT_RECIPE_SEARCH);
+    }
+
+    /**
+     * Runs the writes in one transaction, with a writer closed at the end. The changes in recipe count are applied to {@link RecipeCountCache}
+     * only once the transaction is committed.
+     *
+     * @param db
+     *            the database connection to use, not in a transaction
+     * @param dateIn
+     *            the date_in of all the recipes written, in epoch milliseconds
+     * @param writes
+     *            the writes to run with the writer, other statements can be run on the connection
+     * @throws SQLiteException
+     *             if a write or the commit failed, nothing is written
+     */
+    static void writeInTransaction(SQLiteDatabase db, long dateIn, Consumer<RecipeDatabaseWriter> writes) throws SQLiteException
+    {
+        SparseIntArray committedChanges = null;
+        RecipeCountCache.beginChanges();
+
+        try
+        {
+            SparseIntArray countChanges;
+            db.beginTransaction();
+
+            try(RecipeDatabaseWriter writer = new RecipeDatabaseWriter(db, dateIn))
+            {
+                writes.accept(writer);
+                db.setTransactionSuccessful();
+                countChanges = writer.getCountChanges();
+            }
+            finally
+            {
+                db.endTransaction();
+            }
+
+            committedChanges = countChanges;
+        }
+        finally
+        {
+            RecipeCountCache.endChanges(committedChanges);
+        }
+    }
+
+    /**
+     * Sets the date_in of the recipes written with {@link #PENDING_DATE_IN}, once their sync is finished.
+     *
+     * @param db
+     *            the database connection to use
+     * @param dateIn
+     *            the date_in of the sync, in epoch milliseconds
+     */
+    static void markPendingRecipes(SQLiteDatabase db, long dateIn)
+    {
+        db.execSQL(UPDATE_PENDING_DATE_IN, new Object[] { dateIn });
+    }
+
+    /**
+     * Inserts the recipe, or updates it if it is already on disk. The ingredients and instructions of the recipe are replaced,
+     * and the recipe is indexed for full-text search.
+     *
+     * @param recipe
+     *            the recipe to save
+     * @return the local id of the recipe
+     * @throws SQLiteException
+     *             if an insert failed
+     */
+    long upsertRecipe(Recipe recipe) throws SQLiteException
+    {
+        long recipeId = findRecipeId(recipe);
+        if(recipeId == -1)
+        {
+            recipeId = insertRecipe(recipe);
+        }
+        else
+        {
+            updateRecipe(recipe, recipeId);
+            deleteIngredientsAndInstructions(recipeId);
+        }
+
+        int count = 1;
+        List<Ingredient> ingredientList = recipe.getIngredients().getIngredientsList();
+        for(Ingredient ingredient : ingredientList)
+        {
+            insertIngredient(count, ingredient, recipeId);
+            count++;
+        }
+
+        count = 1;
+        List<String> instructionsList = recipe.getInstructions().getInstructionsList();
+        for(String instruction : instructionsList)
+        {
+            insertInstruction(count, instruction, recipeId);
+            count++;
+        }
+
+        replaceRecipeSearch(recipe, recipeId);
+
+        return recipeId;
+    }
+
+    /**
+     * Finds the local id of the recipe, matched by its server id. Recipes saved before the server id was stored are matched by title.
+     *
+     * @return the local id of the recipe, or -1 if the recipe is not yet on disk
+     */
+    private long findRecipeId(Recipe recipe)
+    {
+        findRecipeIdStatement.bindLong(1, recipe.getServerId());
+        findRecipeIdStatement.bindString(2, recipe.getTitle());
+
+        try
+        {
+            return findRecipeIdStatement.simpleQueryForLong();
+        }
+        catch(SQLiteDoneException e)
+        {
+            return -1;
+        }
+    }
+
+    private long insertRecipe(Recipe recipe) throws SQLiteException
+    {
+        bindRecipeDetails(insertRecipeStatement, recipe);
+        long recipeId = validateInsert(insertRecipeStatement.executeInsert());
+
+        addCountChange(Categories.getId(recipe.getCategory()), 1);
+
+        return recipeId;
+    }
+
+    private void updateRecipe(Recipe recipe, long recipeId)
+    {
+        findRecipeCategoryIdStatement.bindLong(1, recipeId);
+        int previousCategoryId = (int) findRecipeCategoryIdStatement.simpleQueryForLong();
+
+        bindRecipeDetails(updateRecipeStatement, recipe);
+        updateRecipeStatement.bindLong(8, recipeId);
+        updateRecipeStatement.executeUpdateDelete();
+
+        addCountChange(previousCategoryId, -1);
+        addCountChange(Categories.getId(recipe.getCategory()), 1);
+    }
+
+    private void addCountChange(int categoryId, int change)
+    {
+        countChanges.put(categoryId, countChanges.get(categoryId) + change);
+    }
+
+    /**
+     * Returns the change in recipe count per category id, of all the recipes written and deleted by this writer.
+     *
+     * @return SparseIntArray
+     */
+    private SparseIntArray getCountChanges()
+    {
+        return countChanges;
+    }
+
+    private void bindRecipeDetails(SQLiteStatement statement, Recipe recipe)
+    {
+        if(recipe.getServerId() > 0)
+        {
+            statement.bindLong(1, recipe.getServerId());
+        }
+        else
+        {
+            statement.bindNull(1);
+        }
+        statement.bindString(2, recipe.getTitle());
+        statement.bindLong(3, Categories.getId(recipe.getCategory()));
+        statement.bindLong(4, recipe.getPreparationTime());
+        statement.bindLong(5, recipe.getServings());
+        statement.bindString(6, recipe.getDescription());
+        statement.bindLong(7, dateIn);
+    }
+
+    private void insertIngredient(int count, Ingredient ingredient, long recipeId) throws SQLiteException
+    {
+        insertIngredientStatement.bindLong(1, recipeId);
+        insertIngredientStatement.bindDouble(2, ingredient.getQuantity());
+        insertIngredientStatement.bindString(3, ingredient.getMeasurement());
+        insertIngredientStatement.bindString(4, ingredient.getIngredient());
+        insertIngredientStatement.bindString(5, ingredient.getComment());
+        insertIngredientStatement.bindLong(6, count);
+        // The measurement is parsed once when saved, the unit and the quantity in the base unit are read as is
+        Unit unit = ingredient.getUnit();
+        insertIngredientStatement.bindString(7, unit.name());
+        insertIngredientStatement.bindDouble(8, unit.toBaseQuantity(ingredient.getQuantity()));
+
+        validateInsert(insertIngredientStatement.executeInsert());
+    }
+
+    private void insertInstruction(int count, String instruction, long recipeId) throws SQLiteException
+    {
+        insertInstructionStatement.bindLong(1, recipeId);
+        insertInstructionStatement.bindString(2, instruction);
+        insertInstructionStatement.bindLong(3, count);
+
+        validateInsert(insertInstructionStatement.executeInsert());
+    }
+
+    private void replaceRecipeSearch(Recipe recipe, long recipeId) throws SQLiteException
+    {
+        deleteRecipeSearchStatement.bindLong(1, recipeId);
+        deleteRecipeSearchStatement.executeUpdateDelete();
+
+        StringBuilder ingredients = new StringBuilder();
+        for(Ingredient ingredient : recipe.getIngredients().getIngredientsList())
+        {
+            ingredients.append(ingredient.getIngredient()).append(' ');
+        }
+
+        insertRecipeSearchStatement.bindLong(1, recipeId);
+        insertRecipeSearchStatement.bindString(2, recipe.getTitle());
+        insertRecipeSearchStatement.bindString(3, recipe.getDescription());
+        insertRecipeSearchStatement.bindString(4, ingredients.toString());
+        insertRecipeSearchStatement.bindString(5, String.join(" ", recipe.getInstructions().getInstructionsList()));
+
+        validateInsert(insertRecipeSearchStatement.executeInsert());
+    }
+
+    private long validateInsert(long result) throws SQLiteException
+    {
+        if(result == -1)
+        {
+            throw new SQLiteException();
+        }
+
+        return result;
+    }
+
+    private void deleteIngredientsAndInstructions(long recipeId)
+    {
+        deleteIngredientsStatement.bindLong(1, recipeId);
+        deleteIngredientsStatement.executeUpdateDelete();
+
+        deleteInstructionsStatement.bindLong(1, recipeId);
+        deleteInstructionsStatement.executeUpdateDelete();
+    }
+
+    /**
+     * Deletes the recipes with the given server ids, including their ingredients and instructions.
+     * The ids are deleted in chunks, so each statement stays under the limit of bound variables.
+     *
+     * @param serverIds
+     *            the server ids of the recipes to delete
+     */
+    void deleteRecipesOfServerIds(List<Integer> serverIds)
+    {
+        for(int from = 0; from < serverIds.size(); from += MAX_SQL_VARIABLES)
+        {
+            deleteRecipesOfServerIdsChunk(serverIds.subList(from, Math.min(from + MAX_SQL_VARIABLES, serverIds.size())));
+        }
+    }
+
+    private void deleteRecipesOfServerIdsChunk(List<Integer> serverIds)
+    {
+        String[] whereArgs = serverIds.stream().map(String::valueOf).toArray(String[]::new);
+        String serverIdInClause = ColumnRecipe.server_id.name() + " IN (" + String.join(",", Collections.nCopies(whereArgs.length, "?")) + ")";
+        String recipeIdInClause = " IN (SELECT " + ColumnRecipe.id.name() + " FROM " + TABLE_RECIPE + " WHERE " + serverIdInClause + ")";
+
+        String categoriesQuery = "SELECT " + ColumnRecipe.category_id.name() + " FROM " + TABLE_RECIPE + " WHERE " + serverIdInClause;
+        try(Cursor cursor = db.rawQuery(categoriesQuery, whereArgs))
+        {
+            while(cursor.moveToNext())
+            {
+                addCountChange(cursor.getInt(0), -1);
+            }
+        }
+
+        db.delete(TABLE_RECIPE_SEARCH, ColumnRecipeSearch.docid.name() + recipeIdInClause, whereArgs);
+        db.delete(TABLE_INGREDIENTS, ColumnIngredients.recipe_id.name() + recipeIdInClause, whereArgs);
+        db.delete(TABLE_INSTRUCTIONS, ColumnInstructions.recipe_id.name() + recipeIdInClause, whereArgs);
+        db.delete(TABLE_RECIPE, serverIdInClause, whereArgs);
+    }
+
+    /**
+     * Releases the compiled statements.
+     */
+    @Override
+    public void close()
+    {
+        findRecipeIdStatement.close();
+        findRecipeCategoryIdStatement.close();
+        insertRecipeStatement.close();
+        updateRecipeStatement.close();
+        insertIngredientStatement.close();
+        insertInstructionStatement.close();
+        deleteIngredientsStatement.close();
+        deleteInstructionsStatement.close();
+        deleteRecipeSearchStatement.close();
+        insertRecipeSearchStatement.close();
+    }
+}
@@ -0,0 +1,136 @@
+package com.aaron.recipe.model;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnRecipeSearch;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_RECIPE_SEARCH;
+
+/**
+ * Searches the recipes in the full-text search table, every searched word is matched as a prefix.
+ * The results are ranked by the columns where the words matched, a match in the title weighs the most.
+ */
+class RecipeFullTextSearch
+{
+    // In the same order as the columns of the search table: title, description, ingredients, instructions
+    private static final double[] COLUMN_WEIGHTS = { 10.0, 2.0, 4.0, 1.0 };
+    private static final Pattern NON_WORD_CHARACTERS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final String SEARCH_QUERY = "SELECT " + ColumnRecipeSearch.docid.name() + ", matchinfo(" + TABLE_RECIPE_SEARCH + ", 'pcx')" +
+            " FROM " + TABLE_RECIPE_SEARCH +
+            " WHERE " + TABLE_RECIPE_SEARCH + " MATCH ?";
+
+    private RecipeFullTextSearch()
+    {
+    }
+
+    /**
+     * Searches the recipes containing all words of the searched text, in any of the indexed columns.
+     *
+     * @param db the database connection to use
+     * @param searchedText the text typed by the user
+     * @return the ids of the matched recipes, best match first
+     */
+    static List<Integer> search(SQLiteDatabase db, String searchedText)
+    {
+        String matchQuery = toMatchQuery(searchedText);
+        if(matchQuery == null)
+        {
+            return Collections.emptyList();
+        }
+
+        List<Match> matches = new ArrayList<>();
+        try(Cursor cursor = db.rawQuery(SEARCH_QUERY, new String[] { matchQuery }))
+        {
+            while(cursor.moveToNext())
+            {
+                matches.add(new Match(cursor.getInt(0), rank(cursor.getBlob(1))));
+            }
+        }
+
+        matches.sort(Comparator.comparingDouble((Match match) -> match.rank).reversed());
+
+        List<Integer> ids = new ArrayList<>(matches.size());
+        for(Match match : matches)
+        {
+            ids.add(match.id);
+        }
+
+        return ids;
+    }
+
+    /**
+     * Converts the searched text into an FTS query, where each word is a prefix query. e.g. "Garlic, rice" to "garlic* rice*"
+     *
+     * @param searchedText the text typed by the user
+     * @return the FTS query, or null if there is no word to search
+     */
+    static String toMatchQuery(String searchedText)
+    {
+        StringBuilder matchQuery = new StringBuilder();
+        for(String word : NON_WORD_CHARACTERS.split(searchedText.toLowerCase(Locale.getDefault())))
+        {
+            if(!word.isEmpty())
+            {
+                matchQuery.append(word).append("* ");
+            }
+        }
+
+        return matchQuery.length() == 0 ? null : matchQuery.toString().trim();
+    }
+
+    /**
+     * Ranks a matched row from its matchinfo 'pcx' values, the number of phrases and columns followed by
+     * (hits in this row, hits in all rows, rows with hits) for each phrase and column.
+     * Each hit is weighted by its column, and by how rare the phrase is in that column.
+     *
+     * @param matchinfo the matchinfo blob, 32-bit integers in the native byte order
+     * @return the rank, higher is better
+     */
+    static double rank(byte[] matchinfo)
+    {
+        IntBuffer values = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = values.get(0);
+        int columns = values.get(1);
+
+        double rank = 0;
+        for(int phrase = 0; phrase < phrases; phrase++)
+        {
+            for(int column = 0; column < columns && column < COLUMN_WEIGHTS.length; column++)
+            {
+                int index = 2 + 3 * (phrase * columns + column);
+                int hitsInRow = values.get(index);
+                int hitsInAllRows = values.get(index + 1);
+
+                if(hitsInRow > 0)
+                {
+                    rank += COLUMN_WEIGHTS[column] * hitsInRow / hitsInAllRows;
+                }
+            }
+        }
+
+        return rank;
+    }
+
+    private static class Match
+    {
+        private final int id;
+        private final double rank;
+
+        private Match(int id, double rank)
+        {
+            this.id = id;
+            this.rank = rank;
+        }
+    }
+}
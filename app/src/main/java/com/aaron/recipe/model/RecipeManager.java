@@ -6,6 +6,8 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.widget.Toast;
 
 import com.aaron.recipe.bean.Categories;
@@ -13,36 +15,42 @@ import com.aaron.recipe.bean.Ingredient;
 import com.aaron.recipe.bean.Ingredients;
 import com.aaron.recipe.bean.Instructions;
 import com.aaron.recipe.bean.Recipe;
-import com.aaron.recipe.response.ResponseIngredient;
-import com.aaron.recipe.response.ResponseInstruction;
-import com.aaron.recipe.response.ResponseRecipe;
-import com.aaron.recipe.response.ResponseRecipes;
+import com.aaron.recipe.bean.Unit;
 
+import org.threeten.bp.Instant;
 import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneId;
 
+import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
+import io.reactivex.Completable;
+import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Action;
 import io.reactivex.observers.DisposableSingleObserver;
 import io.reactivex.schedulers.Schedulers;
+import okhttp3.ResponseBody;
 
-import static com.aaron.recipe.model.MySQLiteHelper.COLUMN_COUNT;
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnCategories;
 import static com.aaron.recipe.model.MySQLiteHelper.ColumnIngredients;
 import static com.aaron.recipe.model.MySQLiteHelper.ColumnInstructions;
 import static com.aaron.recipe.model.MySQLiteHelper.ColumnRecipe;
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnSyncState;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_CATEGORIES;
 import static com.aaron.recipe.model.MySQLiteHelper.TABLE_INGREDIENTS;
 import static com.aaron.recipe.model.MySQLiteHelper.TABLE_INSTRUCTIONS;
 import static com.aaron.recipe.model.MySQLiteHelper.TABLE_RECIPE;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_RECIPE_SEARCH;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_SYNC_STATE;
 import static org.threeten.bp.format.DateTimeFormatter.ofPattern;
 
 /**
@@ -55,11 +63,16 @@ public class RecipeManager
     public static final String DEFAULT_LAST_UPDATED = "1950-01-01 00:00:00";
     public static final String DATE_FORMAT_DATABASE = "MMMM d, yyyy hh:mm:ss a";
     public static final String DATE_FORMAT_SHORT_24 = "yyyy-MM-dd HH:mm:ss";
+    // The recipes kept in memory at once while streaming a sync
+    private static final int STREAMED_RECIPES_BATCH = 50;
+    // The name of the sync state row of the paginated recipes sync
+    private static final String SYNC_STATE_RECIPES = "recipes";
 
     private static CompositeDisposable compositeDisposable = new CompositeDisposable();
 
     private MySQLiteHelper dbHelper;
-    private LocalDateTime dateIn;
+    // Epoch milliseconds, formatted only when shown
+    private long dateIn;
     private HttpClient httpClient;
     private WeakReference<Context> contextRef;
 
@@ -71,271 +84,216 @@ public class RecipeManager
      */
     public RecipeManager(final Context context)
     {
-        this.dbHelper = new MySQLiteHelper(context);
-        this.dateIn = LocalDateTime.now();
+        this.dbHelper = MySQLiteHelper.getInstance(context);
+        this.dateIn = System.currentTimeMillis();
         this.httpClient = new HttpClient(context);
         this.contextRef = new WeakReference<>(context);
     }
 
     /**
      * Does the following logic.
-     * (1) Retrieves the recipes from the server
-     * (2) Save to disk
+     * (1) Retrieves the recipes changed since the last sync from the server, one page at a time
+     * (2) Streams each page to disk while it is downloaded, see {@link RecipeStreamImporter}. The cursor of the next page is saved with the
+     * last batch of the page, so an interrupted sync resumes after its last saved page. The size of the pages adapts to the connection, see
+     * {@link AdaptivePageSize}.
      * (3) Execute Notification and updates in the UI
      *
      * @param doFinally the action to execute always at the end of this call
-     * @param updateRecipeListFragment the action to execute after the web call
+     * @param updateRecipeListFragment the action to execute after all the pages are saved
      */
-    public void updateRecipesFromWeb(Action doFinally, Consumer<ArrayList<Recipe>> updateRecipeListFragment)
+    public void updateRecipesFromWeb(Action doFinally, Runnable updateRecipeListFragment)
     {
-        Disposable disposable = httpClient.getRecipes(getLastUpdated(DATE_FORMAT_SHORT_24))
-                .subscribeOn(Schedulers.io())
+        Disposable disposable = Single.fromCallable(this::loadSyncCheckpoint)
+                .subscribeOn(DatabaseExecutor.reader())
+                .flatMap(this::syncRecipesPages)
                 .observeOn(AndroidSchedulers.mainThread())
                 .doFinally(doFinally)
-                .map(this::convertResponseRecipesToRecipes)
-                .map(this::saveRecipeListInDatabase)
-                .subscribeWith(updateRecipesFromWebObserver(updateRecipeListFragment));
+                .subscribeWith(savedRecipesCountObserver(updateRecipeListFragment));
 
         compositeDisposable.add(disposable);
     }
 
-    private List<Recipe> convertResponseRecipesToRecipes(ResponseRecipes responseRecipes)
+    /**
+     * Gets the checkpoint of the interrupted sync, or starts a new sync from the last updated date.
+     */
+    private SyncCheckpoint loadSyncCheckpoint()
     {
-        if(responseRecipes.getRecentlyAddedCount() <= 0)
+        SQLiteDatabase db = this.dbHelper.getReadableDatabase();
+        String[] columns = new String[] { ColumnSyncState.last_updated.name(), ColumnSyncState.cursor.name(), ColumnSyncState.page_size.name(), };
+        String whereClause = ColumnSyncState.name.name() + " = ?";
+
+        try(Cursor cursor = db.query(TABLE_SYNC_STATE, columns, whereClause, new String[] { SYNC_STATE_RECIPES }, null, null, null))
         {
-            return Collections.emptyList();
+            if(cursor.moveToFirst())
+            {
+                LogsManager.log(CLASS_NAME, "loadSyncCheckpoint", "Resuming sync. lastUpdated=" + cursor.getString(0) + " cursor=" + cursor.getString(1));
+
+                return new SyncCheckpoint(cursor.getString(0), cursor.getString(1), cursor.getInt(2));
+            }
         }
 
-        return responseRecipes.getRecipeList().stream().map(this::convertResponseRecipeIntoRecipe).collect(Collectors.toList());
+        return new SyncCheckpoint(getLastUpdated(DATE_FORMAT_SHORT_24), null, AdaptivePageSize.DEFAULT_SIZE);
     }
 
-    private Recipe convertResponseRecipeIntoRecipe(ResponseRecipe responseRecipe)
+    /**
+     * Fetches and saves the next page of the sync, then the pages after it until the last page is saved.
+     *
+     * @return the number of recipes saved by all the pages
+     */
+    private Single<Integer> syncRecipesPages(SyncCheckpoint checkpoint)
     {
-        return new Recipe()
-                .setTitle(responseRecipe.getTitle())
-                .setCategory(responseRecipe.getCategory())
-                .setServings(responseRecipe.getServings())
-                .setPreparationTime(responseRecipe.getPreparationTime())
-                .setDescription(responseRecipe.getDescription())
-                .setIngredients(convertResponseIngredientListIntoIngredients(responseRecipe.getTitle(), responseRecipe.getIngredientList()))
-                .setInstructions(convertResponseInstructionListIntoInstructions(responseRecipe.getTitle(), responseRecipe.getInstructionList()));
+        return Single.defer(() -> syncRecipesPage(checkpoint))
+                .subscribeOn(Schedulers.io())
+                .flatMap(isLastPage -> isLastPage ? Single.just(checkpoint.savedCount) : syncRecipesPages(checkpoint));
     }
 
-    private Ingredients convertResponseIngredientListIntoIngredients(String title, List<ResponseIngredient> responseIngredientList)
+    private Single<Boolean> syncRecipesPage(SyncCheckpoint checkpoint)
     {
-        List<Ingredient> ingredientList = responseIngredientList.stream().map(this::convertResponseIngredientIntoIngredient).collect(Collectors.toList());
-        return new Ingredients(title, ingredientList);
-    }
+        long start = System.nanoTime();
 
-    private Ingredient convertResponseIngredientIntoIngredient(ResponseIngredient responseIngredient)
-    {
-        return new Ingredient()
-                .setQuantity(responseIngredient.getQuantity())
-                .setMeasurement(responseIngredient.getMeasurement())
-                .setIngredient(responseIngredient.getIngredient())
-                .setComment(responseIngredient.getComment());
+        return httpClient.getRecipesPage(checkpoint.lastUpdated, checkpoint.cursor, checkpoint.pageSize.get())
+                .map(body -> saveRecipesPageInDatabase(checkpoint, body, start));
     }
 
-    private Instructions convertResponseInstructionListIntoInstructions(String title, List<ResponseInstruction> responseInstructionList)
+    /**
+     * Streams the recipes of the page into the database, in batches written on the database writer thread. The recipes are saved as
+     * pending. The last batch also saves the checkpoint of the next page, or on the last page sets the date_in of the pending recipes and
+     * deletes the checkpoint, so the last updated date only moves once the whole sync is saved.
+     *
+     * @param start the System.nanoTime() the page was requested at
+     * @return true if the page is the last page of the sync
+     * @throws IOException if the page cannot be read, the checkpoint of the previous page is kept
+     * @throws SQLiteException if the page cannot be saved, the checkpoint of the previous page is kept
+     */
+    private boolean saveRecipesPageInDatabase(SyncCheckpoint checkpoint, ResponseBody body, long start) throws IOException
     {
-        List<String> instructionsList = responseInstructionList.stream().map(ResponseInstruction::getInstruction).collect(Collectors.toList());
-        return new Instructions(title, instructionsList);
-    }
+        SQLiteDatabase db = this.dbHelper.getWritableDatabase();
+        RecipeStreamImporter importer = new RecipeStreamImporter(db, STREAMED_RECIPES_BATCH);
+        int savedCount;
 
-    private ArrayList<Recipe> saveRecipeListInDatabase(List<Recipe> recipes)
-    {
-        if(!recipes.isEmpty())
+        try(ResponseBody responseBody = body)
         {
-            boolean saveToDiskSuccess = saveRecipesToDisk(recipes);
-
-            if(saveToDiskSuccess)
-            {
-                return new ArrayList<>(recipes);
-            }
-            else
+            savedCount = importer.importRecipes(responseBody.byteStream(), (nextCursor, recipeCount) ->
             {
-                // Note: Handled as NullPointerException in onError(), because onSuccess paramter cannot be null
-                return null;
-            }
+                checkpoint.pageSize.onPageFetched(recipeCount, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+                if(nextCursor == null)
+                {
+                    RecipeDatabaseWriter.markPendingRecipes(db, dateIn);
+                    db.delete(TABLE_SYNC_STATE, ColumnSyncState.name.name() + " = ?", new String[] { SYNC_STATE_RECIPES });
+                }
+                else
+                {
+                    ContentValues values = new ContentValues();
+                    values.put(ColumnSyncState.name.name(), SYNC_STATE_RECIPES);
+                    values.put(ColumnSyncState.last_updated.name(), checkpoint.lastUpdated);
+                    values.put(ColumnSyncState.cursor.name(), nextCursor);
+                    values.put(ColumnSyncState.page_size.name(), checkpoint.pageSize.get());
+                    db.replaceOrThrow(TABLE_SYNC_STATE, null, values);
+                }
+            });
         }
+        finally
+        {
+            // The batches already written are kept even if the page failed
+            RecipeCache.clear();
+        }
+
+        checkpoint.cursor = importer.getNextCursor();
+        checkpoint.savedCount += savedCount;
 
-        return new ArrayList<>(0);
+        LogsManager.log(CLASS_NAME, "saveRecipesPageInDatabase", "upserted=" + savedCount + " nextPageSize=" + checkpoint.pageSize.get() +
+                " lastPage=" + (checkpoint.cursor == null));
+
+        return checkpoint.cursor == null;
     }
 
-    private DisposableSingleObserver<ArrayList<Recipe>> updateRecipesFromWebObserver(Consumer<ArrayList<Recipe>> updateFragment)
+    private DisposableSingleObserver<Integer> savedRecipesCountObserver(Runnable updateFragment)
     {
-        return new DisposableSingleObserver<ArrayList<Recipe>>()
+        return new DisposableSingleObserver<Integer>()
         {
             @Override
-            public void onSuccess(ArrayList<Recipe> recipes)
+            public void onSuccess(Integer savedCount)
             {
-                String message = determineToastMessageFromResult(recipes);
-
-                Context context = contextRef.get();
-                if(context != null)
-                {
-                    Toast.makeText(context, message, Toast.LENGTH_LONG).show();
-                }
-
-                updateFragment.accept(recipes);
-            }
-
-            private String determineToastMessageFromResult(ArrayList<Recipe> recipes)
-            {
-                String message;
-                if(recipes.isEmpty())
-                {
-                    message = "No new recipes available.";
-                }
-                else
-                {
-                    int newCount = recipes.size();
-                    if(newCount > 1)
-                    {
-                        message = newCount + " new recipes added.";
-                    }
-                    else
-                    {
-                        message = newCount + " new recipe added.";
-                    }
-                }
-
-                return message;
+                showSavedRecipesMessage(savedCount);
+                updateFragment.run();
             }
 
             @Override
             public void onError(Throwable e)
             {
-                Context context = contextRef.get();
-                if(context != null)
-                {
-                    String message;
-                    if(e instanceof NullPointerException)
-                    {
-                        message = "Failed saving to disk.";
-                    }
-                    else
-                    {
-                        message = e.getMessage();
-                    }
-
-                    Toast.makeText(context, "Error retrieving recipes: " + message, Toast.LENGTH_LONG).show();
-                }
-
-                LogsManager.log(CLASS_NAME, "onError", "Error retrieving recipes. Error: " + e.getMessage(), e);
+                showRetrievingRecipesError(e);
             }
         };
     }
 
-    /**
-     * Saves the given lists of recipes to the local database.
-     *
-     * @param recipeList the recipe lists to be stored
-     * @return true on success, else false
-     */
-    private boolean saveRecipesToDisk(final List<Recipe> recipeList)
+    private void showSavedRecipesMessage(int savedCount)
     {
-        SQLiteDatabase db = this.dbHelper.getWritableDatabase();
-
-        try
+        String message;
+        if(savedCount == 0)
         {
-            db.beginTransaction();
-            // Delete recipes. To ensure no duplicates, if existing recipes are modified in the server.
-            this.deleteQuery(db);
-
-            // Iterate each recipe of a particular category
-            for(Recipe recipe : recipeList)
-            {
-                insertRecipeToDatabase(db, recipe);
-            }
-
-            db.setTransactionSuccessful();
+            message = "No new recipes available.";
         }
-        catch(SQLiteException e)
+        else if(savedCount > 1)
         {
-            LogsManager.log(CLASS_NAME, "saveToDisk", e.getMessage(), e);
-            return false;
+            message = savedCount + " new recipes added.";
         }
-        finally
+        else
         {
-            db.endTransaction();
-            db.close();
+            message = savedCount + " new recipe added.";
         }
 
-        LogsManager.log(CLASS_NAME, "saveToDisk", "");
-
-        return true;
-    }
-
-    private void insertRecipeToDatabase(SQLiteDatabase db, Recipe recipe) throws SQLiteException
-    {
-        long recipeId = insertRecipeDetailsToDatabase(db, recipe);
-        validateInsert(recipeId);
-
-        int count = 1;
-        List<Ingredient> ingredientList = recipe.getIngredients().getIngredientsList();
-        for(Ingredient ingredient : ingredientList)
+        Context context = contextRef.get();
+        if(context != null)
         {
-            long result = insertIngredientToDatabase(count, db, ingredient, recipeId);
-            validateInsert(result);
-            count++;
-        }
-
-        count = 1;
-        List<String> instructionsList = recipe.getInstructions().getInstructionsList();
-        for(String instruction : instructionsList)
-        {
-            long result = insertInstructionToDatabase(count, db, instruction, recipeId);
-            validateInsert(result);
-            count++;
+            Toast.makeText(context, message, Toast.LENGTH_LONG).show();
         }
     }
 
-    private void validateInsert(long result) throws SQLiteException
+    private void showRetrievingRecipesError(Throwable e)
     {
-        if(result == -1)
+        Context context = contextRef.get();
+        if(context != null)
         {
-            throw new SQLiteException();
+            String message;
+            if(e instanceof SQLiteException)
+            {
+                message = "Failed saving to disk.";
+            }
+            else
+            {
+                message = e.getMessage();
+            }
+
+            Toast.makeText(context, "Error retrieving recipes: " + message, Toast.LENGTH_LONG).show();
         }
-    }
 
-    private long insertRecipeDetailsToDatabase(SQLiteDatabase db, Recipe recipe)
-    {
-        ContentValues recipeValues = new ContentValues();
-        recipeValues.put(ColumnRecipe.title.name(), recipe.getTitle());
-        recipeValues.put(ColumnRecipe.category_id.name(), Categories.getId(recipe.getCategory()));
-        recipeValues.put(ColumnRecipe.preparation_time.name(), recipe.getPreparationTime());
-        recipeValues.put(ColumnRecipe.servings.name(), recipe.getServings());
-        recipeValues.put(ColumnRecipe.description.name(), recipe.getDescription());
-        recipeValues.put(ColumnRecipe.date_in.name(), dateIn.format(ofPattern(DATE_FORMAT_DATABASE)));
-        return db.insert(TABLE_RECIPE, null, recipeValues);
+        LogsManager.log(CLASS_NAME, "onError", "Error retrieving recipes. Error: " + e.getMessage(), e);
     }
 
-    private long insertIngredientToDatabase(int count, SQLiteDatabase db, Ingredient ingredient, long recipeId)
+    /**
+     * Gets the latest date_in of the recipes. The MAX() is a single lookup in the date_in index.
+     *
+     * @return the epoch milliseconds, or -1 if there are no recipes
+     */
+    public long getLastUpdatedMillis()
     {
-        ContentValues ingredientsValues = new ContentValues();
-        ingredientsValues.put(ColumnIngredients.recipe_id.name(), recipeId);
-        ingredientsValues.put(ColumnIngredients.quantity.name(), ingredient.getQuantity());
-        ingredientsValues.put(ColumnIngredients.measurement.name(), ingredient.getMeasurement());
-        ingredientsValues.put(ColumnIngredients.ingredient.name(), ingredient.getIngredient());
-        ingredientsValues.put(ColumnIngredients.comment_.name(), ingredient.getComment());
-        ingredientsValues.put(ColumnIngredients.count.name(), count);
-
-        return db.insert(TABLE_INGREDIENTS, null, ingredientsValues);
-    }
+        SQLiteDatabase db = this.dbHelper.getReadableDatabase();
+        String[] columns = new String[] { "MAX(" + ColumnRecipe.date_in.name() + ")", };
 
-    private long insertInstructionToDatabase(int count, SQLiteDatabase db, String instruction, long recipeId)
-    {
-        ContentValues instructionsValues = new ContentValues();
-        instructionsValues.put(ColumnInstructions.recipe_id.name(), recipeId);
-        instructionsValues.put(ColumnInstructions.instruction.name(), instruction);
-        instructionsValues.put(ColumnInstructions.count.name(), count);
+        try(Cursor cursor = db.query(TABLE_RECIPE, columns, null, null, null, null, null))
+        {
+            if(cursor.moveToFirst() && !cursor.isNull(0))
+            {
+                return cursor.getLong(0);
+            }
+        }
 
-        return db.insert(TABLE_INSTRUCTIONS, null, instructionsValues);
+        return -1;
     }
 
     /**
-     * Gets the latest date_in of the recipes.
+     * Gets the latest date_in of the recipes, formatted in the system time zone.
      *
      * @param format
      *            the date format used in formatting the last_updated date
@@ -343,27 +301,14 @@ public class RecipeManager
      */
     public String getLastUpdated(final String format)
     {
-        String lastUpdatedDate = DEFAULT_LAST_UPDATED;
-        SQLiteDatabase db = this.dbHelper.getReadableDatabase();
-        String[] columns = new String[] { ColumnRecipe.date_in.name(), };
-        String orderBy = ColumnRecipe.date_in.name() + " DESC";
-        String limit = "1";
-
-        try(Cursor cursor = db.query(TABLE_RECIPE, columns, null, null, null, null, orderBy, limit))
+        long lastUpdatedMillis = getLastUpdatedMillis();
+        if(lastUpdatedMillis < 0)
         {
-            if(cursor.moveToFirst())
-            {
-                lastUpdatedDate = cursor.getString(0);
-            }
-            else
-            {
-                return lastUpdatedDate;
-            }
+            return DEFAULT_LAST_UPDATED;
         }
 
-        // Parse String to LocalDateTime, to be able to format properly.
-        LocalDateTime date = LocalDateTime.parse(lastUpdatedDate, ofPattern(DATE_FORMAT_DATABASE));
-        lastUpdatedDate = ofPattern(format).format(date);
+        LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(lastUpdatedMillis), ZoneId.systemDefault());
+        String lastUpdatedDate = ofPattern(format).format(date);
 
         LogsManager.log(CLASS_NAME, "getLastUpdated", "lastUpdatedDate=" + lastUpdatedDate);
 
@@ -372,23 +317,38 @@ public class RecipeManager
 
     /**
      * Gets the current recipe count per category, and returns them as an HashMap.
+     * The counts are served from {@link RecipeCountCache}, only the first call queries the disk.
      *
      * @return {@code HashMap<String, Integer>}
      */
     public Map<String, Integer> getRecipesCount()
     {
         Map<String, Integer> map = new TreeMap<>();
-        SQLiteDatabase db = this.dbHelper.getReadableDatabase();
-        String whereClause = ColumnRecipe.category_id.name() + " = ?";
+        Map<Integer, String> categoriesMap = Categories.getCategoriesMap();
 
-        for(Map.Entry<Integer, String> entry : Categories.getCategoriesMap().entrySet())
+        SparseIntArray counts = RecipeCountCache.getCounts();
+        if(counts == null)
         {
-            Integer id = entry.getKey();
-            String category = entry.getValue();
+            long queriedVersion = RecipeCountCache.getVersion();
+            counts = queryRecipesCount(map);
+            RecipeCountCache.setCounts(counts, queriedVersion);
+        }
 
+        for(int i = 0; i < counts.size(); i++)
+        {
+            String category = categoriesMap.get(counts.keyAt(i));
+            if(category != null)
+            {
+                map.put(category, counts.valueAt(i));
+            }
+        }
+
+        // Categories without recipes
+        for(String category : categoriesMap.values())
+        {
             if(!Categories.DEFAULT.equals(category))
             {
-                putRecipeCountOfCategoryToMap(map, id, category, db, whereClause);
+                map.putIfAbsent(category, 0);
             }
         }
 
@@ -397,19 +357,41 @@ public class RecipeManager
         return map;
     }
 
-    private void putRecipeCountOfCategoryToMap(Map<String, Integer> map, Integer id, String category, SQLiteDatabase db, String whereClause)
+    /**
+     * Counts the recipes of all categories in one query.
+     *
+     * @param map where the counts of categories not yet in the categories cache are put, using the category name on disk
+     * @return the recipe count per category id
+     */
+    private SparseIntArray queryRecipesCount(Map<String, Integer> map)
     {
-        try(Cursor cursor = db.query(TABLE_RECIPE, COLUMN_COUNT, whereClause, new String[] { id.toString() }, null, null, null))
+        String query = "SELECT r." + ColumnRecipe.category_id.name() + ", c." + ColumnCategories.name.name() + ", COUNT(*)" +
+                " FROM " + TABLE_RECIPE + " r" +
+                " LEFT JOIN " + TABLE_CATEGORIES + " c ON c." + ColumnCategories.id.name() + " = r." + ColumnRecipe.category_id.name() +
+                " GROUP BY r." + ColumnRecipe.category_id.name();
+
+        SparseIntArray counts = new SparseIntArray();
+        try(Cursor cursor = this.dbHelper.getReadableDatabase().rawQuery(query, null))
         {
-            if(cursor.moveToFirst())
+            while(cursor.moveToNext())
             {
-                map.put(category, cursor.getInt(0));
+                int categoryId = cursor.getInt(0);
+                int count = cursor.getInt(2);
+                counts.put(categoryId, count);
+
+                if(!cursor.isNull(1) && !Categories.getCategoriesMap().containsKey(categoryId))
+                {
+                    map.put(cursor.getString(1), count);
+                }
             }
         }
+
+        return counts;
     }
 
     /**
      * Does the following logic. (1) Retrieves the recipes from the local disk. (2) Returns the recipe list of the selected Category.
+     * The recipes, ingredients and instructions are each loaded with a single query, regardless of the number of recipes.
      *
      * @param selectedCategory
      *            the current selected category in the settings
@@ -417,28 +399,267 @@ public class RecipeManager
      */
     public ArrayList<Recipe> getRecipesFromDisk(final String selectedCategory)
     {
-        ArrayList<Recipe> list;
-        try(SQLiteDatabase db = this.dbHelper.getReadableDatabase())
+        SQLiteDatabase db = this.dbHelper.getReadableDatabase();
+        String whereClause = getCategoryWhereClause(selectedCategory);
+        String[] whereArgs = getCategoryWhereArgs(selectedCategory);
+
+        ArrayList<Recipe> list = this.queryRecipes(db, whereClause, whereArgs);
+        this.loadIngredientsAndInstructionsOfRecipes(db, list, whereClause, whereArgs);
+
+        LogsManager.log(CLASS_NAME, "getRecipesFromDisk", "category=" + selectedCategory);
+
+        return list;
+    }
+
+    /**
+     * Retrieves the recipes of the selected Category from the local disk, without its ingredients and instructions.
+     * Used for listing the recipes, the ingredients and instructions are loaded on demand with {@link #getRecipeDetails(Recipe)}.
+     * The summaries are also cached in {@link RecipeCache}, the other screens resolve the recipes by id.
+     *
+     * @param selectedCategory
+     *            the current selected category in the settings
+     * @return ArrayList<Recipe>
+     */
+    public ArrayList<Recipe> getRecipeSummariesFromDisk(final String selectedCategory)
+    {
+        SQLiteDatabase db = this.dbHelper.getReadableDatabase();
+        ArrayList<Recipe> list = this.queryRecipes(db, getCategoryWhereClause(selectedCategory), getCategoryWhereArgs(selectedCategory));
+        RecipeCache.putRecipes(list);
+
+        LogsManager.log(CLASS_NAME, "getRecipeSummariesFromDisk", "category=" + selectedCategory);
+
+        return list;
+    }
+
+    /**
+     * Returns the given recipe with its ingredients and instructions. Recently loaded recipes are served from {@link RecipeCache}.
+     *
+     * @param recipe
+     *            the recipe, may only be a summary
+     * @return the recipe with ingredients and instructions
+     */
+    public Recipe getRecipeDetails(final Recipe recipe)
+    {
+        if(recipe.hasDetails())
         {
-            String[] columns = new String[] { ColumnRecipe.id.name(), ColumnRecipe.title.name(),
-                    ColumnRecipe.category_id.name(), ColumnRecipe.preparation_time.name(),
-                    ColumnRecipe.servings.name(), ColumnRecipe.description.name() };
-            String whereClause;
-            String[] whereArgs;
-            String orderBy = ColumnRecipe.title.name() + " ASC";
+            return recipe;
+        }
+
+        Recipe hydratedRecipe = RecipeCache.getHydratedRecipe(recipe.getId());
+        if(hydratedRecipe != null)
+        {
+            return hydratedRecipe;
+        }
+
+        hydratedRecipe = new Recipe(recipe.getId(), recipe.getTitle(), recipe.getCategory(), recipe.getServings(), recipe.getPreparationTime(),
+                recipe.getDescription(), null, null).setServerId(recipe.getServerId());
+        SQLiteDatabase db = this.dbHelper.getReadableDatabase();
+        String whereClause = ColumnRecipe.id.name() + " = ?";
+        String[] whereArgs = new String[] { String.valueOf(recipe.getId()) };
+
+        this.loadIngredientsAndInstructionsOfRecipes(db, Collections.singletonList(hydratedRecipe), whereClause, whereArgs);
+
+        RecipeCache.putHydratedRecipe(hydratedRecipe);
 
-            if(Categories.DEFAULT.equals(selectedCategory))
+        LogsManager.log(CLASS_NAME, "getRecipeDetails", "id=" + recipe.getId());
+
+        return hydratedRecipe;
+    }
+
+    /**
+     * Returns the recipe with the given id with its ingredients and instructions. Served from {@link RecipeCache} when possible, else loaded
+     * from disk, e.g. when the process was restarted while showing the recipe.
+     *
+     * @param id
+     *            the id of the recipe
+     * @return the recipe with ingredients and instructions, or null if the recipe no longer exists
+     */
+    public Recipe getRecipe(final int id)
+    {
+        Recipe recipe = RecipeCache.getRecipe(id);
+        if(recipe == null)
+        {
+            List<Recipe> recipes = this.queryRecipes(this.dbHelper.getReadableDatabase(), ColumnRecipe.id.name() + " = ?",
+                    new String[] { String.valueOf(id) });
+            if(recipes.isEmpty())
             {
-                whereClause = null;
-                whereArgs = null;
+                LogsManager.log(CLASS_NAME, "getRecipe", "Recipe not found. id=" + id);
+                return null;
             }
-            else
+
+            recipe = recipes.get(0);
+        }
+
+        return this.getRecipeDetails(recipe);
+    }
+
+    /**
+     * Retrieves the recipe summaries of the selected Category on a database reader thread.
+     *
+     * @param selectedCategory
+     *            the current selected category in the settings
+     * @return Single, emits on the main thread
+     * @see #getRecipeSummariesFromDisk(String)
+     */
+    public Single<ArrayList<Recipe>> loadRecipeSummaries(final String selectedCategory)
+    {
+        return DatabaseExecutor.read(() -> getRecipeSummariesFromDisk(selectedCategory));
+    }
+
+    /**
+     * Loads the ingredients and instructions of the recipe on a database reader thread, unless they are already loaded or cached.
+     *
+     * @param recipe
+     *            the recipe, may only be a summary
+     * @return Single, emits on the main thread
+     * @see #getRecipeDetails(Recipe)
+     */
+    public Single<Recipe> loadRecipeDetails(final Recipe recipe)
+    {
+        Recipe hydratedRecipe = recipe.hasDetails() ? recipe : RecipeCache.getHydratedRecipe(recipe.getId());
+        if(hydratedRecipe != null)
+        {
+            return Single.just(hydratedRecipe);
+        }
+
+        return DatabaseExecutor.read(() -> getRecipeDetails(recipe));
+    }
+
+    /**
+     * Loads the recipe with its ingredients and instructions on a database reader thread, unless it is already cached.
+     *
+     * @param id
+     *            the id of the recipe
+     * @return Single, emits on the main thread, or an error if the recipe no longer exists
+     * @see #getRecipe(int)
+     */
+    public Single<Recipe> loadRecipe(final int id)
+    {
+        Recipe hydratedRecipe = RecipeCache.getHydratedRecipe(id);
+        if(hydratedRecipe != null)
+        {
+            return Single.just(hydratedRecipe);
+        }
+
+        return DatabaseExecutor.read(() -> getRecipe(id));
+    }
+
+    /**
+     * Loads the ingredients and instructions of the recipes that are not cached yet on a database reader thread, so their pages are shown
+     * without waiting for the disk. The loaded recipes are kept in {@link RecipeCache}.
+     *
+     * @param ids
+     *            the ids of the recipes
+     * @return Single, emits the number of recipes loaded from disk on the main thread
+     */
+    public Single<Integer> prefetchRecipes(final int[] ids)
+    {
+        return DatabaseExecutor.read(() ->
+        {
+            int loaded = 0;
+            for(int id : ids)
             {
-                whereClause = ColumnRecipe.category_id.name() + " = ?";
-                whereArgs = new String[] { String.valueOf(Categories.getId(selectedCategory)) };
+                if(RecipeCache.getHydratedRecipe(id) == null && getRecipe(id) != null)
+                {
+                    loaded++;
+                }
             }
 
-            Cursor cursor = db.query(TABLE_RECIPE, columns, whereClause, whereArgs, null, null, orderBy);
+            return loaded;
+        });
+    }
+
+    /**
+     * Gets the latest date_in of the recipes on a database reader thread.
+     *
+     * @param format
+     *            the date format used in formatting the last_updated date
+     * @return Single, emits on the main thread
+     * @see #getLastUpdated(String)
+     */
+    public Single<String> loadLastUpdated(final String format)
+    {
+        return DatabaseExecutor.read(() -> getLastUpdated(format));
+    }
+
+    /**
+     * Gets the current recipe count per category on a database reader thread.
+     *
+     * @return Single, emits on the main thread
+     * @see #getRecipesCount()
+     */
+    public Single<Map<String, Integer>> loadRecipesCount()
+    {
+        return DatabaseExecutor.read(this::getRecipesCount);
+    }
+
+    /**
+     * Searches the recipes whose title, description, ingredients or instructions contain words starting with the searched words.
+     *
+     * @param searchedText
+     *            the text typed by the user
+     * @return the ids of the matched recipes, best match first
+     */
+    public List<Integer> searchRecipeIds(final String searchedText)
+    {
+        List<Integer> ids = RecipeFullTextSearch.search(this.dbHelper.getReadableDatabase(), searchedText);
+
+        LogsManager.log(CLASS_NAME, "searchRecipeIds", "searchedText=" + searchedText + " matches=" + ids.size());
+
+        return ids;
+    }
+
+    /**
+     * Searches the recipes on a database reader thread.
+     *
+     * @param searchedText
+     *            the text typed by the user
+     * @return Single, emits on the main thread
+     * @see #searchRecipeIds(String)
+     */
+    public Single<List<Integer>> loadSearchedRecipeIds(final String searchedText)
+    {
+        return DatabaseExecutor.read(() -> searchRecipeIds(searchedText));
+    }
+
+    private String getCategoryWhereClause(final String selectedCategory)
+    {
+        if(Categories.DEFAULT.equals(selectedCategory))
+        {
+            return null;
+        }
+
+        return ColumnRecipe.category_id.name() + " = ?";
+    }
+
+    private String[] getCategoryWhereArgs(final String selectedCategory)
+    {
+        if(Categories.DEFAULT.equals(selectedCategory))
+        {
+            return null;
+        }
+
+        return new String[] { String.valueOf(Categories.getId(selectedCategory)) };
+    }
+
+    /**
+     * Retrieves the recipes, joined with the categories table to get the category name.
+     * The categories may still be loading into the cache in the background, when the first recipes are queried.
+     */
+    private ArrayList<Recipe> queryRecipes(SQLiteDatabase db, String whereClause, String[] whereArgs)
+    {
+        String query = "SELECT r." + ColumnRecipe.id.name() + ", r." + ColumnRecipe.title.name() +
+                ", r." + ColumnRecipe.category_id.name() + ", r." + ColumnRecipe.preparation_time.name() +
+                ", r." + ColumnRecipe.servings.name() + ", r." + ColumnRecipe.description.name() +
+                ", r." + ColumnRecipe.server_id.name() + ", c." + ColumnCategories.name.name() +
+                " FROM " + TABLE_RECIPE + " r" +
+                " LEFT JOIN " + TABLE_CATEGORIES + " c ON c." + ColumnCategories.id.name() + " = r." + ColumnRecipe.category_id.name() +
+                (whereClause == null ? "" : " WHERE r." + whereClause) +
+                " ORDER BY r." + ColumnRecipe.title.name() + " ASC";
+
+        ArrayList<Recipe> list;
+        try(Cursor cursor = db.rawQuery(query, whereArgs))
+        {
             list = new ArrayList<>(cursor.getCount());
 
             if(cursor.moveToFirst())
@@ -450,13 +671,11 @@ public class RecipeManager
             }
         }
 
-        LogsManager.log(CLASS_NAME, "getRecipesFromDisk", "category=" + selectedCategory);
-
         return list;
     }
 
     /**
-     * Retrieves the recipe from the cursor.
+     * Retrieves the recipe from the cursor, without its ingredients and instructions.
      *
      * @param cursor
      *            the cursor resulting from a query
@@ -466,59 +685,119 @@ public class RecipeManager
     {
         int id = cursor.getInt(0);
         String title = cursor.getString(1);
-        String category = Categories.getCategoriesMap().get(cursor.getInt(2));
+        String category = cursor.isNull(7) ? Categories.getCategoriesMap().get(cursor.getInt(2)) : cursor.getString(7);
         int preparationTime = cursor.getInt(3);
         int servings = cursor.getInt(4);
         String description = cursor.getString(5);
-        String orderBy = ColumnIngredients.count.name() + " ASC";
+        int serverId = cursor.getInt(6);
 
-        SQLiteDatabase db = this.dbHelper.getReadableDatabase();
+        return new Recipe().setId(id).setServerId(serverId).setTitle(title).setCategory(category).setServings(servings)
+                .setPreparationTime(preparationTime).setDescription(description);
+    }
 
-        String[] ingredientsColumns = new String[] { ColumnIngredients.quantity.name(), ColumnIngredients.measurement.name(),
-                ColumnIngredients.ingredient.name(), ColumnIngredients.comment_.name() };
-        String[] instructionsColumns = new String[] { ColumnInstructions.instruction.name() };
-        String whereClause = ColumnIngredients.recipe_id.name() + " = ?";
-        String[] whereArgs = new String[] { String.valueOf(id) };
+    /**
+     * Loads the ingredients and instructions of the given recipes, using the same filter used in retrieving the recipes.
+     *
+     * @param db the database connection to use
+     * @param recipes the recipes where the ingredients and instructions will be added
+     * @param whereClause the where clause used in retrieving the recipes
+     * @param whereArgs the arguments of the where clause
+     */
+    private void loadIngredientsAndInstructionsOfRecipes(SQLiteDatabase db, List<Recipe> recipes, String whereClause, String[] whereArgs)
+    {
+        SparseArray<Recipe> recipesById = new SparseArray<>(recipes.size());
+        for(Recipe recipe : recipes)
+        {
+            recipe.setIngredients(new Ingredients(recipe.getTitle(), 0)).setInstructions(new Instructions(recipe.getTitle(), 0));
+            recipesById.put(recipe.getId(), recipe);
+        }
 
-        Ingredients ingredients;
-        try(Cursor ingredientCursor = db.query(TABLE_INGREDIENTS, ingredientsColumns, whereClause, whereArgs, null, null, orderBy))
+        if(!recipes.isEmpty())
         {
-            ingredients = new Ingredients(title, ingredientCursor.getCount());
+            String recipeWhereClause = whereClause == null ? "" : " WHERE r." + whereClause;
+            this.loadIngredientsOfRecipes(db, recipesById, recipeWhereClause, whereArgs);
+            this.loadInstructionsOfRecipes(db, recipesById, recipeWhereClause, whereArgs);
+        }
+    }
 
-            if(ingredientCursor.moveToFirst())
+    /**
+     * Loads the ingredients of all the given recipes in one query, joined with the recipe table to apply the same filter used in retrieving the
+     * recipes. The rows are sorted by recipe, so each recipe is only looked up once.
+     *
+     * @param db the database connection to use
+     * @param recipesById the recipes where the ingredients will be added
+     * @param recipeWhereClause the where clause used in retrieving the recipes, aliased to the recipe table
+     * @param whereArgs the arguments of the where clause
+     */
+    private void loadIngredientsOfRecipes(SQLiteDatabase db, SparseArray<Recipe> recipesById, String recipeWhereClause, String[] whereArgs)
+    {
+        String query = "SELECT i." + ColumnIngredients.recipe_id.name() + ", i." + ColumnIngredients.quantity.name() +
+                ", i." + ColumnIngredients.measurement.name() + ", i." + ColumnIngredients.ingredient.name() +
+                ", i." + ColumnIngredients.comment_.name() + ", i." + ColumnIngredients.unit.name() +
+                " FROM " + TABLE_INGREDIENTS + " i" +
+                " INNER JOIN " + TABLE_RECIPE + " r ON r." + ColumnRecipe.id.name() + " = i." + ColumnIngredients.recipe_id.name() +
+                recipeWhereClause +
+                " ORDER BY i." + ColumnIngredients.recipe_id.name() + ", i." + ColumnIngredients.count.name();
+
+        try(Cursor cursor = db.rawQuery(query, whereArgs))
+        {
+            int currentRecipeId = -1;
+            Ingredients currentIngredients = null;
+
+            while(cursor.moveToNext())
             {
-                do
+                int recipeId = cursor.getInt(0);
+                if(currentIngredients == null || recipeId != currentRecipeId)
                 {
-                    Ingredient ingredient = new Ingredient()
-                            .setQuantity(ingredientCursor.getDouble(0))
-                            .setMeasurement(ingredientCursor.getString(1))
-                            .setIngredient(ingredientCursor.getString(2))
-                            .setComment(ingredientCursor.getString(3));
-                    ingredients.addIngredient(ingredient);
-                } while(ingredientCursor.moveToNext());
+                    currentRecipeId = recipeId;
+                    currentIngredients = recipesById.get(recipeId).getIngredients();
+                }
+
+                Ingredient ingredient = new Ingredient()
+                        .setQuantity(cursor.getDouble(1))
+                        .setMeasurement(cursor.getString(2))
+                        .setIngredient(cursor.getString(3))
+                        .setComment(cursor.getString(4))
+                        .setUnit(Unit.fromName(cursor.getString(5)));
+                currentIngredients.addIngredient(ingredient);
             }
         }
+    }
 
-        whereClause = ColumnInstructions.recipe_id.name() + " = ?";
-        Instructions instructions;
-        try(Cursor instructionCursor = db.query(TABLE_INSTRUCTIONS, instructionsColumns, whereClause, whereArgs, null, null, orderBy))
+    /**
+     * Loads the instructions of all the given recipes in one query, joined with the recipe table to apply the same filter used in retrieving the
+     * recipes. The rows are sorted by recipe, so each recipe is only looked up once.
+     *
+     * @param db the database connection to use
+     * @param recipesById the recipes where the instructions will be added
+     * @param recipeWhereClause the where clause used in retrieving the recipes, aliased to the recipe table
+     * @param whereArgs the arguments of the where clause
+     */
+    private void loadInstructionsOfRecipes(SQLiteDatabase db, SparseArray<Recipe> recipesById, String recipeWhereClause, String[] whereArgs)
+    {
+        String query = "SELECT i." + ColumnInstructions.recipe_id.name() + ", i." + ColumnInstructions.instruction.name() +
+                " FROM " + TABLE_INSTRUCTIONS + " i" +
+                " INNER JOIN " + TABLE_RECIPE + " r ON r." + ColumnRecipe.id.name() + " = i." + ColumnInstructions.recipe_id.name() +
+                recipeWhereClause +
+                " ORDER BY i." + ColumnInstructions.recipe_id.name() + ", i." + ColumnInstructions.count.name();
+
+        try(Cursor cursor = db.rawQuery(query, whereArgs))
         {
-            instructions = new Instructions(title, instructionCursor.getCount());
+            int currentRecipeId = -1;
+            Instructions currentInstructions = null;
 
-            if(instructionCursor.moveToFirst())
+            while(cursor.moveToNext())
             {
-                do
+                int recipeId = cursor.getInt(0);
+                if(currentInstructions == null || recipeId != currentRecipeId)
                 {
-                    String instruction = instructionCursor.getString(0);
+                    currentRecipeId = recipeId;
+                    currentInstructions = recipesById.get(recipeId).getInstructions();
+                }
 
-                    instructions.addInstruction(instruction);
-                } while(instructionCursor.moveToNext());
+                currentInstructions.addInstruction(cursor.getString(1));
             }
         }
-
-        return new Recipe().setId(id).setTitle(title).setCategory(category).setServings(servings)
-                .setPreparationTime(preparationTime).setDescription(description)
-                .setIngredients(ingredients).setInstructions(instructions);
     }
 
     /**
@@ -526,16 +805,38 @@ public class RecipeManager
      */
     public void deleteRecipeFromDisk()
     {
-        try(SQLiteDatabase db = this.dbHelper.getWritableDatabase())
-        {
-            int result = this.deleteQuery(db);
+        SQLiteDatabase db = this.dbHelper.getWritableDatabase();
+        int result;
 
-            Log.d(LogsManager.TAG, CLASS_NAME + ": deleteRecipeFromDisk. affected=" + result);
+        RecipeCountCache.beginChanges();
+        try
+        {
+            result = this.deleteQuery(db);
         }
+        finally
+        {
+            RecipeCountCache.endChanges(null);
+        }
+
+        // The counts of an empty database are queried without cost
+        RecipeCountCache.clear();
+        RecipeCache.clear();
+
+        Log.d(LogsManager.TAG, CLASS_NAME + ": deleteRecipeFromDisk. affected=" + result);
+    }
+
+    /**
+     * Deletes the recipes from disk on the database writer thread. Warning: this action cannot be reverted
+     *
+     * @return Completable, completes on the main thread
+     */
+    public Completable deleteRecipes()
+    {
+        return DatabaseExecutor.update(this::deleteRecipeFromDisk);
     }
 
     /**
-     * Deletes the recipe, ingredients, and instructions from disk. Warning: this action cannot be reverted
+     * Deletes the recipe, ingredients, instructions, and sync state from disk. Warning: this action cannot be reverted
      *
      * @param db
      *            the database connection to use
@@ -546,6 +847,9 @@ public class RecipeManager
         int result = db.delete(TABLE_RECIPE, null, null);
         db.delete(TABLE_INGREDIENTS, null, null);
         db.delete(TABLE_INSTRUCTIONS, null, null);
+        db.delete(TABLE_RECIPE_SEARCH, null, null);
+        // The next sync starts over, an interrupted sync would only resume from its last updated date
+        db.delete(TABLE_SYNC_STATE, null, null);
 
         return result;
     }
@@ -561,4 +865,22 @@ public class RecipeManager
             compositeDisposable.clear();
         }
     }
+
+    /**
+     * The position of a paginated sync: the last updated date it started from, and the cursor and size of its next page.
+     */
+    private static final class SyncCheckpoint
+    {
+        private final String lastUpdated;
+        private final AdaptivePageSize pageSize;
+        private String cursor;
+        private int savedCount;
+
+        private SyncCheckpoint(String lastUpdated, String cursor, int pageSize)
+        {
+            this.lastUpdated = lastUpdated;
+            this.cursor = cursor;
+            this.pageSize = new AdaptivePageSize(pageSize);
+        }
+    }
 }
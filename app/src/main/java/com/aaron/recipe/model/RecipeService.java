@@ -1,30 +1,41 @@
 package com.aaron.recipe.model;
 
 import com.aaron.recipe.response.ResponseCategory;
-import com.aaron.recipe.response.ResponseRecipes;
 
 import java.util.List;
 
 import io.reactivex.Single;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 public interface RecipeService
 {
     /**
-     * Retrieves all recipes given the last updated date.
+     * Retrieves one page of the recipes given the last updated date. The first page is requested without a cursor, each next page with the
+     * cursor of the previous page, until a page has no next cursor. The response body is not read.
      *
-     * @param lastUpdated filter get request with last updated date
-     * @return {@code Call<ResponseRecipes>} response Recipe
+     * @param lastUpdated filter get request with last updated date, the same for all the pages of a sync
+     * @param cursor the next cursor of the previous page, null for the first page
+     * @param pageSize the maximum number of recipes in the page
+     * @return {@code Single<ResponseBody>} the unread JSON body of the response page of Recipe
      */
+    @Streaming
     @GET("recipes")
-    Single<ResponseRecipes> getRecipes(@Query("last_updated") String lastUpdated);
+    Single<ResponseBody> getRecipesPage(@Query("last_updated") String lastUpdated, @Query("cursor") String cursor,
+            @Query("page_size") int pageSize);
 
     /**
-     * Retrieves all categories.
+     * Retrieves all categories, unless they did not change since the saved categories. The header of a null validator is not sent.
      *
-     * @return {@code Call<List<ResponseCategory>>} response Category
+     * @param eTag the ETag of the saved categories
+     * @param lastModified the Last-Modified date of the saved categories
+     * @return {@code Single<Response<List<ResponseCategory>>>} response Category, 304 without a body if not modified
      */
     @GET("categories")
-    Single<List<ResponseCategory>> getCategories();
+    Single<Response<List<ResponseCategory>>> getCategories(@Header("If-None-Match") String eTag,
+            @Header("If-Modified-Since") String lastModified);
 }
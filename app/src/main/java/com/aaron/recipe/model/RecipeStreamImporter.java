@@ -0,0 +1,314 @@
+package com.aaron.recipe.model;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+
+import com.aaron.recipe.bean.Ingredient;
+import com.aaron.recipe.bean.Ingredients;
+import com.aaron.recipe.bean.Instructions;
+import com.aaron.recipe.bean.Recipe;
+import com.aaron.recipe.bean.Unit;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.Completable;
+import io.reactivex.functions.Action;
+
+/**
+ * Imports a page of the /recipes response into the database while it is read. The JSON is parsed token by token on the calling thread, and
+ * each finished batch of recipes is handed to the database writer thread and written in its own transaction. Only one batch of recipes is
+ * kept in memory, whatever the size of the page, and the writer thread never waits on the network.
+ * <p>
+ * The recipes are written with a pending date_in, older than any sync. The writes ending the page, e.g. the checkpoint of the sync, are
+ * written in the transaction of its last batch. If the page fails midway, the written batches are kept but the checkpoint is not moved, so
+ * the next sync requests the page again.
+ */
+class RecipeStreamImporter
+{
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final SQLiteDatabase db;
+    private final int batchSize;
+    private final List<Recipe> batch;
+    private final List<Integer> deletedRecipeIds = new ArrayList<>();
+    private int savedCount;
+    private String nextCursor;
+
+    /**
+     * The writes ending a page, run in the transaction of its last batch.
+     */
+    interface EndOfPage
+    {
+        /**
+         * @param nextCursor
+         *            the cursor of the next page, null on the last page
+         * @param recipeCount
+         *            the number of recipes in the page
+         */
+        void write(String nextCursor, int recipeCount);
+    }
+
+    /**
+     * Default constructor.
+     *
+     * @param db
+     *            the database connection to write to, not in a transaction
+     * @param batchSize
+     *            the number of recipes written per transaction
+     */
+    RecipeStreamImporter(SQLiteDatabase db, int batchSize)
+    {
+        this.db = db;
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Reads the page and writes its recipes and deleted recipe ids to the database. Blocks until each batch is written, so it must not be
+     * called on the database writer thread.
+     *
+     * @param json
+     *            the response body, not closed
+     * @param endOfPage
+     *            the writes ending the page
+     * @return the number of recipes inserted or updated
+     * @throws IOException
+     *             if the response cannot be read or is not valid JSON, the batches already written are kept
+     * @throws SQLiteException
+     *             if a batch cannot be written, the batches already written are kept
+     */
+    int importRecipes(InputStream json, EndOfPage endOfPage) throws IOException
+    {
+        try(JsonParser parser = JSON_FACTORY.createParser(json))
+        {
+            if(parser.nextToken() != JsonToken.START_OBJECT)
+            {
+                throw new JsonParseException(parser, "Expected the recipes response object.");
+            }
+
+            String field;
+            while((field = parser.nextFieldName()) != null)
+            {
+                parser.nextToken();
+                switch(field)
+                {
+                    case "recipes":
+                        readRecipes(parser);
+                        break;
+                    case "deleted_recipe_ids":
+                        readDeletedRecipeIds(parser);
+                        break;
+                    case "next_cursor":
+                        this.nextCursor = parser.getValueAsString();
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+        }
+
+        writeBatch(endOfPage);
+
+        return this.savedCount;
+    }
+
+    /**
+     * The cursor of the next page, read by {@link #importRecipes(InputStream, EndOfPage)}.
+     *
+     * @return the cursor, null on the last page
+     */
+    String getNextCursor()
+    {
+        return this.nextCursor;
+    }
+
+    private void readRecipes(JsonParser parser) throws IOException
+    {
+        if(parser.getCurrentToken() != JsonToken.START_ARRAY)
+        {
+            return;
+        }
+
+        while(parser.nextToken() == JsonToken.START_OBJECT)
+        {
+            this.batch.add(readRecipe(parser));
+            if(this.batch.size() >= this.batchSize)
+            {
+                writeBatch(null);
+            }
+        }
+    }
+
+    private Recipe readRecipe(JsonParser parser) throws IOException
+    {
+        Recipe recipe = new Recipe();
+        List<Ingredient> ingredients = new ArrayList<>();
+        List<String> instructions = new ArrayList<>();
+
+        String field;
+        while((field = parser.nextFieldName()) != null)
+        {
+            parser.nextToken();
+            switch(field)
+            {
+                case "id":
+                    recipe.setServerId(parser.getValueAsInt());
+                    break;
+                case "title":
+                    recipe.setTitle(parser.getValueAsString());
+                    break;
+                case "category":
+                    recipe.setCategory(parser.getValueAsString());
+                    break;
+                case "preparation_time":
+                    recipe.setPreparationTime(parser.getValueAsInt());
+                    break;
+                case "servings":
+                    recipe.setServings(parser.getValueAsInt());
+                    break;
+                case "description":
+                    recipe.setDescription(parser.getValueAsString());
+                    break;
+                case "ingredients":
+                    readIngredients(parser, ingredients);
+                    break;
+                case "instructions":
+                    readInstructions(parser, instructions);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+
+        return recipe.setIngredients(new Ingredients(recipe.getTitle(), ingredients))
+                .setInstructions(new Instructions(recipe.getTitle(), instructions));
+    }
+
+    private void readIngredients(JsonParser parser, List<Ingredient> ingredients) throws IOException
+    {
+        if(parser.getCurrentToken() != JsonToken.START_ARRAY)
+        {
+            return;
+        }
+
+        while(parser.nextToken() == JsonToken.START_OBJECT)
+        {
+            Ingredient ingredient = new Ingredient();
+
+            String field;
+            while((field = parser.nextFieldName()) != null)
+            {
+                parser.nextToken();
+                switch(field)
+                {
+                    case "quantity":
+                        ingredient.setQuantity(parser.getValueAsDouble());
+                        break;
+                    case "measurement":
+                        ingredient.setMeasurement(parser.getValueAsString());
+                        break;
+                    case "ingredient":
+                        ingredient.setIngredient(parser.getValueAsString());
+                        break;
+                    case "comment_":
+                        ingredient.setComment(parser.getValueAsString());
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+
+            ingredients.add(ingredient.setUnit(Unit.parse(ingredient.getMeasurement())));
+        }
+    }
+
+    private void readInstructions(JsonParser parser, List<String> instructions) throws IOException
+    {
+        if(parser.getCurrentToken() != JsonToken.START_ARRAY)
+        {
+            return;
+        }
+
+        while(parser.nextToken() == JsonToken.START_OBJECT)
+        {
+            String field;
+            while((field = parser.nextFieldName()) != null)
+            {
+                parser.nextToken();
+                if("instruction".equals(field))
+                {
+                    instructions.add(parser.getValueAsString());
+                }
+                else
+                {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void readDeletedRecipeIds(JsonParser parser) throws IOException
+    {
+        if(parser.getCurrentToken() != JsonToken.START_ARRAY)
+        {
+            return;
+        }
+
+        while(parser.nextToken() != JsonToken.END_ARRAY)
+        {
+            this.deletedRecipeIds.add(parser.getValueAsInt());
+        }
+    }
+
+    /**
+     * Writes the read recipes and deleted recipe ids in one transaction on the writer thread, then releases them.
+     *
+     * @param endOfPage the writes ending the page, null if the page is not fully read yet
+     */
+    private void writeBatch(EndOfPage endOfPage) throws SQLiteException
+    {
+        if(endOfPage == null && this.batch.isEmpty() && this.deletedRecipeIds.isEmpty())
+        {
+            return;
+        }
+
+        write(() -> RecipeDatabaseWriter.writeInTransaction(this.db, RecipeDatabaseWriter.PENDING_DATE_IN, writer ->
+        {
+            writer.deleteRecipesOfServerIds(this.deletedRecipeIds);
+
+            for(Recipe recipe : this.batch)
+            {
+                writer.upsertRecipe(recipe);
+            }
+
+            if(endOfPage != null)
+            {
+                endOfPage.write(this.nextCursor, this.savedCount + this.batch.size());
+            }
+        }));
+
+        this.savedCount += this.batch.size();
+        this.batch.clear();
+        this.deletedRecipeIds.clear();
+    }
+
+    /**
+     * Runs the write on the database writer thread, and waits for it. A failed write is rethrown on the calling thread.
+     */
+    private static void write(Action write)
+    {
+        Completable.fromAction(write)
+                .subscribeOn(DatabaseExecutor.writer())
+                .blockingAwait();
+    }
+}
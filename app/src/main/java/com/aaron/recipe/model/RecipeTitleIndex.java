@@ -0,0 +1,182 @@
+package com.aaron.recipe.model;
+
+import com.aaron.recipe.bean.Recipe;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Prefix index of the words in the recipe titles, built once per recipe list. The words are kept in a sorted array, so the words starting with
+ * the searched text are one contiguous range found by binary search. When the searched text is extended, e.g. the user typed one more character,
+ * only the range of the previous search is searched again. The indexed list is a copy, so the index can be searched from a background thread.
+ */
+public class RecipeTitleIndex
+{
+    private static final Set<String> IGNORABLE_WORDS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static
+    {
+        IGNORABLE_WORDS.addAll(asList("a", "an", "and", "at", "by", "in", "on", "the", "with"));
+    }
+
+    private final List<Recipe> recipes;
+    // Sorted words of all titles, recipePositions[i] is the position in the recipe list of the title containing words[i]
+    private final String[] words;
+    private final int[] recipePositions;
+
+    private String previousSearch;
+    private int previousFrom;
+    private int previousTo;
+
+    /**
+     * Indexes the words of the recipe titles, except the ignorable words like "and" and "the".
+     *
+     * @param recipes the recipes to search, the search result follows the order of this list
+     */
+    public RecipeTitleIndex(List<Recipe> recipes)
+    {
+        this.recipes = new ArrayList<>(recipes);
+
+        List<Word> titleWords = new ArrayList<>(recipes.size() * 3);
+        for(int position = 0; position < recipes.size(); position++)
+        {
+            for(String word : recipes.get(position).getTitle().toLowerCase(Locale.getDefault()).split(" "))
+            {
+                if(!word.isEmpty() && !IGNORABLE_WORDS.contains(word))
+                {
+                    titleWords.add(new Word(word, position));
+                }
+            }
+        }
+
+        titleWords.sort(Comparator.comparing((Word word) -> word.word));
+
+        this.words = new String[titleWords.size()];
+        this.recipePositions = new int[titleWords.size()];
+        for(int i = 0; i < titleWords.size(); i++)
+        {
+            this.words[i] = titleWords.get(i).word;
+            this.recipePositions[i] = titleWords.get(i).recipePosition;
+        }
+    }
+
+    /**
+     * Returns the indexed recipes.
+     *
+     * @return the unmodifiable copy of the indexed recipe list
+     */
+    public List<Recipe> getRecipes()
+    {
+        return Collections.unmodifiableList(recipes);
+    }
+
+    /**
+     * Returns the recipes with a title word that starts with the searched text.
+     *
+     * @param searchedText the text typed by the user
+     * @return the matched recipes, in the order of the indexed recipe list
+     */
+    public synchronized List<Recipe> search(String searchedText)
+    {
+        String search = searchedText.toLowerCase(Locale.getDefault());
+
+        int from = 0;
+        int to = words.length;
+        if(previousSearch != null && search.startsWith(previousSearch))
+        {
+            // The words starting with the extended text are a sub-range of the words starting with the previous text
+            from = previousFrom;
+            to = previousTo;
+        }
+
+        from = firstWordNotBefore(search, from, to);
+        to = firstWordNotStartingWith(search, from, to);
+
+        previousSearch = search;
+        previousFrom = from;
+        previousTo = to;
+
+        if(from == to)
+        {
+            return Collections.emptyList();
+        }
+
+        // A title can have several matched words, the bit set removes the duplicates and restores the order of the recipe list
+        BitSet matchedPositions = new BitSet(recipes.size());
+        for(int i = from; i < to; i++)
+        {
+            matchedPositions.set(recipePositions[i]);
+        }
+
+        List<Recipe> matches = new ArrayList<>(matchedPositions.cardinality());
+        for(int position = matchedPositions.nextSetBit(0); position >= 0; position = matchedPositions.nextSetBit(position + 1))
+        {
+            matches.add(recipes.get(position));
+        }
+
+        return matches;
+    }
+
+    private int firstWordNotBefore(String search, int from, int to)
+    {
+        int low = from;
+        int high = to;
+        while(low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if(words[middle].compareTo(search) < 0)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * All words from the given start are not before the searched text, so the words starting with it come first.
+     */
+    private int firstWordNotStartingWith(String search, int from, int to)
+    {
+        int low = from;
+        int high = to;
+        while(low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if(words[middle].startsWith(search))
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private static class Word
+    {
+        private final String word;
+        private final int recipePosition;
+
+        private Word(String word, int recipePosition)
+        {
+            this.word = word;
+            this.recipePosition = recipePosition;
+        }
+    }
+}
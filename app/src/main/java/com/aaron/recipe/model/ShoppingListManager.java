@@ -0,0 +1,159 @@
+package com.aaron.recipe.model;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import com.aaron.recipe.bean.Ingredient;
+import com.aaron.recipe.bean.Unit;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnIngredients;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_INGREDIENTS;
+
+/**
+ * Merges the ingredients of several recipes into a shopping list. The ingredients are grouped by their name and unit family, and their
+ * quantities in the base unit summed, in a single query over the ingredients table, so the recipes are never loaded.
+ */
+public class ShoppingListManager
+{
+    public static final String CLASS_NAME = ShoppingListManager.class.getSimpleName();
+
+    // group_concat() only separates with commas when DISTINCT, so the commas of the comments are replaced while concatenated
+    private static final String COMMENT_COMMA = "\u001F";
+    // Drops the error of converting the summed quantities back from the base unit, e.g. 3 cups read back as 2.9999999999999996
+    private static final int QUANTITY_DECIMAL_PLACES = 6;
+
+    private static final String NORMALIZED_INGREDIENT = "LOWER(TRIM(" + ColumnIngredients.ingredient.name() + "))";
+    private static final String UNIT_FAMILY = Arrays.stream(Unit.values())
+            .map(unit -> " WHEN '" + unit.name() + "' THEN '" + unit.getFamily().name() + "'")
+            .collect(Collectors.joining("", "CASE " + ColumnIngredients.unit.name(), " ELSE '" + Unit.Family.OTHER.name() + "' END"));
+    // Measurements without a unit, like cloves and pieces, are only summed with the same measurement
+    private static final String NORMALIZED_OTHER_MEASUREMENT = "CASE " + UNIT_FAMILY + " WHEN '" + Unit.Family.OTHER.name() +
+            "' THEN LOWER(TRIM(" + ColumnIngredients.measurement.name() + ")) ELSE '' END";
+
+    private static final String SELECT_SHOPPING_LIST = "SELECT " +
+            "MIN(TRIM(" + ColumnIngredients.ingredient.name() + ")), " +
+            "group_concat(DISTINCT " + ColumnIngredients.unit.name() + "), " +
+            "MIN(TRIM(" + ColumnIngredients.measurement.name() + ")), " +
+            "SUM(" + ColumnIngredients.base_quantity.name() + "), " +
+            "group_concat(DISTINCT REPLACE(NULLIF(TRIM(" + ColumnIngredients.comment_.name() + "), ''), ',', '" + COMMENT_COMMA + "'))" +
+            " FROM " + TABLE_INGREDIENTS +
+            " WHERE " + ColumnIngredients.recipe_id.name() + " IN (%s)" +
+            " GROUP BY " + NORMALIZED_INGREDIENT + ", " + UNIT_FAMILY + ", " + NORMALIZED_OTHER_MEASUREMENT +
+            " ORDER BY " + NORMALIZED_INGREDIENT + ", " + UNIT_FAMILY + ", " + NORMALIZED_OTHER_MEASUREMENT;
+
+    private MySQLiteHelper dbHelper;
+
+    /**
+     * Default constructor.
+     *
+     * @param context
+     *            the caller activity
+     */
+    public ShoppingListManager(final Context context)
+    {
+        this.dbHelper = MySQLiteHelper.getInstance(context);
+    }
+
+    /**
+     * Queries the shopping list of the given recipes. The ids are integers, so they are written in the query instead of bound, and any number
+     * of recipes fits in the single query.
+     *
+     * @param recipeIds
+     *            the ids of the selected recipes
+     * @return the cursor of the merged ingredients, sorted by name then unit family
+     */
+    public Cursor queryShoppingList(final int[] recipeIds)
+    {
+        String ids = Arrays.stream(recipeIds).mapToObj(String::valueOf).collect(Collectors.joining(","));
+
+        LogsManager.log(CLASS_NAME, "queryShoppingList", "recipes=" + recipeIds.length);
+
+        return this.dbHelper.getReadableDatabase().rawQuery(String.format(SELECT_SHOPPING_LIST, ids), null);
+    }
+
+    /**
+     * Streams the shopping list of the given recipes from a database reader thread, one merged ingredient at a time as they are read from
+     * the cursor. The quantity of an ingredient is the sum of its quantities converted to one of the units used by the recipes, the measurement
+     * is the unit's symbol, and the comment is the distinct comments.
+     *
+     * @param recipeIds
+     *            the ids of the selected recipes
+     * @return Flowable, emits on the main thread
+     */
+    public Flowable<Ingredient> loadShoppingList(final int[] recipeIds)
+    {
+        if(recipeIds.length == 0)
+        {
+            return Flowable.empty();
+        }
+
+        Flowable<Ingredient> ingredients = Flowable.generate(() -> queryShoppingList(recipeIds), (Cursor cursor, Emitter<Ingredient> emitter) ->
+        {
+            if(cursor.moveToNext())
+            {
+                emitter.onNext(toIngredient(cursor));
+            }
+            else
+            {
+                emitter.onComplete();
+            }
+        }, Cursor::close);
+
+        return ingredients.subscribeOn(DatabaseExecutor.reader())
+                .observeOn(AndroidSchedulers.mainThread());
+    }
+
+    private Ingredient toIngredient(Cursor cursor)
+    {
+        double baseQuantity = cursor.getDouble(3);
+        Unit unit = toDisplayUnit(cursor.getString(1).split(","), baseQuantity);
+        String measurement = unit == Unit.OTHER ? cursor.getString(2) : unit.getSymbol();
+        String comment = cursor.isNull(4) ? "" : toComment(cursor.getString(4));
+
+        double quantity = MathUtils.round(unit.fromBaseQuantity(baseQuantity), QUANTITY_DECIMAL_PLACES);
+
+        return new Ingredient(quantity, measurement, cursor.getString(0), comment).setUnit(unit);
+    }
+
+    /**
+     * Returns the largest of the used units in which the quantity is at least 1, or the smallest if there is none, e.g. 1 cup and 4 tbsp are
+     * shown as 1 1/4 cup, and 1 tbsp and 1 tsp as 1 1/3 tbsp.
+     */
+    private static Unit toDisplayUnit(String[] unitNames, double baseQuantity)
+    {
+        Unit displayUnit = Unit.fromName(unitNames[0]);
+        double displayQuantity = displayUnit.fromBaseQuantity(baseQuantity);
+
+        for(int i = 1; i < unitNames.length; i++)
+        {
+            Unit unit = Unit.fromName(unitNames[i]);
+            if(!unit.isConvertibleTo(displayUnit))
+            {
+                continue;
+            }
+
+            double quantity = unit.fromBaseQuantity(baseQuantity);
+            if(displayQuantity < 1 ? quantity > displayQuantity : quantity >= 1 && quantity < displayQuantity)
+            {
+                displayUnit = unit;
+                displayQuantity = quantity;
+            }
+        }
+
+        return displayUnit;
+    }
+
+    private static String toComment(String comments)
+    {
+        return Arrays.stream(comments.split(","))
+                .map(comment -> comment.replace(COMMENT_COMMA, ","))
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -1,5 +1,7 @@
 package com.aaron.recipe;
 
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.After;
 import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
@@ -9,6 +11,8 @@ import org.robolectric.annotation.Config;
 import android.app.Activity;
 import android.content.Context;
 
+import com.aaron.recipe.model.MySQLiteHelper;
+
 /**
  * Created by Aaron on 02/01/2018.
  */
@@ -25,4 +29,18 @@ public abstract class RobolectricTest
     {
         return Robolectric.buildActivity(clazz).get();
     }
+
+    /**
+     * Closes the database shared by the application, each test starts with a new database.
+     */
+    @After
+    public void closeSharedDatabase() throws IllegalAccessException
+    {
+        MySQLiteHelper instance = (MySQLiteHelper) FieldUtils.readStaticField(MySQLiteHelper.class, "instance", true);
+        if(instance != null)
+        {
+            instance.close();
+            FieldUtils.writeStaticField(MySQLiteHelper.class, "instance", null, true);
+        }
+    }
 }
@@ -0,0 +1,191 @@
+package com.aaron.recipe.activity;
+
+import android.content.Intent;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+import android.support.v4.app.FragmentPagerAdapter;
+import android.support.v4.view.ViewPager;
+import android.view.View;
+
+import com.aaron.recipe.R;
+import com.aaron.recipe.RobolectricTest;
+import com.aaron.recipe.bean.Categories;
+import com.aaron.recipe.bean.Settings;
+import com.aaron.recipe.fragment.RecipeFragment;
+import com.aaron.recipe.model.MySQLiteHelper;
+import com.aaron.recipe.model.RecipeCache;
+import com.aaron.recipe.model.RecipeManager;
+import com.aaron.recipe.model.TestDatabaseExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.Robolectric;
+
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+
+import static com.aaron.recipe.bean.Categories.DEFAULT;
+import static com.aaron.recipe.bean.DataKey.EXTRA_PAGE;
+import static com.aaron.recipe.bean.DataKey.EXTRA_RECIPE_IDS;
+import static com.aaron.recipe.bean.DataKey.EXTRA_SETTINGS;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_INGREDIENTS;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_INSTRUCTIONS;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_RECIPE;
+
+/**
+ * Compares the live fragments and the used heap while swiping through the recipe pages, of the bounded RecipePagerAdapter against the
+ * previous FragmentPagerAdapter that keeps every visited page.
+ * Run with: gradlew test -Pbenchmark
+ */
+public class RecipeActivityBenchmark extends RobolectricTest
+{
+    private static final int PAGES = 500;
+    private static final int PRINTED_EVERY_PAGES = 100;
+    private static final int LINES_PER_RECIPE = 10;
+
+    private MySQLiteHelper dbHelperTest;
+    private int[] recipeIds;
+
+    @Before
+    public void initialize()
+    {
+        // override Schedulers.io()
+        RxJavaPlugins.setIoSchedulerHandler(schedulerCallable -> Schedulers.trampoline());
+        // override AndroidSchedulers.mainThread()
+        RxAndroidPlugins.setInitMainThreadSchedulerHandler(schedulerCallable -> Schedulers.trampoline());
+        // override the database writer and reader threads
+        TestDatabaseExecutor.runOnCallingThread();
+
+        dbHelperTest = new MySQLiteHelper(getContext());
+        Categories.getCategoriesMap().put(1, "Benchmark");
+        insertRecipes();
+        recipeIds = RecipeCache.toIds(new RecipeManager(getContext()).getRecipeSummariesFromDisk(DEFAULT));
+    }
+
+    @After
+    public void cleanUp()
+    {
+        TestDatabaseExecutor.reset();
+        RxJavaPlugins.reset();
+        RxAndroidPlugins.reset();
+        Categories.getCategoriesMap().clear();
+        RecipeCache.clear();
+        dbHelperTest.close();
+    }
+
+    @Test
+    public void benchmarkSwipeThroughRecipes()
+    {
+        System.out.println(String.format("%10s %20s %20s %20s %20s", "pages", "all fragments", "all heap (KB)", "bounded fragments",
+                "bounded heap (KB)"));
+
+        long[][] keepAll = swipe(false);
+        long[][] bounded = swipe(true);
+
+        for(int i = 0; i < keepAll.length; i++)
+        {
+            System.out.println(String.format("%10d %20d %20d %20d %20d", (i + 1) * PRINTED_EVERY_PAGES, keepAll[i][0], keepAll[i][1],
+                    bounded[i][0], bounded[i][1]));
+        }
+    }
+
+    /**
+     * Swipes page by page through all recipes.
+     *
+     * @return the live fragments and the used heap, every PRINTED_EVERY_PAGES pages
+     */
+    private long[][] swipe(boolean bounded)
+    {
+        Intent intent = new Intent(getContext(), RecipeActivity.class);
+        intent.putExtra(EXTRA_RECIPE_IDS.toString(), recipeIds);
+        intent.putExtra(EXTRA_PAGE.toString(), 0);
+        intent.putExtra(EXTRA_SETTINGS.toString(), new Settings());
+
+        RecipeActivity activity = Robolectric.buildActivity(RecipeActivity.class, intent).setup().get();
+        FragmentManager fm = activity.getSupportFragmentManager();
+        ViewPager viewPager = activity.findViewById(R.id.view_pager);
+        if(!bounded)
+        {
+            viewPager.setOffscreenPageLimit(1);
+            viewPager.setAdapter(new KeepAllPagerAdapter(fm, recipeIds));
+        }
+
+        // The pages are only populated once the pager is laid out
+        viewPager.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY));
+        viewPager.layout(0, 0, 480, 800);
+
+        long[][] measurements = new long[PAGES / PRINTED_EVERY_PAGES][];
+        for(int page = 1; page <= PAGES; page++)
+        {
+            viewPager.setCurrentItem(page - 1, false);
+            if(page % PRINTED_EVERY_PAGES == 0)
+            {
+                measurements[page / PRINTED_EVERY_PAGES - 1] = new long[] { fm.getFragments().size(), usedHeapKiloBytes() };
+            }
+        }
+
+        viewPager.setAdapter(null);
+        return measurements;
+    }
+
+    private long usedHeapKiloBytes()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+
+        return (runtime.totalMemory() - runtime.freeMemory()) / 1024;
+    }
+
+    private void insertRecipes()
+    {
+        try(SQLiteDatabase db = dbHelperTest.getWritableDatabase())
+        {
+            db.beginTransaction();
+            for(int id = 1; id <= PAGES; id++)
+            {
+                db.execSQL("INSERT INTO " + TABLE_RECIPE + "(id, title, category_id, preparation_time, description, servings, date_in) " +
+                        "VALUES(?, ?, 1, 30, 'description', 4, 0)", new Object[] { id, "Recipe " + id });
+
+                for(int count = 0; count < LINES_PER_RECIPE; count++)
+                {
+                    db.execSQL("INSERT INTO " + TABLE_INGREDIENTS + "(recipe_id, quantity, measurement, ingredient, comment_, count) " +
+                            "VALUES(?, 1.5, 'cup', 'ingredient', 'comment', ?)", new Object[] { id, count });
+                    db.execSQL("INSERT INTO " + TABLE_INSTRUCTIONS + "(recipe_id, instruction, count) VALUES(?, 'instruction', ?)",
+                            new Object[] { id, count });
+                }
+            }
+            db.setTransactionSuccessful();
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * The pager adapter before bounding the pages, keeps every visited fragment in the FragmentManager.
+     */
+    private static class KeepAllPagerAdapter extends FragmentPagerAdapter
+    {
+        private final int[] recipeIds;
+
+        private KeepAllPagerAdapter(FragmentManager fm, int[] recipeIds)
+        {
+            super(fm);
+            this.recipeIds = recipeIds;
+        }
+
+        @Override
+        public Fragment getItem(int position)
+        {
+            return RecipeFragment.newInstance(recipeIds[position], new Settings());
+        }
+
+        @Override
+        public int getCount()
+        {
+            return recipeIds.length;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.aaron.recipe.adapter;
+
+import android.support.v7.widget.RecyclerView;
+
+import com.aaron.recipe.RobolectricTest;
+import com.aaron.recipe.activity.RecipeActivity;
+import com.aaron.recipe.bean.Ingredient;
+import com.aaron.recipe.bean.Ingredients;
+import com.aaron.recipe.bean.Instructions;
+import com.aaron.recipe.bean.Rational;
+import com.aaron.recipe.bean.Recipe;
+import com.aaron.recipe.bean.Settings;
+import com.aaron.recipe.model.RecipeCache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class RecipeDetailAdapterTest extends RobolectricTest
+{
+    private static final Ingredient GARLIC = new Ingredient(2, "cloves", "Garlic", "minced");
+    private static final Ingredient RICE = new Ingredient(1.5, "cup", "Rice", "");
+
+    private RecipeDetailAdapter adapter;
+
+    @Before
+    public void initialize()
+    {
+        adapter = new RecipeDetailAdapter(getActivity(RecipeActivity.class), new Settings());
+    }
+
+    @After
+    public void cleanUp()
+    {
+        RecipeCache.clear();
+    }
+
+    @Test
+    public void givenRecipeSummary_whenSetRecipe_thenShouldOnlyShowTheRecipeDetails()
+    {
+        adapter.setRecipe(givenRecipeSummary());
+
+        assertEquals(5, adapter.getItemCount());
+        assertEquals("Title: Garlic rice", adapter.getLine(0));
+        assertEquals("Category: Rice", adapter.getLine(1));
+        assertEquals("Servings: 4", adapter.getLine(3));
+        assertEquals("Description: Fried rice", adapter.getLine(4));
+    }
+
+    @Test
+    public void givenRecipeWithDetails_whenSetRecipe_thenShouldShowIngredientsAndInstructionsSections()
+    {
+        adapter.setRecipe(givenRecipeWithDetails());
+
+        assertEquals(12, adapter.getItemCount());
+        assertEquals("Ingredients:", adapter.getLine(5));
+        assertEquals(RecipeDetailAdapter.TYPE_HEADER, adapter.getItemViewType(5));
+        assertEquals(GARLIC.toString(), adapter.getLine(6));
+        assertEquals(RICE.toString(), adapter.getLine(7));
+        assertEquals(RecipeDetailAdapter.TYPE_LINE, adapter.getItemViewType(7));
+        assertEquals("Instructions:", adapter.getLine(8));
+        assertEquals(RecipeDetailAdapter.TYPE_HEADER, adapter.getItemViewType(8));
+        assertEquals("1. Fry the garlic", adapter.getLine(9));
+        assertEquals("2. Add the rice", adapter.getLine(10));
+        assertEquals("", adapter.getLine(11));
+        assertEquals(RecipeDetailAdapter.TYPE_LINE, adapter.getItemViewType(11));
+    }
+
+    @Test
+    public void givenRecipeSummaryShown_whenSetRecipeWithDetails_thenShouldOnlyNotifyTheInsertedLines()
+    {
+        adapter.setRecipe(givenRecipeSummary());
+        RecyclerView.AdapterDataObserver observer = mock(RecyclerView.AdapterDataObserver.class);
+        adapter.registerAdapterDataObserver(observer);
+
+        adapter.setRecipe(givenRecipeWithDetails());
+
+        verify(observer).onItemRangeInserted(5, 7);
+        verify(observer, never()).onChanged();
+        verify(observer, never()).onItemRangeChanged(anyInt(), anyInt());
+    }
+
+    @Test
+    public void givenRecipeWithDetails_whenSetServings_thenShouldShowScaledIngredientsAndOnlyNotifyTheirLines()
+    {
+        adapter.setRecipe(givenRecipeWithDetails());
+        RecyclerView.AdapterDataObserver observer = mock(RecyclerView.AdapterDataObserver.class);
+        adapter.registerAdapterDataObserver(observer);
+
+        adapter.setServings(6);
+
+        assertEquals("Servings: 6", adapter.getLine(3));
+        assertEquals(GARLIC.toString(new Rational(3, 1)), adapter.getLine(6));
+        assertEquals(RICE.toString(new Rational(9, 4)), adapter.getLine(7));
+        assertEquals("1. Fry the garlic", adapter.getLine(9));
+        verify(observer).onItemRangeChanged(3, 1, null);
+        verify(observer).onItemRangeChanged(6, 2, null);
+        verify(observer, never()).onChanged();
+    }
+
+    @Test
+    public void givenServingsSetBeforeDetailsAreLoaded_whenSetRecipeWithDetails_thenShouldShowScaledIngredients()
+    {
+        adapter.setRecipe(givenRecipeSummary());
+        adapter.setServings(2);
+
+        adapter.setRecipe(givenRecipeWithDetails());
+
+        assertEquals("Servings: 2", adapter.getLine(3));
+        assertEquals(GARLIC.toString(new Rational(1, 1)), adapter.getLine(6));
+    }
+
+    @Test
+    public void givenRecipeServings_whenSetServingsBack_thenShouldShowUnscaledIngredients()
+    {
+        adapter.setRecipe(givenRecipeWithDetails());
+        adapter.setServings(8);
+
+        adapter.setServings(4);
+
+        assertEquals("Servings: 4", adapter.getLine(3));
+        assertEquals(GARLIC.toString(), adapter.getLine(6));
+    }
+
+    @Test
+    public void givenScaledIngredientsShown_whenGetScaledIngredientsForSameServings_thenShouldReturnTheCachedLines()
+    {
+        Recipe recipe = givenRecipeWithDetails();
+
+        String line = RecipeCache.getScaledIngredients(recipe, 6).getLine(1);
+
+        assertSame(RecipeCache.getScaledIngredients(recipe, 6), RecipeCache.getScaledIngredients(recipe, 6));
+        assertSame(line, RecipeCache.getScaledIngredients(recipe, 6).getLine(1));
+    }
+
+    private Recipe givenRecipeSummary()
+    {
+        return new Recipe().setId(1).setTitle("Garlic rice").setCategory("Rice").setServings(4).setPreparationTime(15).setDescription("Fried rice");
+    }
+
+    private Recipe givenRecipeWithDetails()
+    {
+        return givenRecipeSummary().setIngredients(new Ingredients("Garlic rice", asList(GARLIC, RICE)))
+                .setInstructions(new Instructions("Garlic rice", asList("Fry the garlic", "Add the rice")));
+    }
+}
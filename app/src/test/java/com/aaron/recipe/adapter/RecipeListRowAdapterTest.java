@@ -1,22 +1,60 @@
 package com.aaron.recipe.adapter;
 
+import android.app.Activity;
+import android.graphics.Typeface;
+import android.support.v7.widget.RecyclerView;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import com.aaron.recipe.R;
 import com.aaron.recipe.RobolectricTest;
 import com.aaron.recipe.activity.RecipeListActivity;
 import com.aaron.recipe.bean.Recipe;
+import com.aaron.recipe.bean.Settings;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.RandomUtils;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
 
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 public class RecipeListRowAdapterTest extends RobolectricTest
 {
     private RecipeListRowAdapter adapter;
 
+    @Before
+    public void initialize()
+    {
+        // override Schedulers.computation()
+        RxJavaPlugins.setComputationSchedulerHandler(schedulerCallable -> Schedulers.trampoline());
+        // override AndroidSchedulers.mainThread()
+        RxAndroidPlugins.setMainThreadSchedulerHandler(schedulerCallable -> Schedulers.trampoline());
+    }
+
+    @After
+    public void cleanUp()
+    {
+        RxJavaPlugins.reset();
+        RxAndroidPlugins.reset();
+    }
+
     @Test
     public void givenRecipeList_whenUpdate_thenShouldReplaceAdaptersList()
     {
@@ -50,6 +88,98 @@ public class RecipeListRowAdapterTest extends RobolectricTest
         adapter.update(new ArrayList<>(0));
 
         assertTrue(adaptersList.isEmpty());
+        assertTrue(adapter.getTitleIndex().getRecipes().isEmpty());
+    }
+
+    @Test
+    public void givenRecipeList_whenGetItemId_thenShouldReturnTheStableRecipeId()
+    {
+        ArrayList<Recipe> adaptersList = givenRecipeList();
+        adapter = initializeRecipeListRowAdapter(adaptersList);
+
+        assertTrue(adapter.hasStableIds());
+        for(int position = 0; position < adaptersList.size(); position++)
+        {
+            assertEquals(adaptersList.get(position).getId(), adapter.getItemId(position));
+        }
+    }
+
+    @Test
+    public void givenUnchangedRecipeList_whenUpdate_thenShouldNotNotifyAnyChange()
+    {
+        ArrayList<Recipe> adaptersList = givenRecipeList();
+        adapter = initializeRecipeListRowAdapter(adaptersList);
+        RecyclerView.AdapterDataObserver observer = mock(RecyclerView.AdapterDataObserver.class);
+        adapter.registerAdapterDataObserver(observer);
+
+        adapter.update(new ArrayList<>(adaptersList));
+
+        verifyZeroInteractions(observer);
+    }
+
+    @Test
+    public void givenOneChangedAndOneRemovedRecipe_whenUpdate_thenShouldOnlyNotifyTheirRows()
+    {
+        ArrayList<Recipe> adaptersList = givenRecipeList();
+        adapter = initializeRecipeListRowAdapter(adaptersList);
+        RecyclerView.AdapterDataObserver observer = mock(RecyclerView.AdapterDataObserver.class);
+        adapter.registerAdapterDataObserver(observer);
+
+        ArrayList<Recipe> recipeList = new ArrayList<>(adaptersList);
+        Recipe changedRecipe = recipeList.get(2);
+        recipeList.set(2, newRecipe(changedRecipe.getTitle() + " with rice").setId(changedRecipe.getId()));
+        recipeList.remove(5);
+
+        adapter.update(recipeList);
+
+        assertEquals(recipeList, adaptersList);
+        verify(observer).onItemRangeChanged(eq(2), eq(1), any());
+        verify(observer).onItemRangeRemoved(5, 1);
+        verify(observer, never()).onChanged();
+        verify(observer, never()).onItemRangeInserted(anyInt(), anyInt());
+    }
+
+    @Test
+    public void givenRowsAlreadyBound_whenRowsAreBoundAgain_thenShouldReuseTheCachedTextsAndTypefaces()
+    {
+        ArrayList<Recipe> recipeList = givenRecipeList();
+        recipeList.forEach(recipe -> recipe.setServings(RandomUtils.nextInt(1, 20)).setPreparationTime(RandomUtils.nextInt(1, 300)));
+        Settings settings = new Settings().setFontName(Settings.FontName.Serif).setFontStyle(Settings.FontStyle.Italic);
+        Activity activity = getActivity(RecipeListActivity.class);
+        adapter = new RecipeListRowAdapter(activity, recipeList, settings);
+        RecipeListRowAdapter.ViewHolder holder = adapter.onCreateViewHolder(new FrameLayout(activity), 0);
+
+        for(int position = 0; position < recipeList.size(); position++)
+        {
+            adapter.onBindViewHolder(holder, position);
+        }
+
+        // Bound again, as when scrolling back to the rows
+        for(int position = 0; position < recipeList.size(); position++)
+        {
+            Recipe recipe = recipeList.get(position);
+            String servings = recipe.getServingsString();
+            String preparationTime = recipe.getPreparationTimeString();
+            Typeface boldTypeface = settings.getTypeface(true);
+            Typeface typeface = settings.getTypeface(false);
+
+            adapter.onBindViewHolder(holder, position);
+
+            assertSame(servings, recipe.getServingsString());
+            assertSame(preparationTime, recipe.getPreparationTimeString());
+            assertSame(boldTypeface, settings.getTypeface(true));
+            assertSame(typeface, settings.getTypeface(false));
+            assertRowText(holder, R.id.text_row_title, recipe.getTitle(), boldTypeface);
+            assertRowText(holder, R.id.text_row_servings, servings, typeface);
+            assertRowText(holder, R.id.text_row_preparation_time, preparationTime, typeface);
+        }
+    }
+
+    private void assertRowText(RecipeListRowAdapter.ViewHolder holder, int textViewId, String text, Typeface typeface)
+    {
+        TextView textView = holder.itemView.findViewById(textViewId);
+        assertEquals(text, textView.getText().toString());
+        assertSame(typeface, textView.getTypeface());
     }
 
     private RecipeListRowAdapter initializeRecipeListRowAdapter(ArrayList<Recipe> recipeList)
@@ -0,0 +1,116 @@
+package com.aaron.recipe.bean;
+
+import com.aaron.recipe.model.MathUtils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleFunction;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the throughput of the table-driven, cached Fraction.format() against the previous conversion that searched the CommonFraction enum
+ * on every call.
+ * Run with: gradlew test -Pbenchmark
+ */
+public class FractionBenchmark
+{
+    private static final int QUANTITIES = 1_000_000;
+    // Recipe quantities repeat, most are a whole number plus a common fraction
+    private static final double[] FRACTIONAL_PARTS = { 0, 0.125, 0.2, 0.25, 0.33, 0.375, 0.5, 0.625, 0.66, 0.7, 0.75, 0.38 };
+    private static final int RUNS = 3;
+
+    @Test
+    public void benchmarkFormatQuantities()
+    {
+        double[] quantities = givenQuantities();
+        for(double quantity : quantities)
+        {
+            assertEquals(convertToFractionBySearch(quantity), Fraction.format(quantity));
+        }
+
+        System.out.println(String.format("%15s %20s %20s", "quantities", "search (ops/ms)", "table (ops/ms)"));
+
+        long searchOpsPerMilli = opsPerMilli(quantities, this::convertToFractionBySearch);
+        long tableOpsPerMilli = opsPerMilli(quantities, Fraction::format);
+
+        System.out.println(String.format("%15d %20d %20d", QUANTITIES, searchOpsPerMilli, tableOpsPerMilli));
+    }
+
+    private double[] givenQuantities()
+    {
+        Random random = new Random(42);
+        double[] quantities = new double[QUANTITIES];
+        for(int i = 0; i < QUANTITIES; i++)
+        {
+            quantities[i] = random.nextInt(10) + FRACTIONAL_PARTS[random.nextInt(FRACTIONAL_PARTS.length)];
+        }
+
+        return quantities;
+    }
+
+    private long opsPerMilli(double[] quantities, DoubleFunction<String> format)
+    {
+        // Warm up
+        formatAll(quantities, format);
+
+        long start = System.nanoTime();
+        for(int i = 0; i < RUNS; i++)
+        {
+            formatAll(quantities, format);
+        }
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) / RUNS);
+
+        return quantities.length / millis;
+    }
+
+    private int formatAll(double[] quantities, DoubleFunction<String> format)
+    {
+        int length = 0;
+        for(double quantity : quantities)
+        {
+            length += format.apply(quantity).length();
+        }
+
+        return length;
+    }
+
+    /**
+     * The conversion before the lookup table, searches the CommonFraction enum then all pairs of common fractions on every call.
+     */
+    private String convertToFractionBySearch(double decimalNumber)
+    {
+        int wholeNumber = (int) decimalNumber;
+        double decimal = MathUtils.round(decimalNumber - wholeNumber, 3);
+
+        Optional<Fraction.CommonFraction> cf = Arrays.stream(Fraction.CommonFraction.values()).filter(f -> f.getValue() == decimal).findFirst();
+        String fraction = cf.isPresent() ? cf.get().getCode() : getComplexFraction(decimal);
+        if(fraction.isEmpty())
+        {
+            return decimal == 0 ? String.valueOf(wholeNumber) : String.valueOf(decimalNumber);
+        }
+
+        return (wholeNumber == 0 ? "" : wholeNumber) + fraction;
+    }
+
+    private String getComplexFraction(double decimal)
+    {
+        Fraction.CommonFraction[] commonFractions = Fraction.CommonFraction.values();
+        for(int firstFractionIndex = commonFractions.length - 1; firstFractionIndex > 0; firstFractionIndex--)
+        {
+            for(int secondFractionIndex = firstFractionIndex - 1; secondFractionIndex >= 0; secondFractionIndex--)
+            {
+                if(decimal == commonFractions[firstFractionIndex].getValue() + commonFractions[secondFractionIndex].getValue())
+                {
+                    return commonFractions[secondFractionIndex].getCode() + " + " + commonFractions[firstFractionIndex].getCode();
+                }
+            }
+        }
+
+        return "";
+    }
+}
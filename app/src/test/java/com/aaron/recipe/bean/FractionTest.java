@@ -39,6 +39,41 @@ public class FractionTest
         }
     }
 
+    @Test
+    public void givenNumbersWithWholePart_whenFormat_thenShouldReturnWholeNumberAndFraction()
+    {
+        assertEquals("2¾", Fraction.format(2.75));
+        assertEquals("1⅕ + ⅛", Fraction.format(1.325));
+        assertEquals("3", Fraction.format(3));
+        assertEquals("3", Fraction.format(3.0001));
+    }
+
+    @Test
+    public void givenNumbersWithoutFraction_whenFormat_thenShouldReturnSameDecimal()
+    {
+        assertEquals("0.9996", Fraction.format(0.9996));
+        assertEquals("-0.5", Fraction.format(-0.5));
+        assertEquals("1.38", Fraction.format(1.38));
+    }
+
+    @Test
+    public void givenExactNumbersWithoutFraction_whenFormat_thenShouldReturnDecimalRoundedToTwoPlaces()
+    {
+        assertEquals("0.17", Fraction.format(new Rational(1, 6)));
+        assertEquals("0.71", Fraction.format(new Rational(5, 7)));
+        assertEquals("1.17", Fraction.format(new Rational(7, 6)));
+    }
+
+    @Test
+    public void givenSameNumber_whenFormatAgain_thenShouldReturnTheCachedString()
+    {
+        String formatted = Fraction.format(4.625);
+
+        assertEquals("4½ + ⅛", formatted);
+        assertSame(formatted, Fraction.format(4.625));
+        assertEquals(formatted, new Fraction(4.625).getFraction());
+    }
+
     private Map<Double, String> givenCommonDecimals()
     {
         Map<Double, String> commonDecimals = new HashMap<>();
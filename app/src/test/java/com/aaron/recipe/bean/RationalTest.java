@@ -0,0 +1,123 @@
+package com.aaron.recipe.bean;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class RationalTest
+{
+    private static final int SCALED_RECIPES = 10_000;
+
+    @Test
+    public void givenNumeratorAndDenominator_whenSet_thenShouldNormalizeByGcdWithPositiveDenominator()
+    {
+        assertEquals(new Rational(3, 4), new Rational(-6, -8));
+        assertEquals(-3, new Rational(6, -8).getNumerator());
+        assertEquals(4, new Rational(6, -8).getDenominator());
+        assertEquals(new Rational(0, 1), new Rational(0, 5));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void givenZeroDenominator_whenSet_thenShouldThrowArithmeticException()
+    {
+        new Rational(1, 0);
+    }
+
+    @Test
+    public void givenDecimals_whenSetDecimal_thenShouldReadThirdsAndThousandths()
+    {
+        assertEquals(new Rational(1, 3), new Rational().setDecimal(0.33));
+        assertEquals(new Rational(5, 3), new Rational().setDecimal(1.66));
+        assertEquals(new Rational(8, 3), new Rational().setDecimal(2.667));
+        assertEquals(new Rational(9, 8), new Rational().setDecimal(1.125));
+        assertEquals(new Rational(1, 5), new Rational().setDecimal(0.2));
+        assertEquals(new Rational(3, 1), new Rational().setDecimal(3));
+    }
+
+    @Test
+    public void givenThirds_whenMultiplyAndAdd_thenShouldStayExact()
+    {
+        Rational third = new Rational().setDecimal(0.33);
+
+        assertEquals(new Rational(1, 1), new Rational().set(third).multiply(3, 1));
+        assertEquals(new Rational(1, 1), new Rational().set(third).add(third).add(1, 3));
+        assertEquals(new Rational(5, 6), new Rational(1, 2).add(third));
+    }
+
+    @Test
+    public void givenScaledQuantities_whenFormat_thenShouldReturnCommonFractions()
+    {
+        assertEquals("⅔", Fraction.format(new Rational().setDecimal(0.33).multiply(2, 1)));
+        assertEquals("1½", Fraction.format(new Rational().setDecimal(0.75).multiply(2, 1)));
+        assertEquals("2", Fraction.format(new Rational().setDecimal(0.66).multiply(3, 1)));
+        assertEquals("⅕ + ⅛", Fraction.format(new Rational(13, 40)));
+        assertEquals("0.1", Fraction.format(new Rational(1, 10)));
+    }
+
+    @Test
+    public void givenRecipe_whenScaleIngredients_thenShouldScaleQuantitiesToServings()
+    {
+        Recipe recipe = givenRecipe();
+        Rational[] quantities = { new Rational(), new Rational(), new Rational() };
+
+        recipe.scaleIngredients(6, quantities);
+
+        assertEquals(new Rational(1, 2), quantities[0]);
+        assertEquals(new Rational(3, 1), quantities[1]);
+        assertEquals(new Rational(9, 8), quantities[2]);
+    }
+
+    @Test
+    public void givenRecipeWithoutServings_whenScaleIngredients_thenShouldNotScaleQuantities()
+    {
+        Recipe recipe = givenRecipe().setServings(0);
+        Rational[] quantities = { new Rational(), new Rational(), new Rational() };
+
+        recipe.scaleIngredients(6, quantities);
+
+        assertEquals(new Rational(1, 3), quantities[0]);
+    }
+
+    @Test
+    public void givenQuantitiesAlreadyScaled_whenScaleIngredientsAgain_thenShouldNotAllocate()
+    {
+        Recipe recipe = givenRecipe();
+        Rational[] quantities = { new Rational(), new Rational(), new Rational() };
+
+        Runnable scale = () ->
+        {
+            for(int servings = 1; servings <= SCALED_RECIPES; servings++)
+            {
+                recipe.scaleIngredients(servings, quantities);
+            }
+        };
+        scale.run();
+
+        // Any allocation per scaled recipe would be at least SCALED_RECIPES * 16 bytes
+        assertThat(allocatedBytes(scale), lessThan((long) SCALED_RECIPES));
+    }
+
+    private long allocatedBytes(Runnable action)
+    {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        action.run();
+
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private Recipe givenRecipe()
+    {
+        Ingredients ingredients = new Ingredients("Adobo", asList(new Ingredient(0.33, "cup", "Vinegar", ""),
+                new Ingredient(2, "pcs", "Bay leaf", ""), new Ingredient(0.75, "tbsp", "Pepper", "")));
+
+        return new Recipe().setTitle("Adobo").setServings(4).setIngredients(ingredients);
+    }
+}
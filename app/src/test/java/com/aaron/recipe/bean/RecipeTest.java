@@ -82,4 +82,34 @@ public class RecipeTest
 
         assertEquals("3 hrs 36 mins", recipe.getPreparationTimeString());
     }
+
+    @Test
+    public void givenPreparationTimeAlreadyFormatted_whenGetPreparationTimeString_thenShouldReturnTheSameString()
+    {
+        Recipe recipe = new Recipe().setPreparationTime(65);
+
+        assertSame(recipe.getPreparationTimeString(), recipe.getPreparationTimeString());
+    }
+
+    @Test
+    public void givenPreparationTimeChangedAfterFormatting_whenGetPreparationTimeString_thenShouldReturnTheNewPreparationTime()
+    {
+        Recipe recipe = new Recipe().setPreparationTime(65);
+        recipe.getPreparationTimeString();
+
+        recipe.setPreparationTime(1);
+
+        assertEquals("1 min", recipe.getPreparationTimeString());
+    }
+
+    @Test
+    public void givenServingsChangedAfterFormatting_whenGetServingsString_thenShouldReturnTheNewServings()
+    {
+        Recipe recipe = new Recipe().setServings(4);
+        assertEquals("4", recipe.getServingsString());
+
+        recipe.setServings(12);
+
+        assertEquals("12", recipe.getServingsString());
+    }
 }
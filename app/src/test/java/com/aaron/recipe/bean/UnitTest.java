@@ -0,0 +1,63 @@
+package com.aaron.recipe.bean;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UnitTest
+{
+    @Test
+    public void givenMeasurementAliases_whenParse_thenShouldReturnCanonicalUnit()
+    {
+        assertEquals(Unit.CUP, Unit.parse("cups"));
+        assertEquals(Unit.CUP, Unit.parse(" C. "));
+        assertEquals(Unit.TABLESPOON, Unit.parse("Tbsp"));
+        assertEquals(Unit.TABLESPOON, Unit.parse("T"));
+        assertEquals(Unit.TEASPOON, Unit.parse("t"));
+        assertEquals(Unit.POUND, Unit.parse("lbs."));
+        assertEquals(Unit.FLUID_OUNCE, Unit.parse("fl oz"));
+    }
+
+    @Test
+    public void givenUnknownMeasurement_whenParse_thenShouldReturnOther()
+    {
+        assertEquals(Unit.OTHER, Unit.parse("cloves"));
+        assertEquals(Unit.OTHER, Unit.parse(""));
+        assertEquals(Unit.OTHER, Unit.parse(null));
+    }
+
+    @Test
+    public void givenStoredNames_whenFromName_thenShouldReturnUnitOrOther()
+    {
+        assertEquals(Unit.TABLESPOON, Unit.fromName("TABLESPOON"));
+        assertEquals(Unit.OTHER, Unit.fromName("tablespoon"));
+        assertEquals(Unit.OTHER, Unit.fromName("RENAMED_UNIT"));
+        assertEquals(Unit.OTHER, Unit.fromName(null));
+    }
+
+    @Test
+    public void givenOtherUnit_whenIsConvertibleTo_thenShouldReturnFalse()
+    {
+        assertFalse(Unit.OTHER.isConvertibleTo(Unit.OTHER));
+        assertTrue(Unit.LITER.isConvertibleTo(Unit.CUP));
+        assertFalse(Unit.LITER.isConvertibleTo(Unit.KILOGRAM));
+    }
+
+    @Test
+    public void givenQuantity_whenToBaseQuantity_thenShouldReturnMillilitersOrGrams()
+    {
+        assertEquals(236.5882365, Unit.CUP.toBaseQuantity(1), 1e-9);
+        assertEquals(453.59237, Unit.POUND.toBaseQuantity(1), 1e-9);
+        assertEquals(3, Unit.OTHER.toBaseQuantity(3), 0);
+    }
+
+    @Test
+    public void givenBaseQuantity_whenFromBaseQuantity_thenShouldReturnQuantityInTheUnit()
+    {
+        assertEquals(1.125, Unit.CUP.fromBaseQuantity(Unit.CUP.toBaseQuantity(1) + Unit.TABLESPOON.toBaseQuantity(2)), 1e-9);
+        assertEquals(1.5, Unit.KILOGRAM.fromBaseQuantity(1500), 1e-9);
+        assertEquals(3, Unit.OTHER.fromBaseQuantity(3), 0);
+    }
+}
@@ -7,12 +7,24 @@ import com.aaron.recipe.RobolectricTest;
 import com.aaron.recipe.activity.RecipeListActivity;
 import com.aaron.recipe.adapter.RecipeListRowAdapter;
 import com.aaron.recipe.bean.Recipe;
+import com.aaron.recipe.model.RecipeManager;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.RandomUtils;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Single;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
 
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasProperty;
@@ -20,20 +32,49 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class RecipeSearchListenerTest extends RobolectricTest
 {
     private RecipeSearchListener listener;
+    private RecipeManager recipeManager;
+    private TestScheduler computationScheduler;
+
+    @Before
+    public void initialize()
+    {
+        // override Schedulers.computation(), the debounce time is advanced by the tests
+        computationScheduler = new TestScheduler();
+        RxJavaPlugins.setComputationSchedulerHandler(schedulerCallable -> computationScheduler);
+        // override AndroidSchedulers.mainThread()
+        RxAndroidPlugins.setMainThreadSchedulerHandler(schedulerCallable -> Schedulers.trampoline());
+
+        recipeManager = mock(RecipeManager.class);
+        when(recipeManager.loadSearchedRecipeIds(anyString())).thenReturn(Single.just(Collections.emptyList()));
+    }
+
+    @After
+    public void cleanUp()
+    {
+        listener.dispose();
+        RxJavaPlugins.reset();
+        RxAndroidPlugins.reset();
+    }
 
     @Test
     public void givenEmptySearchTextAndRecipeList_whenAfterTextChanged_thenShouldReturnRecipeListUnchanged()
     {
         ArrayList<Recipe> recipeList = givenRecipeList();
-        listener = new RecipeSearchListener(initializeRecipeListRowAdapter(recipeList));
+        listener = new RecipeSearchListener(initializeRecipeListRowAdapter(recipeList), recipeManager);
         ArrayList<Recipe> originalRecipeList = new ArrayList<>(recipeList);
 
         Editable editable = new SpannableStringBuilder("");
         listener.afterTextChanged(editable);
+        computationScheduler.advanceTimeBy(RecipeSearchListener.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
 
         assertEquals(originalRecipeList, recipeList);
     }
@@ -44,10 +85,11 @@ public class RecipeSearchListenerTest extends RobolectricTest
         String searchText = "shr";
         ArrayList<Recipe> recipeList = new ArrayList<>();
         recipeList.add(newRecipe("Shrimp paste"));
-        listener = new RecipeSearchListener(initializeRecipeListRowAdapter(recipeList));
+        listener = new RecipeSearchListener(initializeRecipeListRowAdapter(recipeList), recipeManager);
 
         Editable editable = new SpannableStringBuilder(searchText);
         listener.afterTextChanged(editable);
+        computationScheduler.advanceTimeBy(RecipeSearchListener.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
 
         assertFalse(recipeList.isEmpty());
         assertThat(recipeList, contains(hasProperty("title", is("Shrimp paste"))));
@@ -58,10 +100,11 @@ public class RecipeSearchListenerTest extends RobolectricTest
     {
         String searchText = "lObSter";
         ArrayList<Recipe> recipeList = givenRecipeList();
-        listener = new RecipeSearchListener(initializeRecipeListRowAdapter(recipeList));
+        listener = new RecipeSearchListener(initializeRecipeListRowAdapter(recipeList), recipeManager);
 
         Editable editable = new SpannableStringBuilder(searchText);
         listener.afterTextChanged(editable);
+        computationScheduler.advanceTimeBy(RecipeSearchListener.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
 
         assertFalse(recipeList.isEmpty());
         assertThat(recipeList, contains(hasProperty("title", is("Lobster and tail")),
@@ -76,16 +119,77 @@ public class RecipeSearchListenerTest extends RobolectricTest
     {
         String searchText = "a";
         ArrayList<Recipe> recipeList = givenRecipeList();
-        listener = new RecipeSearchListener(initializeRecipeListRowAdapter(recipeList));
+        listener = new RecipeSearchListener(initializeRecipeListRowAdapter(recipeList), recipeManager);
 
         Editable editable = new SpannableStringBuilder(searchText);
         listener.afterTextChanged(editable);
+        computationScheduler.advanceTimeBy(RecipeSearchListener.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
 
         assertFalse(recipeList.isEmpty());
         assertThat(recipeList, contains(hasProperty("title", is("Apricot yogurt")),
                 hasProperty("title", is("Apple tart"))));
     }
 
+    @Test
+    public void givenSearchTextAndFullTextSearchResult_whenAfterTextChanged_thenShouldAppendSearchedRecipesAfterTitleMatches()
+    {
+        String searchText = "garlic";
+        ArrayList<Recipe> recipeList = givenRecipeList();
+        Recipe garlicBread = newRecipe("Garlic bread");
+        recipeList.add(garlicBread);
+        Recipe lasagna = recipeList.get(1);
+        Recipe beefCelery = recipeList.get(6);
+        when(recipeManager.loadSearchedRecipeIds(searchText))
+                .thenReturn(Single.just(Arrays.asList(garlicBread.getId(), beefCelery.getId(), lasagna.getId(), -1)));
+        listener = new RecipeSearchListener(initializeRecipeListRowAdapter(recipeList), recipeManager);
+
+        Editable editable = new SpannableStringBuilder(searchText);
+        listener.afterTextChanged(editable);
+        computationScheduler.advanceTimeBy(RecipeSearchListener.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertThat(recipeList, contains(hasProperty("title", is("Garlic bread")),
+                hasProperty("title", is("Beef celery")),
+                hasProperty("title", is("Lasagna"))));
+    }
+
+    @Test
+    public void givenSearchTextTypedFasterThanTheDebounce_whenAfterTextChanged_thenShouldOnlySearchTheLastText()
+    {
+        ArrayList<Recipe> recipeList = givenRecipeList();
+        listener = new RecipeSearchListener(initializeRecipeListRowAdapter(recipeList), recipeManager);
+
+        for(String searchText : new String[] { "l", "lo", "lob" })
+        {
+            listener.afterTextChanged(new SpannableStringBuilder(searchText));
+            computationScheduler.advanceTimeBy(RecipeSearchListener.DEBOUNCE_MILLIS - 1, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals(givenRecipeList().size(), recipeList.size());
+
+        computationScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+
+        verify(recipeManager).loadSearchedRecipeIds("lob");
+        verify(recipeManager, never()).loadSearchedRecipeIds("lo");
+        assertThat(recipeList, contains(hasProperty("title", is("Lobster and tail")),
+                hasProperty("title", is("lobster and soup")),
+                hasProperty("title", is("Lobster bisque")),
+                hasProperty("title", is("Dessert lobster")),
+                hasProperty("title", is("A whole bunch of LOBSTERballz"))));
+    }
+
+    @Test
+    public void givenDisposedListener_whenAfterTextChanged_thenShouldNotChangeTheRecipeList()
+    {
+        ArrayList<Recipe> recipeList = givenRecipeList();
+        listener = new RecipeSearchListener(initializeRecipeListRowAdapter(recipeList), recipeManager);
+
+        listener.dispose();
+        listener.afterTextChanged(new SpannableStringBuilder("lobster"));
+        computationScheduler.advanceTimeBy(RecipeSearchListener.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertEquals(givenRecipeList().size(), recipeList.size());
+    }
+
     private RecipeListRowAdapter initializeRecipeListRowAdapter(ArrayList<Recipe> recipeList)
     {
         return new RecipeListRowAdapter(getActivity(RecipeListActivity.class), recipeList, null);
@@ -0,0 +1,107 @@
+package com.aaron.recipe.listener;
+
+import android.text.SpannableStringBuilder;
+
+import com.aaron.recipe.RobolectricTest;
+import com.aaron.recipe.bean.Settings;
+import com.aaron.recipe.model.HttpClient;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class ServerUrlTextListenerTest extends RobolectricTest
+{
+    private ServerUrlTextListener listener;
+    private Settings settings;
+    private TestScheduler computationScheduler;
+    private Object initialService;
+
+    @Before
+    public void initialize() throws IllegalAccessException
+    {
+        // override Schedulers.computation(), the debounce time is advanced by the tests
+        computationScheduler = new TestScheduler();
+        RxJavaPlugins.setComputationSchedulerHandler(schedulerCallable -> computationScheduler);
+
+        new HttpClient(getContext());
+        initialService = getService();
+
+        settings = new Settings();
+        listener = new ServerUrlTextListener(settings);
+    }
+
+    @After
+    public void cleanUp()
+    {
+        listener.dispose();
+        RxJavaPlugins.reset();
+    }
+
+    @Test
+    public void givenKeystrokesOfAddress_whenAfterTextChanged_thenShouldSaveEachKeystrokeAndSwitchServerOnceAfterDebounce() throws IllegalAccessException
+    {
+        listener.afterTextChanged(new SpannableStringBuilder("10.0.0.3"));
+        listener.afterTextChanged(new SpannableStringBuilder("10.0.0.34"));
+        assertEquals("10.0.0.34", settings.getServerURL());
+        assertSame(initialService, getService());
+
+        computationScheduler.advanceTimeBy(ServerUrlTextListener.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertSame(getServiceOfHostname("10.0.0.34"), getService());
+        assertFalse(getServices().containsKey(toBaseUrl("10.0.0.3")));
+    }
+
+    @Test
+    public void givenInvalidAddress_whenAfterTextChanged_thenShouldSaveItAndKeepServer() throws IllegalAccessException
+    {
+        listener.afterTextChanged(new SpannableStringBuilder("10.0"));
+
+        computationScheduler.advanceTimeBy(ServerUrlTextListener.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertEquals("10.0", settings.getServerURL());
+        assertSame(initialService, getService());
+    }
+
+    @Test
+    public void givenAddressWaitingForDebounce_whenDispose_thenShouldSwitchServerRightAway() throws IllegalAccessException
+    {
+        listener.afterTextChanged(new SpannableStringBuilder("10.0.0.35"));
+
+        listener.dispose();
+
+        assertSame(getServiceOfHostname("10.0.0.35"), getService());
+    }
+
+    private Object getService() throws IllegalAccessException
+    {
+        return ((AtomicReference<?>) FieldUtils.readStaticField(HttpClient.class, "SERVICE", true)).get();
+    }
+
+    private Object getServiceOfHostname(String hostname) throws IllegalAccessException
+    {
+        return getServices().get(toBaseUrl(hostname));
+    }
+
+    private Map<?, ?> getServices() throws IllegalAccessException
+    {
+        return (Map<?, ?>) FieldUtils.readStaticField(HttpClient.class, "SERVICES_BY_BASE_URL", true);
+    }
+
+    private String toBaseUrl(String hostname)
+    {
+        return "http://" + hostname + "/Recipe/web_service/";
+    }
+}
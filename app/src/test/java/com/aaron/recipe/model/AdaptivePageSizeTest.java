@@ -0,0 +1,81 @@
+package com.aaron.recipe.model;
+
+import org.junit.Test;
+
+import static com.aaron.recipe.model.AdaptivePageSize.DEFAULT_SIZE;
+import static com.aaron.recipe.model.AdaptivePageSize.MAX_SIZE;
+import static com.aaron.recipe.model.AdaptivePageSize.MIN_SIZE;
+import static com.aaron.recipe.model.AdaptivePageSize.TARGET_PAGE_MILLIS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptivePageSizeTest
+{
+    @Test
+    public void givenSizeOutOfBounds_whenGet_thenShouldReturnSizeWithinBounds()
+    {
+        assertEquals(MIN_SIZE, new AdaptivePageSize(1).get());
+        assertEquals(MAX_SIZE, new AdaptivePageSize(MAX_SIZE * 10).get());
+    }
+
+    @Test
+    public void givenPageFetchedInTargetTime_whenOnPageFetched_thenShouldKeepSize()
+    {
+        AdaptivePageSize pageSize = new AdaptivePageSize(DEFAULT_SIZE);
+
+        pageSize.onPageFetched(DEFAULT_SIZE, TARGET_PAGE_MILLIS);
+
+        assertEquals(DEFAULT_SIZE, pageSize.get());
+    }
+
+    @Test
+    public void givenFastPages_whenOnPageFetched_thenShouldAtMostDoubleSizePerPageUpToMaxSize()
+    {
+        AdaptivePageSize pageSize = new AdaptivePageSize(DEFAULT_SIZE);
+
+        pageSize.onPageFetched(DEFAULT_SIZE, 10);
+        assertEquals(DEFAULT_SIZE * 2, pageSize.get());
+
+        pageSize.onPageFetched(DEFAULT_SIZE * 2, 20);
+        assertEquals(DEFAULT_SIZE * 4, pageSize.get());
+
+        pageSize.onPageFetched(DEFAULT_SIZE * 4, 40);
+        pageSize.onPageFetched(MAX_SIZE, 100);
+        assertEquals(MAX_SIZE, pageSize.get());
+    }
+
+    @Test
+    public void givenSlowPages_whenOnPageFetched_thenShouldAtMostHalveSizePerPageDownToMinSize()
+    {
+        AdaptivePageSize pageSize = new AdaptivePageSize(DEFAULT_SIZE);
+
+        pageSize.onPageFetched(DEFAULT_SIZE, TARGET_PAGE_MILLIS * 100);
+        assertEquals(DEFAULT_SIZE / 2, pageSize.get());
+
+        pageSize.onPageFetched(DEFAULT_SIZE / 2, TARGET_PAGE_MILLIS * 100);
+        pageSize.onPageFetched(MIN_SIZE, TARGET_PAGE_MILLIS * 100);
+        assertEquals(MIN_SIZE, pageSize.get());
+    }
+
+    @Test
+    public void givenOneSlowPageAfterFastPages_whenOnPageFetched_thenShouldNotShrinkSize()
+    {
+        AdaptivePageSize pageSize = new AdaptivePageSize(DEFAULT_SIZE);
+        pageSize.onPageFetched(DEFAULT_SIZE, 10);
+        int size = pageSize.get();
+
+        pageSize.onPageFetched(size, TARGET_PAGE_MILLIS * 2);
+
+        assertTrue(pageSize.get() >= size);
+    }
+
+    @Test
+    public void givenPageWithoutRecipes_whenOnPageFetched_thenShouldKeepSize()
+    {
+        AdaptivePageSize pageSize = new AdaptivePageSize(DEFAULT_SIZE);
+
+        pageSize.onPageFetched(0, TARGET_PAGE_MILLIS * 100);
+
+        assertEquals(DEFAULT_SIZE, pageSize.get());
+    }
+}
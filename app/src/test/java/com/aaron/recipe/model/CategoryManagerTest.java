@@ -8,6 +8,8 @@ import com.aaron.recipe.R;
 import com.aaron.recipe.RobolectricTest;
 import com.aaron.recipe.bean.Categories;
 import com.aaron.recipe.response.ResponseCategory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.junit.After;
@@ -15,6 +17,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.robolectric.shadows.ShadowToast;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -25,21 +28,33 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import io.reactivex.Single;
+import io.reactivex.Maybe;
 import io.reactivex.android.plugins.RxAndroidPlugins;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Action;
 import io.reactivex.plugins.RxJavaPlugins;
 import io.reactivex.schedulers.Schedulers;
-
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import retrofit2.Response;
+
+import static com.aaron.recipe.bean.Categories.DEFAULT;
 import static com.aaron.recipe.model.MySQLiteHelper.TABLE_CATEGORIES;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_HTTP_VALIDATORS;
 import static org.apache.commons.lang3.RandomStringUtils.randomAlphabetic;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -54,14 +69,19 @@ public class CategoryManagerTest extends RobolectricTest
     private CompositeDisposable compositeDisposable;
     private int disposables;
     private AtomicBoolean isUpdating;
+    private MockWebServer server;
 
     @Before
-    public void initialize() throws IllegalAccessException
+    public void initialize() throws IllegalAccessException, IOException
     {
         // override Schedulers.io()
         RxJavaPlugins.setIoSchedulerHandler(schedulerCallable -> Schedulers.trampoline());
         // override AndroidSchedulers.mainThread()
         RxAndroidPlugins.setInitMainThreadSchedulerHandler(schedulerCallable -> Schedulers.trampoline());
+        // override the database writer and reader threads
+        DatabaseExecutor.setSchedulers(Schedulers.trampoline(), Schedulers.trampoline());
+        // start with a new shared http client, on the cache directory of this test
+        HttpClient.reset();
 
         dbHelperTest = new MySQLiteHelper(getContext());
         manager = new CategoryManager(getContext());
@@ -76,8 +96,15 @@ public class CategoryManagerTest extends RobolectricTest
     }
 
     @After
-    public void cleanUp()
+    public void cleanUp() throws IOException
     {
+        DatabaseExecutor.resetSchedulers();
+
+        if(server != null)
+        {
+            server.shutdown();
+        }
+
         compositeDisposable.clear();
         isUpdating.set(false);
         Categories.getCategories().clear();
@@ -90,7 +117,7 @@ public class CategoryManagerTest extends RobolectricTest
     {
         Action action = mock(Action.class);
         List<ResponseCategory> response = givenResponseCategoryList();
-        when(httpClient.getCategories()).thenReturn(Single.just(response));
+        when(httpClient.getCategories(any())).thenReturn(Maybe.just(Response.success(response)));
 
         manager.updateCategories(action);
 
@@ -102,7 +129,7 @@ public class CategoryManagerTest extends RobolectricTest
             throws Exception
     {
         Action action = mock(Action.class);
-        when(httpClient.getCategories()).thenReturn(Single.just(Collections.emptyList()));
+        when(httpClient.getCategories(any())).thenReturn(Maybe.just(Response.success(Collections.emptyList())));
 
         manager.updateCategories(action);
 
@@ -114,13 +141,112 @@ public class CategoryManagerTest extends RobolectricTest
             throws Exception
     {
         Action action = mock(Action.class);
-        when(httpClient.getCategories()).thenReturn(Single.error(Exception::new));
+        when(httpClient.getCategories(any())).thenReturn(Maybe.error(Exception::new));
 
         manager.updateCategories(action);
 
         thenShouldStartUpdatingAndHandleExceptionAndRunActionAndDisposeObserver(action);
     }
 
+    @Test
+    public void givenActionAndNotModifiedResponse_whenUpdateCategories_thenShouldKeepCategoriesInDiskAndRunActionAndDisposeObserver() throws Exception
+    {
+        Action action = mock(Action.class);
+        SparseArray<String> categoriesFromDatabase = givenCategoriesInDisk();
+        when(httpClient.getCategories(any())).thenReturn(Maybe.empty());
+
+        manager.updateCategories(action);
+
+        assertTrue(isUpdating.get());
+        thenShouldReturnCategoriesArray(categoriesFromDatabase, manager.getCategoriesFromDisk());
+        assertNull(ShadowToast.getTextOfLatestToast());
+        verify(action, times(1)).run();
+        assertEquals(disposables + 1, compositeDisposable.size());
+    }
+
+    @Test
+    public void givenValidatorsInDiskAndOnlyDefaultCategoryInCache_whenUpdateCategories_thenShouldRequestCategoriesWithoutValidators()
+            throws Exception
+    {
+        givenCategoriesInDisk();
+        givenCategoriesValidatorsInDisk("\"v1\"", "Tue, 08 May 2018 14:37:39 GMT");
+        givenOnlyDefaultCategoryInCache();
+        when(httpClient.getCategories(any())).thenReturn(Maybe.empty());
+
+        manager.updateCategories(mock(Action.class));
+
+        verify(httpClient, times(1)).getCategories(HttpValidators.NONE);
+    }
+
+    @Test
+    public void givenStubServerAnsweringNotModifiedToETag_whenUpdateCategoriesAgain_thenShouldRevalidateAndNotRewriteCategoriesInDisk() throws Exception
+    {
+        List<ResponseCategory> response = givenResponseCategoryList();
+        givenStubServer(new MockResponse().setBody(toJson(response)).setHeader("ETag", "\"v1\""),
+                new MockResponse().setResponseCode(304));
+        manager.updateCategories(mock(Action.class));
+        givenCategoryRenamedInDisk(response.get(0).getId(), "Renamed");
+
+        manager.updateCategories(mock(Action.class));
+
+        server.takeRequest();
+        RecordedRequest revalidationRequest = server.takeRequest();
+        assertEquals("\"v1\"", revalidationRequest.getHeader("If-None-Match"));
+        assertEquals("Renamed", getCategoriesFromDisk().get(response.get(0).getId()));
+    }
+
+    @Test
+    public void givenStubServerAnsweringNotModifiedAndNoCategoriesInCache_whenUpdateCategoriesAgain_thenShouldStillSaveCategories() throws Exception
+    {
+        List<ResponseCategory> response = givenResponseCategoryList();
+        givenStubServer(new MockResponse().setBody(toJson(response)).setHeader("ETag", "\"v1\""),
+                new MockResponse().setResponseCode(304));
+        manager.updateCategories(mock(Action.class));
+        Categories.getCategories().clear();
+        Categories.getCategoriesMap().clear();
+
+        manager.updateCategories(mock(Action.class));
+
+        assertCategoriesAreSavedInCacheAndDisk(response);
+    }
+
+    @Test
+    public void givenStubServerWithLastModifiedAndChangedCategories_whenUpdateCategoriesAgain_thenShouldRevalidateAndSaveChangedCategories() throws Exception
+    {
+        String lastModified = "Tue, 08 May 2018 14:37:39 GMT";
+        List<ResponseCategory> changedResponse = givenResponseCategoryList();
+        givenStubServer(new MockResponse().setBody(toJson(givenResponseCategoryList())).setHeader("Last-Modified", lastModified),
+                new MockResponse().setBody(toJson(changedResponse)));
+        manager.updateCategories(mock(Action.class));
+
+        manager.updateCategories(mock(Action.class));
+
+        server.takeRequest();
+        RecordedRequest revalidationRequest = server.takeRequest();
+        assertEquals(lastModified, revalidationRequest.getHeader("If-Modified-Since"));
+        Map<Integer, String> categoriesFromDisk = getCategoriesFromDisk();
+        assertThat(changedResponse.stream().map(ResponseCategory::getName).collect(Collectors.toList()),
+                containsInAnyOrder(categoriesFromDisk.values().toArray()));
+    }
+
+    @Test
+    public void givenStubServerWithGzipBody_whenUpdateCategories_thenShouldAskForGzipAndSaveCategories() throws Exception
+    {
+        List<ResponseCategory> response = givenResponseCategoryList();
+        Buffer gzipBody = new Buffer();
+        try(BufferedSink sink = Okio.buffer(new GzipSink(gzipBody)))
+        {
+            sink.writeUtf8(toJson(response));
+        }
+        givenStubServer(new MockResponse().setBody(gzipBody).setHeader("Content-Encoding", "gzip"));
+        Action action = mock(Action.class);
+
+        manager.updateCategories(action);
+
+        assertEquals("gzip", server.takeRequest().getHeader("Accept-Encoding"));
+        thenShouldStartUpdatingAndSaveCategoriesAndExecuteTheActionAndAddObserverToCompositeDisposable(response, action);
+    }
+
     @Test
     public void givenNotDisposedCompositeDisposable_whenClearCategoriesWebObserver_thenShouldClearTheCompositeDisposable()
     {
@@ -141,6 +267,16 @@ public class CategoryManagerTest extends RobolectricTest
         thenShouldReturnCategoriesArray(categoriesFromDatabase, categories);
     }
 
+    @Test
+    public void givenCategoriesInDisk_whenLoadCategories_thenShouldEmitCategoriesArray()
+    {
+        SparseArray<String> categoriesFromDatabase = givenCategoriesInDisk();
+
+        SparseArray<String> categories = manager.loadCategories().blockingGet();
+
+        thenShouldReturnCategoriesArray(categoriesFromDatabase, categories);
+    }
+
     @Test
     public void givenIsUpdating_whenDoneUpdating_thenShouldSetIsUpdatingFlagToFalse()
     {
@@ -176,6 +312,55 @@ public class CategoryManagerTest extends RobolectricTest
         return response;
     }
 
+    /**
+     * Starts a local stub of the web service answering with the given responses in order, and points the http client of the manager to it.
+     */
+    private void givenStubServer(MockResponse... responses) throws IOException, IllegalAccessException
+    {
+        server = new MockWebServer();
+        for(MockResponse response : responses)
+        {
+            server.enqueue(response);
+        }
+        server.start();
+
+        FieldUtils.writeField(manager, "httpClient", new HttpClient(getContext()), true);
+        HttpClient.reinitializeRetrofit(server.getHostName() + ":" + server.getPort());
+    }
+
+    private String toJson(List<ResponseCategory> response) throws JsonProcessingException
+    {
+        return new ObjectMapper().writeValueAsString(response);
+    }
+
+    private void givenCategoryRenamedInDisk(int id, String name)
+    {
+        try(SQLiteDatabase db = dbHelperTest.getWritableDatabase())
+        {
+            db.execSQL(String.format("UPDATE %s SET name = ? WHERE id = ?", TABLE_CATEGORIES), new Object[] { name, id });
+        }
+    }
+
+    private void givenCategoriesValidatorsInDisk(String eTag, String lastModified)
+    {
+        try(SQLiteDatabase db = dbHelperTest.getWritableDatabase())
+        {
+            db.execSQL(String.format("INSERT INTO %s(name, etag, last_modified) VALUES(?, ?, ?)", TABLE_HTTP_VALIDATORS),
+                    new Object[] { TABLE_CATEGORIES, eTag, lastModified });
+        }
+    }
+
+    /**
+     * Leaves only the default category in cache, as when the application starts and the categories are not loaded from the database yet.
+     */
+    private void givenOnlyDefaultCategoryInCache()
+    {
+        Categories.getCategories().clear();
+        Categories.getCategoriesMap().clear();
+        Categories.getCategories().add(DEFAULT);
+        Categories.getCategoriesMap().put(-1, DEFAULT);
+    }
+
     private ResponseCategory newResponseCategory(int id)
     {
         ResponseCategory category = new ResponseCategory();
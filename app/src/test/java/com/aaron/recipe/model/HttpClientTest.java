@@ -0,0 +1,72 @@
+package com.aaron.recipe.model;
+
+import com.aaron.recipe.RobolectricTest;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class HttpClientTest extends RobolectricTest
+{
+    @Before
+    public void initialize() throws IOException
+    {
+        // start with a new shared http client, on the cache directory of this test
+        HttpClient.reset();
+    }
+
+    @Test
+    public void givenHttpClient_whenCreateAnotherHttpClient_thenShouldShareTheOkHttpClient() throws IllegalAccessException
+    {
+        new HttpClient(getContext());
+        OkHttpClient okHttpClient = getOkHttpClient();
+
+        new HttpClient(getContext());
+
+        assertSame(okHttpClient, getOkHttpClient());
+    }
+
+    @Test
+    public void givenServerChanged_whenCreateHttpClient_thenShouldKeepTheServer() throws IllegalAccessException
+    {
+        new HttpClient(getContext());
+        HttpClient.reinitializeRetrofit("10.0.0.1");
+        Object service = getService();
+
+        new HttpClient(getContext());
+
+        assertSame(service, getService());
+    }
+
+    @Test
+    public void givenServerChangedAndChangedBack_whenReinitializeRetrofit_thenShouldReuseTheServiceOfTheServer() throws IllegalAccessException
+    {
+        new HttpClient(getContext());
+        HttpClient.reinitializeRetrofit("10.0.0.1");
+        Object service = getService();
+        HttpClient.reinitializeRetrofit("10.0.0.2");
+        assertNotSame(service, getService());
+
+        HttpClient.reinitializeRetrofit("10.0.0.1");
+
+        assertSame(service, getService());
+    }
+
+    private OkHttpClient getOkHttpClient() throws IllegalAccessException
+    {
+        return (OkHttpClient) FieldUtils.readStaticField(HttpClient.class, "okHttpClient", true);
+    }
+
+    private Object getService() throws IllegalAccessException
+    {
+        return ((AtomicReference<?>) FieldUtils.readStaticField(HttpClient.class, "SERVICE", true)).get();
+    }
+}
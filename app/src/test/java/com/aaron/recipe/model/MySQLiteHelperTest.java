@@ -0,0 +1,222 @@
+package com.aaron.recipe.model;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.aaron.recipe.RobolectricTest;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.aaron.recipe.model.MySQLiteHelper.DATABASE_NAME;
+import static com.aaron.recipe.model.MySQLiteHelper.INDEX_INGREDIENTS_RECIPE_ID_COUNT;
+import static com.aaron.recipe.model.MySQLiteHelper.INDEX_INSTRUCTIONS_RECIPE_ID_COUNT;
+import static com.aaron.recipe.model.MySQLiteHelper.INDEX_RECIPE_CATEGORY_ID_TITLE;
+import static com.aaron.recipe.model.MySQLiteHelper.INDEX_RECIPE_DATE_IN;
+import static com.aaron.recipe.model.MySQLiteHelper.INDEX_RECIPE_SERVER_ID;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_RECIPE;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_RECIPE_SEARCH;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+
+public class MySQLiteHelperTest extends RobolectricTest
+{
+    private MySQLiteHelper dbHelperTest;
+
+    @Before
+    public void initialize()
+    {
+        dbHelperTest = new MySQLiteHelper(getContext());
+    }
+
+    @After
+    public void cleanUp()
+    {
+        dbHelperTest.close();
+    }
+
+    @Test
+    public void givenIngredientsQueryOfRecipe_whenExplainQueryPlan_thenShouldUseRecipeIdCountIndexWithoutSorting()
+    {
+        String queryPlan = explainQueryPlan("SELECT quantity, measurement, ingredient, comment_ FROM ingredients WHERE recipe_id = ? ORDER BY count ASC");
+
+        assertThat(queryPlan, containsString(INDEX_INGREDIENTS_RECIPE_ID_COUNT));
+        assertThat(queryPlan, not(containsString("TEMP B-TREE")));
+    }
+
+    @Test
+    public void givenInstructionsQueryOfRecipe_whenExplainQueryPlan_thenShouldUseRecipeIdCountIndexWithoutSorting()
+    {
+        String queryPlan = explainQueryPlan("SELECT instruction FROM instructions WHERE recipe_id = ? ORDER BY count ASC");
+
+        assertThat(queryPlan, containsString(INDEX_INSTRUCTIONS_RECIPE_ID_COUNT));
+        assertThat(queryPlan, not(containsString("TEMP B-TREE")));
+    }
+
+    @Test
+    public void givenBatchedIngredientsQueryOfCategory_whenExplainQueryPlan_thenShouldUseCategoryAndRecipeIdIndexes()
+    {
+        String queryPlan = explainQueryPlan("SELECT i.recipe_id, i.quantity FROM ingredients i INNER JOIN recipe r ON r.id = i.recipe_id " +
+                "WHERE r.category_id = ? ORDER BY i.recipe_id, i.count");
+
+        assertThat(queryPlan, containsString(INDEX_RECIPE_CATEGORY_ID_TITLE));
+        assertThat(queryPlan, containsString(INDEX_INGREDIENTS_RECIPE_ID_COUNT));
+    }
+
+    @Test
+    public void givenRecipesOfCategoryQuery_whenExplainQueryPlan_thenShouldUseCategoryIdTitleIndexWithoutSorting()
+    {
+        String queryPlan = explainQueryPlan("SELECT id, title FROM recipe WHERE category_id = ? ORDER BY title ASC");
+
+        assertThat(queryPlan, containsString(INDEX_RECIPE_CATEGORY_ID_TITLE));
+        assertThat(queryPlan, not(containsString("TEMP B-TREE")));
+    }
+
+    @Test
+    public void givenRecipeCountOfCategoryQuery_whenExplainQueryPlan_thenShouldUseCategoryIdTitleIndex()
+    {
+        String queryPlan = explainQueryPlan("SELECT COUNT(*) FROM recipe WHERE category_id = ?");
+
+        assertThat(queryPlan, containsString(INDEX_RECIPE_CATEGORY_ID_TITLE));
+    }
+
+    @Test
+    public void givenRecipeCountPerCategoryQuery_whenExplainQueryPlan_thenShouldUseCategoryIdTitleIndexWithoutSorting()
+    {
+        String queryPlan = explainQueryPlan("SELECT r.category_id, c.name, COUNT(*) FROM recipe r LEFT JOIN categories c ON c.id = r.category_id " +
+                "GROUP BY r.category_id");
+
+        assertThat(queryPlan, containsString(INDEX_RECIPE_CATEGORY_ID_TITLE));
+        assertThat(queryPlan, not(containsString("TEMP B-TREE")));
+    }
+
+    @Test
+    public void givenLastUpdatedQuery_whenExplainQueryPlan_thenShouldUseDateInIndexWithoutSorting()
+    {
+        String queryPlan = explainQueryPlan("SELECT MAX(date_in) FROM recipe");
+
+        assertThat(queryPlan, containsString(INDEX_RECIPE_DATE_IN));
+        assertThat(queryPlan, not(containsString("TEMP B-TREE")));
+    }
+
+    @Test
+    public void givenVersionOneDatabaseWithRecipe_whenUpgrade_thenShouldKeepRecipeAndCreateIndexesAndSearchTableAndNormalizeUnitsAndConvertDateIn()
+            throws IllegalAccessException
+    {
+        givenVersionOneDatabaseWithRecipe("May 8, 2018 02:37:39 PM");
+
+        SQLiteDatabase db = dbHelperTest.getReadableDatabase();
+
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM " + TABLE_RECIPE));
+        assertThat(getIndexNames(db), hasItems(INDEX_INGREDIENTS_RECIPE_ID_COUNT, INDEX_INSTRUCTIONS_RECIPE_ID_COUNT,
+                INDEX_RECIPE_CATEGORY_ID_TITLE, INDEX_RECIPE_DATE_IN, INDEX_RECIPE_SERVER_ID));
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM " + TABLE_RECIPE_SEARCH));
+        assertEquals(Collections.singletonList(1), RecipeFullTextSearch.search(db, "garlic"));
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM ingredients WHERE unit = 'OTHER' AND base_quantity = 3"));
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM ingredients WHERE unit = 'CUP' AND base_quantity BETWEEN 473.17 AND 473.18"));
+        assertEquals(2, count(db, "SELECT COUNT(*) FROM ingredients WHERE recipe_id = 1"));
+        assertEquals(LocalDateTime.of(2018, 5, 8, 14, 37, 39).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                longForQuery(db, "SELECT date_in FROM recipe WHERE typeof(date_in) = 'integer'"));
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM sync_state"));
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM http_validators"));
+    }
+
+    @Test
+    public void givenVersionOneDatabaseWithInvalidDateIn_whenUpgrade_thenShouldNotStoreItAsPendingDateIn() throws IllegalAccessException
+    {
+        givenVersionOneDatabaseWithRecipe("not a date");
+
+        SQLiteDatabase db = dbHelperTest.getWritableDatabase();
+        RecipeDatabaseWriter.markPendingRecipes(db, 1_525_761_459_000L);
+
+        assertEquals(-1, longForQuery(db, "SELECT date_in FROM recipe"));
+    }
+
+    private void givenVersionOneDatabaseWithRecipe(String dateIn) throws IllegalAccessException
+    {
+        File databaseFile = getContext().getDatabasePath(DATABASE_NAME);
+        databaseFile.getParentFile().mkdirs();
+
+        try(SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(databaseFile, null))
+        {
+            for(String table : new String[] { "CREATE_TABLE_RECIPE", "CREATE_TABLE_INGREDIENTS", "CREATE_TABLE_INSTRUCTIONS", "CREATE_TABLE_CATEGORIES" })
+            {
+                db.execSQL((String) FieldUtils.readStaticField(MySQLiteHelper.class, table, true));
+            }
+
+            db.execSQL("INSERT INTO recipe(title, category_id, preparation_time, description, servings, date_in) " +
+                    "VALUES('Adobo', 1, 30, 'Stew', 4, ?)", new Object[] { dateIn });
+            db.execSQL("INSERT INTO ingredients(recipe_id, quantity, measurement, ingredient, comment_, count) " +
+                    "VALUES(1, 3, 'cloves', 'Garlic', 'minced', 1)");
+            db.execSQL("INSERT INTO ingredients(recipe_id, quantity, measurement, ingredient, comment_, count) " +
+                    "VALUES(1, 2, 'cups', 'Water', '', 2)");
+            db.setVersion(1);
+        }
+    }
+
+    private String explainQueryPlan(String query)
+    {
+        StringBuilder queryPlan = new StringBuilder();
+        SQLiteDatabase db = dbHelperTest.getReadableDatabase();
+
+        // All parameters are bound to 1, only the shape of the query matters.
+        String[] args = new String[query.length() - query.replace("?", "").length()];
+        Arrays.fill(args, "1");
+
+        try(Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + query, args))
+        {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while(cursor.moveToNext())
+            {
+                queryPlan.append(cursor.getString(detailIndex)).append(System.lineSeparator());
+            }
+        }
+
+        return queryPlan.toString();
+    }
+
+    private long longForQuery(SQLiteDatabase db, String query)
+    {
+        try(Cursor cursor = db.rawQuery(query, null))
+        {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+
+    private int count(SQLiteDatabase db, String query)
+    {
+        try(Cursor cursor = db.rawQuery(query, null))
+        {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+
+    private List<String> getIndexNames(SQLiteDatabase db)
+    {
+        List<String> indexNames = new ArrayList<>();
+        try(Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'index'", null))
+        {
+            while(cursor.moveToNext())
+            {
+                indexNames.add(cursor.getString(0));
+            }
+        }
+
+        return indexNames;
+    }
+}
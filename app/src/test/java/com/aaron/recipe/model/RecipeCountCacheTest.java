@@ -0,0 +1,66 @@
+package com.aaron.recipe.model;
+
+import android.util.SparseIntArray;
+
+import com.aaron.recipe.RobolectricTest;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RecipeCountCacheTest extends RobolectricTest
+{
+    @After
+    public void cleanUp()
+    {
+        RecipeCountCache.clear();
+    }
+
+    @Test
+    public void givenCountsQueriedBeforeWrite_whenSetCountsAfterWrite_thenShouldNotStoreCounts()
+    {
+        long queriedVersion = RecipeCountCache.getVersion();
+        SparseIntArray staleCounts = counts(1, 5);
+
+        RecipeCountCache.beginChanges();
+        RecipeCountCache.endChanges(counts(1, 1));
+        RecipeCountCache.setCounts(staleCounts, queriedVersion);
+
+        assertNull(RecipeCountCache.getCounts());
+    }
+
+    @Test
+    public void givenWriteInProgress_whenSetCounts_thenShouldNotStoreCounts()
+    {
+        RecipeCountCache.beginChanges();
+        long queriedVersion = RecipeCountCache.getVersion();
+
+        RecipeCountCache.setCounts(counts(1, 5), queriedVersion);
+        RecipeCountCache.endChanges(counts(1, 1));
+
+        assertNull(RecipeCountCache.getCounts());
+    }
+
+    @Test
+    public void givenCountsStored_whenEndChanges_thenShouldApplyCommittedChangesOnly()
+    {
+        RecipeCountCache.setCounts(counts(1, 5), RecipeCountCache.getVersion());
+
+        RecipeCountCache.beginChanges();
+        RecipeCountCache.endChanges(counts(1, 2));
+        RecipeCountCache.beginChanges();
+        RecipeCountCache.endChanges(null);
+
+        assertEquals(7, RecipeCountCache.getCounts().get(1));
+    }
+
+    private SparseIntArray counts(int categoryId, int count)
+    {
+        SparseIntArray counts = new SparseIntArray();
+        counts.put(categoryId, count);
+
+        return counts;
+    }
+}
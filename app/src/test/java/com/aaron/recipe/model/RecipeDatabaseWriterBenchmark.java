@@ -0,0 +1,177 @@
+package com.aaron.recipe.model;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.aaron.recipe.RobolectricTest;
+import com.aaron.recipe.bean.Categories;
+import com.aaron.recipe.bean.Ingredient;
+import com.aaron.recipe.bean.Ingredients;
+import com.aaron.recipe.bean.Instructions;
+import com.aaron.recipe.bean.Recipe;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.threeten.bp.LocalDateTime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnIngredients;
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnInstructions;
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnRecipe;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_INGREDIENTS;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_INSTRUCTIONS;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_RECIPE;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_RECIPE_SEARCH;
+import static com.aaron.recipe.model.RecipeManager.DATE_FORMAT_DATABASE;
+import static org.junit.Assert.assertEquals;
+import static org.threeten.bp.format.DateTimeFormatter.ofPattern;
+
+/**
+ * Compares the import time of the compiled statement writer against the previous ContentValues and db.insert writer.
+ * Run with: gradlew test -Pbenchmark
+ */
+public class RecipeDatabaseWriterBenchmark extends RobolectricTest
+{
+    private static final int RECIPES = 10_000;
+    private static final int INGREDIENTS_PER_RECIPE = 15;
+    private static final int INSTRUCTIONS_PER_RECIPE = 5;
+
+    private MySQLiteHelper dbHelperTest;
+    private LocalDateTime dateIn;
+
+    @Before
+    public void initialize()
+    {
+        dbHelperTest = new MySQLiteHelper(getContext());
+        dateIn = LocalDateTime.now();
+        Categories.getCategoriesMap().put(1, "Benchmark");
+    }
+
+    @After
+    public void cleanUp()
+    {
+        Categories.getCategoriesMap().clear();
+        dbHelperTest.close();
+    }
+
+    @Test
+    public void benchmarkImportRecipes()
+    {
+        List<Recipe> recipes = createRecipes();
+
+        long legacyMillis = importMillis(recipes, db -> recipes.forEach(recipe -> insertRecipeWithContentValues(db, recipe)));
+        long writerMillis = importMillis(recipes, db ->
+        {
+            try(RecipeDatabaseWriter writer = new RecipeDatabaseWriter(db, System.currentTimeMillis()))
+            {
+                recipes.forEach(writer::upsertRecipe);
+            }
+        });
+
+        System.out.println(String.format("%10s %12s %25s %25s", "recipes", "ingredients", "ContentValues (ms)", "compiled statements (ms)"));
+        System.out.println(String.format("%10d %12d %25d %25d", RECIPES, RECIPES * INGREDIENTS_PER_RECIPE, legacyMillis, writerMillis));
+    }
+
+    private long importMillis(List<Recipe> recipes, Consumer<SQLiteDatabase> importRecipes)
+    {
+        SQLiteDatabase db = dbHelperTest.getWritableDatabase();
+        db.delete(TABLE_RECIPE, null, null);
+        db.delete(TABLE_INGREDIENTS, null, null);
+        db.delete(TABLE_INSTRUCTIONS, null, null);
+        db.delete(TABLE_RECIPE_SEARCH, null, null);
+
+        long start = System.nanoTime();
+
+        db.beginTransaction();
+        try
+        {
+            importRecipes.accept(db);
+            db.setTransactionSuccessful();
+        }
+        finally
+        {
+            db.endTransaction();
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        try(Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_INGREDIENTS, null))
+        {
+            cursor.moveToFirst();
+            assertEquals(recipes.size() * INGREDIENTS_PER_RECIPE, cursor.getInt(0));
+        }
+
+        return millis;
+    }
+
+    private List<Recipe> createRecipes()
+    {
+        List<Recipe> recipes = new ArrayList<>(RECIPES);
+        for(int id = 1; id <= RECIPES; id++)
+        {
+            String title = "Recipe " + id;
+
+            Ingredients ingredients = new Ingredients(title, INGREDIENTS_PER_RECIPE);
+            for(int count = 0; count < INGREDIENTS_PER_RECIPE; count++)
+            {
+                ingredients.addIngredient(new Ingredient(1.5, "cup", "ingredient " + count, "comment"));
+            }
+
+            Instructions instructions = new Instructions(title, INSTRUCTIONS_PER_RECIPE);
+            for(int count = 0; count < INSTRUCTIONS_PER_RECIPE; count++)
+            {
+                instructions.addInstruction("instruction " + count);
+            }
+
+            recipes.add(new Recipe().setServerId(id).setTitle(title).setCategory("Benchmark").setServings(4).setPreparationTime(30)
+                    .setDescription("description").setIngredients(ingredients).setInstructions(instructions));
+        }
+
+        return recipes;
+    }
+
+    /**
+     * The writer before compiled statements, allocates ContentValues and formats the date_in for every row.
+     */
+    private void insertRecipeWithContentValues(SQLiteDatabase db, Recipe recipe)
+    {
+        ContentValues recipeValues = new ContentValues();
+        recipeValues.put(ColumnRecipe.server_id.name(), recipe.getServerId());
+        recipeValues.put(ColumnRecipe.title.name(), recipe.getTitle());
+        recipeValues.put(ColumnRecipe.category_id.name(), Categories.getId(recipe.getCategory()));
+        recipeValues.put(ColumnRecipe.preparation_time.name(), recipe.getPreparationTime());
+        recipeValues.put(ColumnRecipe.servings.name(), recipe.getServings());
+        recipeValues.put(ColumnRecipe.description.name(), recipe.getDescription());
+        recipeValues.put(ColumnRecipe.date_in.name(), dateIn.format(ofPattern(DATE_FORMAT_DATABASE)));
+        long recipeId = db.insert(TABLE_RECIPE, null, recipeValues);
+
+        int count = 1;
+        for(Ingredient ingredient : recipe.getIngredients().getIngredientsList())
+        {
+            ContentValues ingredientsValues = new ContentValues();
+            ingredientsValues.put(ColumnIngredients.recipe_id.name(), recipeId);
+            ingredientsValues.put(ColumnIngredients.quantity.name(), ingredient.getQuantity());
+            ingredientsValues.put(ColumnIngredients.measurement.name(), ingredient.getMeasurement());
+            ingredientsValues.put(ColumnIngredients.ingredient.name(), ingredient.getIngredient());
+            ingredientsValues.put(ColumnIngredients.comment_.name(), ingredient.getComment());
+            ingredientsValues.put(ColumnIngredients.count.name(), count++);
+            db.insert(TABLE_INGREDIENTS, null, ingredientsValues);
+        }
+
+        count = 1;
+        for(String instruction : recipe.getInstructions().getInstructionsList())
+        {
+            ContentValues instructionsValues = new ContentValues();
+            instructionsValues.put(ColumnInstructions.recipe_id.name(), recipeId);
+            instructionsValues.put(ColumnInstructions.instruction.name(), instruction);
+            instructionsValues.put(ColumnInstructions.count.name(), count++);
+            db.insert(TABLE_INSTRUCTIONS, null, instructionsValues);
+        }
+    }
+}
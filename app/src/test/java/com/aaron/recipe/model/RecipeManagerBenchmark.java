@@ -0,0 +1,158 @@
+package com.aaron.recipe.model;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.aaron.recipe.RobolectricTest;
+import com.aaron.recipe.bean.Categories;
+import com.aaron.recipe.bean.Ingredient;
+import com.aaron.recipe.bean.Ingredients;
+import com.aaron.recipe.bean.Instructions;
+import com.aaron.recipe.bean.Recipe;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static com.aaron.recipe.bean.Categories.DEFAULT;
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnIngredients;
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnInstructions;
+import static com.aaron.recipe.model.MySQLiteHelper.ColumnRecipe;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_INGREDIENTS;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_INSTRUCTIONS;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_RECIPE;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the load time of the batched recipe loader against the previous one-query-per-recipe loader.
+ * Run with: gradlew test -Pbenchmark
+ */
+public class RecipeManagerBenchmark extends RobolectricTest
+{
+    private static final int[] RECIPE_COUNTS = { 250, 500, 1000, 2000 };
+    private static final int LINES_PER_RECIPE = 5;
+    private static final int RUNS = 3;
+
+    private MySQLiteHelper dbHelperTest;
+    private RecipeManager manager;
+
+    @Before
+    public void initialize()
+    {
+        dbHelperTest = new MySQLiteHelper(getContext());
+        manager = new RecipeManager(getContext());
+        Categories.getCategoriesMap().put(1, "Benchmark");
+    }
+
+    @After
+    public void cleanUp()
+    {
+        Categories.getCategoriesMap().clear();
+        dbHelperTest.close();
+    }
+
+    @Test
+    public void benchmarkGetRecipesFromDisk()
+    {
+        System.out.println(String.format("%10s %15s %15s", "recipes", "n+1 (ms)", "batched (ms)"));
+
+        int inserted = 0;
+        for(int count : RECIPE_COUNTS)
+        {
+            insertRecipes(inserted, count - inserted);
+            inserted = count;
+
+            long legacyMillis = averageMillis(() -> assertEquals(count, getRecipesFromDiskOneQueryPerRecipe().size()));
+            long batchedMillis = averageMillis(() -> assertEquals(count, manager.getRecipesFromDisk(DEFAULT).size()));
+
+            System.out.println(String.format("%10d %15d %15d", count, legacyMillis, batchedMillis));
+        }
+    }
+
+    private long averageMillis(Runnable load)
+    {
+        // Warm up
+        load.run();
+
+        long start = System.nanoTime();
+        for(int i = 0; i < RUNS; i++)
+        {
+            load.run();
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) / RUNS;
+    }
+
+    private void insertRecipes(int offset, int size)
+    {
+        try(SQLiteDatabase db = dbHelperTest.getWritableDatabase())
+        {
+            db.beginTransaction();
+            for(int id = offset + 1; id <= offset + size; id++)
+            {
+                db.execSQL("INSERT INTO " + TABLE_RECIPE + "(id, title, category_id, preparation_time, description, servings, date_in) " +
+                        "VALUES(?, ?, 1, 30, 'description', 4, 0)", new Object[] { id, "Recipe " + id });
+
+                for(int count = 0; count < LINES_PER_RECIPE; count++)
+                {
+                    db.execSQL("INSERT INTO " + TABLE_INGREDIENTS + "(recipe_id, quantity, measurement, ingredient, comment_, count) " +
+                            "VALUES(?, 1.5, 'cup', 'ingredient', 'comment', ?)", new Object[] { id, count });
+                    db.execSQL("INSERT INTO " + TABLE_INSTRUCTIONS + "(recipe_id, instruction, count) VALUES(?, 'instruction', ?)",
+                            new Object[] { id, count });
+                }
+            }
+            db.setTransactionSuccessful();
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * The loader before batching, issues one ingredients query and one instructions query for every recipe.
+     */
+    private ArrayList<Recipe> getRecipesFromDiskOneQueryPerRecipe()
+    {
+        ArrayList<Recipe> list = new ArrayList<>();
+        try(SQLiteDatabase db = dbHelperTest.getReadableDatabase())
+        {
+            String[] columns = new String[] { ColumnRecipe.id.name(), ColumnRecipe.title.name() };
+            try(Cursor cursor = db.query(TABLE_RECIPE, columns, null, null, null, null, ColumnRecipe.title.name() + " ASC"))
+            {
+                while(cursor.moveToNext())
+                {
+                    int id = cursor.getInt(0);
+                    String title = cursor.getString(1);
+                    String[] whereArgs = new String[] { String.valueOf(id) };
+
+                    Ingredients ingredients = new Ingredients(title, LINES_PER_RECIPE);
+                    try(Cursor ingredientCursor = db.query(TABLE_INGREDIENTS, new String[] { ColumnIngredients.quantity.name(),
+                                    ColumnIngredients.measurement.name(), ColumnIngredients.ingredient.name(), ColumnIngredients.comment_.name() },
+                            ColumnIngredients.recipe_id.name() + " = ?", whereArgs, null, null, ColumnIngredients.count.name() + " ASC"))
+                    {
+                        while(ingredientCursor.moveToNext())
+                        {
+                            ingredients.addIngredient(new Ingredient(ingredientCursor.getDouble(0), ingredientCursor.getString(1),
+                                    ingredientCursor.getString(2), ingredientCursor.getString(3)));
+                        }
+                    }
+
+                    Instructions instructions = new Instructions(title, LINES_PER_RECIPE);
+                    try(Cursor instructionCursor = db.query(TABLE_INSTRUCTIONS, new String[] { ColumnInstructions.instruction.name() },
+                            ColumnInstructions.recipe_id.name() + " = ?", whereArgs, null, null, ColumnInstructions.count.name() + " ASC"))
+                    {
+                        while(instructionCursor.moveToNext())
+                        {
+                            instructions.addInstruction(instructionCursor.getString(0));
+                        }
+                    }
+
+                    list.add(new Recipe().setId(id).setTitle(title).setIngredients(ingredients).setInstructions(instructions));
+                }
+            }
+        }
+
+        return list;
+    }
+}
@@ -1,6 +1,5 @@
 package com.aaron.recipe.model;
 
-import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
@@ -10,10 +9,14 @@ import com.aaron.recipe.bean.Ingredient;
 import com.aaron.recipe.bean.Ingredients;
 import com.aaron.recipe.bean.Instructions;
 import com.aaron.recipe.bean.Recipe;
+import com.aaron.recipe.bean.Unit;
 import com.aaron.recipe.response.ResponseIngredient;
 import com.aaron.recipe.response.ResponseInstruction;
 import com.aaron.recipe.response.ResponseRecipe;
 import com.aaron.recipe.response.ResponseRecipes;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.junit.After;
@@ -21,14 +24,21 @@ import org.junit.Before;
 import org.junit.Test;
 import org.robolectric.shadows.ShadowToast;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import io.reactivex.Single;
 import io.reactivex.android.plugins.RxAndroidPlugins;
@@ -37,9 +47,18 @@ import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Action;
 import io.reactivex.plugins.RxJavaPlugins;
 import io.reactivex.schedulers.Schedulers;
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 
 import static com.aaron.recipe.bean.Categories.DEFAULT;
 import static com.aaron.recipe.model.MySQLiteHelper.ColumnInstructions;
+import static com.aaron.recipe.model.MySQLiteHelper.TABLE_CATEGORIES;
 import static com.aaron.recipe.model.MySQLiteHelper.TABLE_INGREDIENTS;
 import static com.aaron.recipe.model.MySQLiteHelper.TABLE_INSTRUCTIONS;
 import static com.aaron.recipe.model.MySQLiteHelper.TABLE_RECIPE;
@@ -59,11 +78,16 @@ import static org.apache.commons.lang3.RandomUtils.nextInt;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -82,14 +106,19 @@ public class RecipeManagerTest extends RobolectricTest
     private MySQLiteHelper dbHelperTest;
     private CompositeDisposable compositeDisposable;
     private int disposables;
+    private MockWebServer server;
 
     @Before
-    public void initialize() throws IllegalAccessException
+    public void initialize() throws IllegalAccessException, IOException
     {
         // override Schedulers.io()
         RxJavaPlugins.setIoSchedulerHandler(schedulerCallable -> Schedulers.trampoline());
         // override AndroidSchedulers.mainThread()
         RxAndroidPlugins.setInitMainThreadSchedulerHandler(schedulerCallable -> Schedulers.trampoline());
+        // override the database writer and reader threads
+        DatabaseExecutor.setSchedulers(Schedulers.trampoline(), Schedulers.trampoline());
+        // start with a new shared http client, on the cache directory of this test
+        HttpClient.reset();
 
         dbHelperTest = new MySQLiteHelper(getContext());
         manager = new RecipeManager(getContext());
@@ -103,83 +132,369 @@ public class RecipeManagerTest extends RobolectricTest
     }
 
     @After
-    public void cleanUp()
+    public void cleanUp() throws IOException
     {
+        DatabaseExecutor.resetSchedulers();
+
+        if(server != null)
+        {
+            server.shutdown();
+        }
+
         Categories.getCategoriesMap().clear();
+        RecipeCache.clear();
+        RecipeCountCache.clear();
         compositeDisposable.clear();
         dbHelperTest.close();
     }
 
     @Test
-    public void givenActionAndConsumerAndResponses_whenUpdateRecipesFromWeb_thenShouldSaveRecipesCallActionAndConsumerAndDisposeObserver() throws Exception
+    public void givenActionAndRunnableAndResponses_whenUpdateRecipesFromWeb_thenShouldSaveRecipesCallActionAndRunnableAndDisposeObserver() throws Exception
     {
         Action action = mock(Action.class);
-        Consumer<ArrayList<Recipe>> consumer = mock(Consumer.class);
+        Runnable runnable = mock(Runnable.class);
         ResponseRecipes response = givenResponseRecipes(10);
-        when(httpClient.getRecipes(anyString())).thenReturn(Single.just(response));
+        givenRecipesPage(response);
 
-        manager.updateRecipesFromWeb(action, consumer);
+        manager.updateRecipesFromWeb(action, runnable);
 
         String message = response.getRecipeList().size() + " new recipes added.";
-        thenShouldSaveRecipesCallActionAndConsumerAndDisposeObserver(action, consumer, response, message);
+        thenShouldSaveRecipesCallActionAndRunnableAndDisposeObserver(action, runnable, response, message);
     }
 
     @Test
-    public void givenActionAndConsumerAndResponse_whenUpdateRecipesFromWeb_thenShouldSaveRecipesCallActionAndConsumerAndDisposeObserver() throws Exception
+    public void givenActionAndRunnableAndResponse_whenUpdateRecipesFromWeb_thenShouldSaveRecipesCallActionAndRunnableAndDisposeObserver() throws Exception
     {
         Action action = mock(Action.class);
-        Consumer<ArrayList<Recipe>> consumer = mock(Consumer.class);
+        Runnable runnable = mock(Runnable.class);
         ResponseRecipes response = givenResponseRecipes(1);
-        when(httpClient.getRecipes(anyString())).thenReturn(Single.just(response));
+        givenRecipesPage(response);
 
-        manager.updateRecipesFromWeb(action, consumer);
+        manager.updateRecipesFromWeb(action, runnable);
 
         String message = response.getRecipeList().size() + " new recipe added.";
-        thenShouldSaveRecipesCallActionAndConsumerAndDisposeObserver(action, consumer, response, message);
+        thenShouldSaveRecipesCallActionAndRunnableAndDisposeObserver(action, runnable, response, message);
     }
 
     @Test
-    public void givenActionAndConsumerAndEmptyResponse_whenUpdateRecipesFromWeb_thenShouldCallActionAndConsumerAndDisposeObserver() throws Exception
+    public void givenActionAndRunnableAndEmptyResponse_whenUpdateRecipesFromWeb_thenShouldCallActionAndRunnableAndDisposeObserver() throws Exception
     {
         Action action = mock(Action.class);
-        Consumer<ArrayList<Recipe>> consumer = mock(Consumer.class);
-        when(httpClient.getRecipes(anyString())).thenReturn(Single.just(givenResponseRecipes(0)));
+        Runnable runnable = mock(Runnable.class);
+        givenRecipesPage(givenResponseRecipes(0));
 
-        manager.updateRecipesFromWeb(action, consumer);
+        manager.updateRecipesFromWeb(action, runnable);
 
         String message = "No new recipes available.";
-        thenShouldCallActionAndConsumerAndAddCompositeToDisposable(action, consumer, message);
+        thenShouldCallActionAndRunnableAndAddCompositeToDisposable(action, runnable, message);
     }
 
     @Test
-    public void givenActionAndConsumerAndDbException_whenUpdateRecipesFromWeb_thenShouldCallActionAndConsumerAndDisposeObserver() throws Exception
+    public void givenActionAndRunnableAndDbException_whenUpdateRecipesFromWeb_thenShouldCallActionAndRunnableAndDisposeObserver() throws Exception
     {
         Action action = mock(Action.class);
-        Consumer<ArrayList<Recipe>> consumer = mock(Consumer.class);
-        when(httpClient.getRecipes(anyString())).thenReturn(Single.just(givenResponseRecipes(1)));
+        Runnable runnable = mock(Runnable.class);
+        givenRecipesPage(givenResponseRecipes(1));
 
         RecipeManager spyManager = mockDatabaseInsertException();
-        spyManager.updateRecipesFromWeb(action, consumer);
+        spyManager.updateRecipesFromWeb(action, runnable);
 
         String message = "Failed saving to disk.";
-        thenShouldHandleExceptnAndCallActionAndDisposeObserver(action, consumer, message);
+        thenShouldHandleExceptnAndCallActionAndDisposeObserver(action, runnable, message);
     }
 
     @Test
-    public void givenActionAndConsumerAndExceptn_whenUpdateRecipesFromWeb_thenShouldHandleExceptnAndCallActionAndDisposeObserver() throws Exception
+    public void givenActionAndRunnableAndExceptn_whenUpdateRecipesFromWeb_thenShouldHandleExceptnAndCallActionAndDisposeObserver() throws Exception
     {
         Action action = mock(Action.class);
-        Consumer<ArrayList<Recipe>> consumer = mock(Consumer.class);
+        Runnable runnable = mock(Runnable.class);
         String exceptionMessage = randomAlphabetic(10);
-        when(httpClient.getRecipes(anyString())).thenReturn(Single.error(() -> new Exception(exceptionMessage)));
+        when(httpClient.getRecipesPage(anyString(), any(), anyInt())).thenReturn(Single.error(() -> new Exception(exceptionMessage)));
+
+        manager.updateRecipesFromWeb(action, runnable);
+
+        thenShouldHandleExceptnAndCallActionAndDisposeObserver(action, runnable, exceptionMessage);
+    }
+
+    @Test
+    public void givenResponseBodyTruncatedAfterFirstBatch_whenImportRecipes_thenShouldKeepFirstBatchWithPendingDateInWithoutEndingThePage() throws Exception
+    {
+        String json = new ObjectMapper().writeValueAsString(givenResponseRecipes(3));
+        // Cut the closing of the recipes array and response object
+        byte[] truncatedJson = json.substring(0, json.lastIndexOf(']')).getBytes(StandardCharsets.UTF_8);
+        AtomicInteger endOfPageWrites = new AtomicInteger();
+
+        try(SQLiteDatabase db = dbHelperTest.getWritableDatabase())
+        {
+            RecipeStreamImporter importer = new RecipeStreamImporter(db, 2);
+            importer.importRecipes(new ByteArrayInputStream(truncatedJson), (nextCursor, recipeCount) -> endOfPageWrites.incrementAndGet());
+            fail("Expected the truncated response to fail.");
+        }
+        catch(IOException e)
+        {
+            // expected
+        }
+
+        assertEquals(2, getRecipesFromDisk().size());
+        assertEquals(0, endOfPageWrites.get());
+        assertEquals(RecipeDatabaseWriter.PENDING_DATE_IN, manager.getLastUpdatedMillis());
+    }
+
+    @Test
+    public void givenPageOfSeveralBatches_whenImportRecipes_thenShouldSaveAllRecipesAndEndThePageWithItsNextCursor() throws Exception
+    {
+        ResponseRecipes response = givenResponseRecipes(5);
+        byte[] json = toRecipesPage(response, 0, 5, "cursor-1").getBytes(StandardCharsets.UTF_8);
+        List<Object> endOfPage = new ArrayList<>();
+
+        RecipeStreamImporter importer;
+        int savedCount;
+        try(SQLiteDatabase db = dbHelperTest.getWritableDatabase())
+        {
+            importer = new RecipeStreamImporter(db, 2);
+            savedCount = importer.importRecipes(new ByteArrayInputStream(json), (nextCursor, recipeCount) ->
+            {
+                endOfPage.add(nextCursor);
+                endOfPage.add(recipeCount);
+            });
+        }
+
+        assertEquals(5, savedCount);
+        assertEquals("cursor-1", importer.getNextCursor());
+        assertEquals(Arrays.asList("cursor-1", 5), endOfPage);
+        assertRecipesSavedInDisk(response);
+        assertEquals(RecipeDatabaseWriter.PENDING_DATE_IN, manager.getLastUpdatedMillis());
+    }
+
+    @Test
+    public void givenPageOfSeveralBatches_whenImportRecipes_thenShouldHandOnlyTheFinishedBatchesToTheWriter() throws Exception
+    {
+        AtomicInteger writes = new AtomicInteger();
+        DatabaseExecutor.setSchedulers(Schedulers.from(write ->
+        {
+            writes.incrementAndGet();
+            write.run();
+        }), Schedulers.trampoline());
+        byte[] json = new ObjectMapper().writeValueAsBytes(givenResponseRecipes(5));
+
+        try(SQLiteDatabase db = dbHelperTest.getWritableDatabase())
+        {
+            new RecipeStreamImporter(db, 2).importRecipes(new ByteArrayInputStream(json), (nextCursor, recipeCount) ->
+            {
+            });
+        }
+
+        // Batches of 2 and 2 recipes, then the last recipe with the end of the page
+        assertEquals(3, writes.get());
+    }
+
+    @Test
+    public void givenStubServer_whenUpdateRecipesFromWeb_thenShouldNotStoreTheRecipesPageInTheHttpCache() throws Exception
+    {
+        ResponseRecipes response = givenResponseRecipes(2);
+        givenStubServer(toRecipesPage(response, 0, 2, null));
+        Cache httpCache = ((OkHttpClient) FieldUtils.readStaticField(HttpClient.class, "okHttpClient", true)).cache();
+        int cacheWrites = httpCache.writeSuccessCount();
+
+        manager.updateRecipesFromWeb(mock(Action.class), mock(Runnable.class));
+
+        assertRecipesSavedInDisk(response);
+        assertEquals(cacheWrites, httpCache.writeSuccessCount());
+    }
+
+    @Test
+    public void givenStubServerWithTwoPages_whenUpdateRecipesFromWeb_thenShouldSaveAllPagesAndRequestNextPageWithCursor() throws Exception
+    {
+        Action action = mock(Action.class);
+        Runnable runnable = mock(Runnable.class);
+        ResponseRecipes response = givenResponseRecipes(5);
+        givenStubServer(toRecipesPage(response, 0, 3, "cursor-1"), toRecipesPage(response, 3, 5, null));
+
+        manager.updateRecipesFromWeb(action, runnable);
+
+        verify(runnable, times(1)).run();
+        verify(action, times(1)).run();
+        assertRecipesSavedInDisk(response);
+        assertEquals("5 new recipes added.", ShadowToast.getTextOfLatestToast());
+
+        RecordedRequest firstPageRequest = server.takeRequest();
+        assertEquals(DEFAULT_LAST_UPDATED, queryParameter(firstPageRequest, "last_updated"));
+        assertNull(queryParameter(firstPageRequest, "cursor"));
+        assertEquals(String.valueOf(AdaptivePageSize.DEFAULT_SIZE), queryParameter(firstPageRequest, "page_size"));
+        RecordedRequest secondPageRequest = server.takeRequest();
+        assertEquals(DEFAULT_LAST_UPDATED, queryParameter(secondPageRequest, "last_updated"));
+        assertEquals("cursor-1", queryParameter(secondPageRequest, "cursor"));
+
+        assertNull(getSyncStateCursor());
+        assertNotEquals(RecipeDatabaseWriter.PENDING_DATE_IN, manager.getLastUpdatedMillis());
+    }
+
+    @Test
+    public void givenSyncInterruptedAfterFirstPage_whenUpdateRecipesFromWebAgain_thenShouldResumeFromSavedCursor() throws Exception
+    {
+        ResponseRecipes response = givenResponseRecipes(5);
+        givenStubServer(toRecipesPage(response, 0, 3, "cursor-1"));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        Runnable interruptedRunnable = mock(Runnable.class);
+
+        manager.updateRecipesFromWeb(mock(Action.class), interruptedRunnable);
+
+        verify(interruptedRunnable, never()).run();
+        assertEquals(3, getRecipesFromDisk().size());
+        assertEquals("cursor-1", getSyncStateCursor());
+        // The saved page is pending, the last updated date of the next sync is not moved
+        assertEquals(RecipeDatabaseWriter.PENDING_DATE_IN, manager.getLastUpdatedMillis());
+
+        server.enqueue(new MockResponse().setBody(toRecipesPage(response, 3, 5, null)));
+        Runnable runnable = mock(Runnable.class);
+
+        manager.updateRecipesFromWeb(mock(Action.class), runnable);
 
-        manager.updateRecipesFromWeb(action, consumer);
+        verify(runnable, times(1)).run();
+        assertRecipesSavedInDisk(response);
+        assertEquals("2 new recipes added.", ShadowToast.getTextOfLatestToast());
+
+        server.takeRequest();
+        server.takeRequest();
+        RecordedRequest resumedPageRequest = server.takeRequest();
+        assertEquals(DEFAULT_LAST_UPDATED, queryParameter(resumedPageRequest, "last_updated"));
+        assertEquals("cursor-1", queryParameter(resumedPageRequest, "cursor"));
+
+        assertNull(getSyncStateCursor());
+        assertNotEquals(RecipeDatabaseWriter.PENDING_DATE_IN, manager.getLastUpdatedMillis());
+    }
+
+    @Test
+    public void givenSyncInterruptedAfterFirstPage_whenDeleteRecipeFromDisk_thenShouldDeleteSyncState() throws Exception
+    {
+        ResponseRecipes response = givenResponseRecipes(5);
+        givenStubServer(toRecipesPage(response, 0, 3, "cursor-1"));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        manager.updateRecipesFromWeb(mock(Action.class), mock(Runnable.class));
+
+        manager.deleteRecipeFromDisk();
 
-        thenShouldHandleExceptnAndCallActionAndDisposeObserver(action, consumer, exceptionMessage);
+        assertNull(getSyncStateCursor());
     }
 
     @Test
-    public void givenRecipesInDiskAndFormat_whenGetLastUpdated_thenShouldFormattedLastUpdated()
+    public void givenRecipesInDiskAndChangedRecipes_whenUpdateRecipesFromWeb_thenShouldUpsertChangedRecipesAndKeepOtherRecipes() throws Exception
+    {
+        Action action = mock(Action.class);
+        Runnable runnable = mock(Runnable.class);
+        List<Recipe> recipes = givenRecipesInDisk();
+        Recipe changedRecipe = recipes.get(0);
+        changedRecipe.setDescription(randomAlphabetic(30))
+                .setIngredients(createNewIngredients(changedRecipe.getTitle()))
+                .setInstructions(createNewInstructions(changedRecipe.getTitle()));
+        ResponseRecipes response = givenResponseRecipes(toResponseRecipe(1, changedRecipe), newResponseRecipe(RECIPES_SIZE));
+        givenRecipesPage(response);
+
+        manager.updateRecipesFromWeb(action, runnable);
+
+        String message = response.getRecipeList().size() + " new recipes added.";
+        thenShouldSaveRecipesCallActionAndRunnableAndDisposeObserver(action, runnable, response, message);
+
+        List<Recipe> recipesFromDisk = getRecipesFromDisk();
+        assertEquals(RECIPES_SIZE + 1, recipesFromDisk.size());
+        assertEquals(changedRecipe.getId(), getRecipeFromDiskFromList(changedRecipe.getTitle(), recipesFromDisk).getId());
+    }
+
+    @Test
+    public void givenRecipesInDiskAndDeletedRecipeIds_whenUpdateRecipesFromWeb_thenShouldDeleteOnlyTheDeletedRecipes() throws Exception
+    {
+        Action action = mock(Action.class);
+        Runnable runnable = mock(Runnable.class);
+        List<Recipe> recipes = givenRecipesInDiskWithServerIds();
+        Recipe deletedRecipe = recipes.get(0);
+        ResponseRecipes response = givenResponseRecipes(0);
+        response.setDeletedRecipeIds(Collections.singletonList(deletedRecipe.getId()));
+        givenRecipesPage(response);
+
+        manager.updateRecipesFromWeb(action, runnable);
+
+        verify(runnable, times(1)).run();
+        verify(action, times(1)).run();
+
+        List<Recipe> recipesFromDisk = getRecipesFromDisk();
+        assertEquals(RECIPES_SIZE - 1, recipesFromDisk.size());
+        assertTrue(recipesFromDisk.stream().noneMatch(r -> r.getId() == deletedRecipe.getId()));
+        assertTrue(getIngredientsFromDisk(deletedRecipe.getId()).getIngredientsList().isEmpty());
+        assertTrue(getInstructionsFromDisk(deletedRecipe.getId()).getInstructionsList().isEmpty());
+    }
+
+    @Test
+    public void givenRecipesInDiskAndMoreDeletedRecipeIdsThanSqlVariables_whenUpdateRecipesFromWeb_thenShouldDeleteTheDeletedRecipes() throws Exception
+    {
+        Action action = mock(Action.class);
+        Runnable runnable = mock(Runnable.class);
+        List<Recipe> recipes = givenRecipesInDiskWithServerIds();
+        Recipe keptRecipe = recipes.get(RECIPES_SIZE - 1);
+        // Ids not on disk first, so the recipes on disk are deleted by the last chunk
+        List<Integer> deletedRecipeIds = IntStream.range(0, RecipeDatabaseWriter.MAX_SQL_VARIABLES + 100).map(i -> i + 1000).boxed()
+                .collect(Collectors.toList());
+        recipes.stream().filter(recipe -> recipe != keptRecipe).map(Recipe::getId).forEach(deletedRecipeIds::add);
+        ResponseRecipes response = givenResponseRecipes(0);
+        response.setDeletedRecipeIds(deletedRecipeIds);
+        givenRecipesPage(response);
+
+        manager.updateRecipesFromWeb(action, runnable);
+
+        verify(runnable, times(1)).run();
+        List<Recipe> recipesFromDisk = getRecipesFromDisk();
+        assertEquals(1, recipesFromDisk.size());
+        assertEquals(keptRecipe.getId(), recipesFromDisk.get(0).getId());
+    }
+
+    @Test
+    public void givenSyncedRecipesWithSearchedWord_whenSearchRecipeIds_thenShouldReturnMatchedRecipesWithTitleMatchFirst() throws Exception
+    {
+        ResponseRecipe titleMatch = newResponseRecipe(0);
+        titleMatch.setTitle("Roasted garlic chicken");
+        ResponseRecipe instructionMatch = newResponseRecipe(1);
+        instructionMatch.getInstructionList().get(0).setInstruction("Add the minced garlic.");
+        ResponseRecipe ingredientMatch = newResponseRecipe(2);
+        ingredientMatch.getIngredientList().get(0).setIngredient("Garlic");
+        ResponseRecipe noMatch = newResponseRecipe(3);
+        givenRecipesPage(givenResponseRecipes(instructionMatch, noMatch, ingredientMatch, titleMatch));
+
+        manager.updateRecipesFromWeb(mock(Action.class), mock(Runnable.class));
+
+        List<Recipe> recipesFromDisk = getRecipesFromDisk();
+        List<Integer> expectedIds = Stream.of(titleMatch, ingredientMatch, instructionMatch)
+                .map(r -> getRecipeFromDiskFromList(r.getTitle(), recipesFromDisk).getId())
+                .collect(Collectors.toList());
+        assertEquals(expectedIds, manager.searchRecipeIds("garl"));
+        assertEquals(expectedIds, manager.searchRecipeIds("  GARLIC! "));
+        assertTrue(manager.searchRecipeIds("garlic roasted").contains(expectedIds.get(0)));
+        assertTrue(manager.searchRecipeIds("garlics").isEmpty());
+        assertTrue(manager.searchRecipeIds(" ,. ").isEmpty());
+    }
+
+    @Test
+    public void givenSyncedRecipesAndDeletedRecipeIds_whenSearchRecipeIds_thenShouldNotReturnDeletedRecipes() throws Exception
+    {
+        ResponseRecipe deletedRecipe = newResponseRecipe(0);
+        deletedRecipe.setTitle("Garlic bread");
+        ResponseRecipe keptRecipe = newResponseRecipe(1);
+        keptRecipe.setTitle("Garlic rice");
+        givenRecipesPage(givenResponseRecipes(deletedRecipe, keptRecipe));
+        manager.updateRecipesFromWeb(mock(Action.class), mock(Runnable.class));
+
+        ResponseRecipes response = givenResponseRecipes(0);
+        response.setDeletedRecipeIds(Collections.singletonList(deletedRecipe.getId()));
+        givenRecipesPage(response);
+        manager.updateRecipesFromWeb(mock(Action.class), mock(Runnable.class));
+
+        int keptRecipeId = getRecipeFromDiskFromList(keptRecipe.getTitle(), getRecipesFromDisk()).getId();
+        assertEquals(Collections.singletonList(keptRecipeId), manager.searchRecipeIds("garlic"));
+
+        manager.deleteRecipeFromDisk();
+
+        assertTrue(manager.searchRecipeIds("garlic").isEmpty());
+    }
+
+
     {
         givenRecipesInDisk();
         String format = DATE_FORMAT_SHORT_24;
@@ -189,6 +504,22 @@ public class RecipeManagerTest extends RobolectricTest
         assertEquals(ofPattern(format).format(NOW), lastUpdated);
     }
 
+    @Test
+    public void givenRecipesSavedInDifferentMonths_whenGetLastUpdated_thenShouldReturnTheLatestByTimeNotByMonthName()
+    {
+        List<Recipe> recipes = givenRecipesInDisk();
+        LocalDateTime december = LocalDateTime.of(2017, 12, 1, 9, 30, 0);
+        try(SQLiteDatabase db = dbHelperTest.getWritableDatabase())
+        {
+            db.execSQL("UPDATE " + TABLE_RECIPE + " SET date_in = ?", new Object[] { toEpochMillis(december.minusMonths(7)) });
+            db.execSQL("UPDATE " + TABLE_RECIPE + " SET date_in = ? WHERE id = ?", new Object[] { toEpochMillis(december), recipes.get(3).getId() });
+        }
+
+        String lastUpdated = manager.getLastUpdated(DATE_FORMAT_DATABASE);
+
+        assertEquals(december.format(ofPattern(DATE_FORMAT_DATABASE)), lastUpdated);
+    }
+
     @Test
     public void givenNoRecipesInDisk_whenGetLastUpdated_thenShouldReturnDefaultLastUpdated()
     {
@@ -211,6 +542,53 @@ public class RecipeManagerTest extends RobolectricTest
         assertEquals(recipesCount.toString(), recipesCountFromDisk.toString());
     }
 
+    @Test
+    public void givenRecipesCountAlreadyRetrieved_whenGetRecipesCount_thenShouldReturnCachedCountsWithoutQueryingTheDisk()
+    {
+        givenRecipesInDisk();
+        Map<String, Integer> recipesCount = manager.getRecipesCount();
+
+        // Inserted without the manager, not reflected in the cached counts
+        givenRecipesInDisk();
+
+        assertEquals(recipesCount, manager.getRecipesCount());
+    }
+
+    @Test
+    public void givenRecipesCountAlreadyRetrieved_whenUpdateRecipesFromWebWithChangedAndDeletedRecipes_thenShouldUpdateCachedCounts() throws Exception
+    {
+        List<Recipe> recipes = givenRecipesInDiskWithServerIds();
+        Map<String, Integer> recipesCount = manager.getRecipesCount();
+
+        Recipe deletedRecipe = recipes.get(0);
+        Recipe movedRecipe = recipes.get(RECIPES_SIZE - 1);
+        String previousCategory = movedRecipe.getCategory();
+        movedRecipe.setCategory(deletedRecipe.getCategory());
+        ResponseRecipe newRecipe = newResponseRecipe(RECIPES_SIZE);
+        ResponseRecipes response = givenResponseRecipes(toResponseRecipe(movedRecipe.getServerId(), movedRecipe), newRecipe);
+        response.setDeletedRecipeIds(Collections.singletonList(deletedRecipe.getServerId()));
+        givenRecipesPage(response);
+
+        manager.updateRecipesFromWeb(mock(Action.class), mock(Runnable.class));
+
+        recipesCount.merge(deletedRecipe.getCategory(), 0, Integer::sum);
+        recipesCount.merge(previousCategory, -1, Integer::sum);
+        recipesCount.put(newRecipe.getCategory(), 1);
+        assertEquals(recipesCount, manager.getRecipesCount());
+    }
+
+    @Test
+    public void givenRecipesCountAlreadyRetrieved_whenDeleteRecipeFromDisk_thenShouldReturnZeroCounts()
+    {
+        givenRecipesInDisk();
+        Map<String, Integer> recipesCount = manager.getRecipesCount();
+
+        manager.deleteRecipeFromDisk();
+
+        recipesCount.replaceAll((category, count) -> 0);
+        assertEquals(recipesCount, manager.getRecipesCount());
+    }
+
     @Test
     public void givenRecipesInDiskAndAllCategory_whenGetRecipesFromDisk_thenShouldGetAllRecipes()
     {
@@ -235,6 +613,126 @@ public class RecipeManagerTest extends RobolectricTest
         assertThat(recipesOfCategory, containsInAnyOrder(recipesFromDisk.toArray()));
     }
 
+    @Test
+    public void givenRecipesInDiskAndAllCategory_whenGetRecipeSummariesFromDisk_thenShouldGetAllRecipesWithoutDetails()
+    {
+        List<Recipe> recipes = givenRecipesInDisk();
+
+        ArrayList<Recipe> summariesFromDisk = manager.getRecipeSummariesFromDisk(DEFAULT);
+
+        List<Recipe> summaries = recipes.stream().map(this::toSummary).collect(Collectors.toList());
+        assertEquals(recipes.size(), summariesFromDisk.size());
+        assertThat(summaries, containsInAnyOrder(summariesFromDisk.toArray()));
+        assertTrue(summariesFromDisk.stream().noneMatch(Recipe::hasDetails));
+    }
+
+    @Test
+    public void givenRecipesInDiskAndAllCategory_whenLoadRecipeSummaries_thenShouldEmitAllRecipesWithoutDetails()
+    {
+        List<Recipe> recipes = givenRecipesInDisk();
+
+        List<Recipe> summaries = recipes.stream().map(this::toSummary).collect(Collectors.toList());
+        manager.loadRecipeSummaries(DEFAULT)
+                .test()
+                .assertValue(summariesFromDisk -> summaries.size() == summariesFromDisk.size() && summaries.containsAll(summariesFromDisk));
+    }
+
+    @Test
+    public void givenRecipesInDiskAndCategoriesOnlyInDisk_whenGetRecipeSummariesFromDisk_thenShouldGetCategoryNamesFromDisk()
+    {
+        List<Recipe> recipes = givenRecipesInDisk();
+        givenCategoriesOfCacheInDisk();
+        Categories.getCategoriesMap().clear();
+
+        ArrayList<Recipe> summariesFromDisk = manager.getRecipeSummariesFromDisk(DEFAULT);
+
+        List<Recipe> summaries = recipes.stream().map(this::toSummary).collect(Collectors.toList());
+        assertThat(summaries, containsInAnyOrder(summariesFromDisk.toArray()));
+    }
+
+    @Test
+    public void givenRecipeSummary_whenLoadRecipeDetails_thenShouldEmitRecipeWithIngredientsAndInstructions()
+    {
+        Recipe recipe = givenRecipesInDisk().get(0);
+
+        manager.loadRecipeDetails(toSummary(recipe)).test().assertValue(recipe);
+    }
+
+    @Test
+    public void givenRecipesInDisk_whenDeleteRecipes_thenShouldDeleteAllRecipesInDiskAndComplete()
+    {
+        givenRecipesInDisk();
+
+        manager.deleteRecipes().test().assertComplete();
+
+        assertTrue(getRecipesFromDisk().isEmpty());
+    }
+
+    @Test
+    public void givenRecipeSummary_whenGetRecipeDetails_thenShouldReturnRecipeWithIngredientsAndInstructionsAndCacheIt()
+    {
+        Recipe recipe = givenRecipesInDisk().get(0);
+
+        Recipe recipeWithDetails = manager.getRecipeDetails(toSummary(recipe));
+
+        assertEquals(recipe, recipeWithDetails);
+        assertSame(recipeWithDetails, RecipeCache.getHydratedRecipe(recipe.getId()));
+        assertSame(recipeWithDetails, manager.getRecipeDetails(toSummary(recipe)));
+    }
+
+    @Test
+    public void givenRecipesInDisk_whenGetRecipeSummariesFromDisk_thenShouldCacheTheSummariesById()
+    {
+        givenRecipesInDisk();
+
+        ArrayList<Recipe> summariesFromDisk = manager.getRecipeSummariesFromDisk(DEFAULT);
+
+        summariesFromDisk.forEach(summary -> assertSame(summary, RecipeCache.getRecipe(summary.getId())));
+        assertEquals(summariesFromDisk, RecipeCache.getRecipes(RecipeCache.toIds(summariesFromDisk)));
+    }
+
+    @Test
+    public void givenRecipesInDiskButNotCached_whenGetRecipe_thenShouldLoadRecipeWithIngredientsAndInstructionsFromDisk()
+    {
+        Recipe recipe = givenRecipesInDisk().get(0);
+        RecipeCache.clear();
+
+        assertEquals(recipe, manager.getRecipe(recipe.getId()));
+        assertSame(RecipeCache.getHydratedRecipe(recipe.getId()), manager.getRecipe(recipe.getId()));
+    }
+
+    @Test
+    public void givenRecipeNotInDisk_whenGetRecipe_thenShouldReturnNull()
+    {
+        givenRecipesInDisk();
+
+        assertNull(manager.getRecipe(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void givenRecipesInDiskAndOneCached_whenPrefetchRecipes_thenShouldOnlyLoadAndCacheTheOthers()
+    {
+        List<Recipe> recipes = givenRecipesInDisk();
+        manager.getRecipe(recipes.get(0).getId());
+        int[] ids = RecipeCache.toIds(recipes.subList(0, 3));
+
+        manager.prefetchRecipes(ids).test().assertValue(2);
+
+        for(int i = 0; i < ids.length; i++)
+        {
+            assertEquals(recipes.get(i), RecipeCache.getHydratedRecipe(ids[i]));
+        }
+        manager.prefetchRecipes(ids).test().assertValue(0);
+    }
+
+    @Test
+    public void givenRecipeWithDetails_whenGetRecipeDetails_thenShouldReturnTheSameRecipe()
+    {
+        Recipe recipe = createNewRecipe(0);
+
+        assertSame(recipe, manager.getRecipeDetails(recipe));
+    }
+
     @Test
     public void givenRecipesInDisk_whenDeleteRecipeFromDisk_thenShouldDeleteAllRecipesInDisk()
     {
@@ -255,6 +753,12 @@ public class RecipeManagerTest extends RobolectricTest
         assertEquals(0, compositeDisposable.size());
     }
 
+    private Recipe toSummary(Recipe recipe)
+    {
+        return new Recipe(recipe.getId(), recipe.getTitle(), recipe.getCategory(), recipe.getServings(), recipe.getPreparationTime(),
+                recipe.getDescription(), null, null);
+    }
+
     private ResponseRecipes givenResponseRecipes(int size)
     {
         ResponseRecipes response = new ResponseRecipes();
@@ -267,9 +771,107 @@ public class RecipeManagerTest extends RobolectricTest
         return response;
     }
 
+    private ResponseRecipes givenResponseRecipes(ResponseRecipe... recipes)
+    {
+        ResponseRecipes response = new ResponseRecipes();
+        response.setRecentlyAddedCount(recipes.length);
+        response.setRecipeList(new ArrayList<>(Arrays.asList(recipes)));
+
+        return response;
+    }
+
+    /**
+     * Starts a local stub of the web service serving the given pages in order, and points the http client of the manager to it.
+     */
+    private void givenStubServer(String... pages) throws IOException, IllegalAccessException
+    {
+        server = new MockWebServer();
+        for(String page : pages)
+        {
+            server.enqueue(new MockResponse().setBody(page));
+        }
+        server.start();
+
+        FieldUtils.writeField(manager, "httpClient", new HttpClient(getContext()), true);
+        HttpClient.reinitializeRetrofit(server.getHostName() + ":" + server.getPort());
+    }
+
+    /**
+     * Returns the JSON of a page of the response, with the given recipes of the response and next cursor.
+     */
+    private String toRecipesPage(ResponseRecipes response, int from, int to, String nextCursor) throws JsonProcessingException
+    {
+        ResponseRecipes page = new ResponseRecipes();
+        page.setRecentlyAddedCount(to - from);
+        page.setRecipeList(new ArrayList<>(response.getRecipeList().subList(from, to)));
+
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode json = mapper.valueToTree(page);
+        json.put("next_cursor", nextCursor);
+
+        return mapper.writeValueAsString(json);
+    }
+
+    private String toJson(ResponseRecipes response) throws JsonProcessingException
+    {
+        return new ObjectMapper().writeValueAsString(response);
+    }
+
+    private String queryParameter(RecordedRequest request, String name)
+    {
+        return HttpUrl.parse("http://localhost" + request.getPath()).queryParameter(name);
+    }
+
+    private String getSyncStateCursor()
+    {
+        try(SQLiteDatabase db = dbHelperTest.getReadableDatabase();
+                Cursor cursor = db.rawQuery("SELECT cursor FROM sync_state", null))
+        {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    /**
+     * Serves the response as the single page of the sync.
+     */
+    private void givenRecipesPage(ResponseRecipes response) throws JsonProcessingException
+    {
+        when(httpClient.getRecipesPage(anyString(), any(), anyInt())).thenReturn(Single.just(toResponseBody(response)));
+    }
+
+    private ResponseBody toResponseBody(ResponseRecipes response) throws JsonProcessingException
+    {
+        return ResponseBody.create(MediaType.parse("application/json"), toJson(response));
+    }
+
+    private ResponseRecipe toResponseRecipe(int serverId, Recipe recipe)
+    {
+        ResponseRecipe responseRecipe = new ResponseRecipe();
+        responseRecipe.setId(serverId);
+        responseRecipe.setTitle(recipe.getTitle());
+        responseRecipe.setCategory(recipe.getCategory());
+        responseRecipe.setDescription(recipe.getDescription());
+        responseRecipe.setPreparationTime(recipe.getPreparationTime());
+        responseRecipe.setServings(recipe.getServings());
+        responseRecipe.setIngredientList(recipe.getIngredients().getIngredientsList().stream().map(ingredient ->
+        {
+            ResponseIngredient responseIngredient = new ResponseIngredient();
+            responseIngredient.setQuantity(ingredient.getQuantity());
+            responseIngredient.setMeasurement(ingredient.getMeasurement());
+            responseIngredient.setIngredient(ingredient.getIngredient());
+            responseIngredient.setComment(ingredient.getComment());
+            return responseIngredient;
+        }).collect(Collectors.toList()));
+        responseRecipe.setInstructionList(recipe.getInstructions().getInstructionsList().stream().map(ResponseInstruction::new)
+                .collect(Collectors.toList()));
+
+        return responseRecipe;
+    }
+
     private ResponseRecipe newResponseRecipe(int id)
     {
         ResponseRecipe recipe = new ResponseRecipe();
+        recipe.setId(id + 1);
         recipe.setTitle(randomUUID().toString());
         recipe.setCategory(randomAlphabetic(7));
         recipe.setDescription(randomAlphabetic(7));
@@ -294,7 +896,8 @@ public class RecipeManagerTest extends RobolectricTest
         {
             ResponseIngredient ingredient = new ResponseIngredient();
             ingredient.setQuantity(nextDouble(0.125, 10.75));
-            ingredient.setMeasurement(randomAlphabetic(15));
+            // A known unit and free text measurements
+            ingredient.setMeasurement(i == 0 ? "Cups" : randomAlphabetic(15));
             ingredient.setIngredient(randomAlphabetic(15));
             ingredient.setComment(randomAlphabetic(15));
             ingredients.add(ingredient);
@@ -309,9 +912,10 @@ public class RecipeManagerTest extends RobolectricTest
         when(spyManager.getLastUpdated(anyString())).thenReturn(DEFAULT_LAST_UPDATED);
 
         SQLiteDatabase mockedSQLiteDatabase = mock(SQLiteDatabase.class);
-        when(mockedSQLiteDatabase.insert(anyString(), isNull(), any(ContentValues.class))).thenThrow(new RuntimeException("Failed saving to disk."));
+        when(mockedSQLiteDatabase.compileStatement(anyString())).thenThrow(new RuntimeException("Failed saving to disk."));
 
         MySQLiteHelper mockedSQLiteHelper = mock(MySQLiteHelper.class);
+        when(mockedSQLiteHelper.getReadableDatabase()).thenReturn(dbHelperTest.getReadableDatabase());
         when(mockedSQLiteHelper.getWritableDatabase()).thenReturn(mockedSQLiteDatabase);
 
         FieldUtils.writeField(spyManager, "dbHelper", mockedSQLiteHelper, true);
@@ -320,6 +924,11 @@ public class RecipeManagerTest extends RobolectricTest
         return spyManager;
     }
 
+    private long toEpochMillis(LocalDateTime date)
+    {
+        return date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
     private List<Recipe> givenRecipesInDisk()
     {
         int size = RECIPES_SIZE;
@@ -328,13 +937,13 @@ public class RecipeManagerTest extends RobolectricTest
 
         try(SQLiteDatabase db = dbHelperTest.getWritableDatabase())
         {
-            String insertRecipeQuery = "INSERT INTO %s(title, category_id, preparation_time, description, servings, date_in) VALUES('%s', %s, %s, '%s', %s, '%s')";
+            String insertRecipeQuery = "INSERT INTO %s(title, category_id, preparation_time, description, servings, date_in) VALUES('%s', %s, %s, '%s', %s, %s)";
 
             for(int i = 0; i < size; i++)
             {
                 Recipe recipe = createNewRecipe(categoryId);
                 String sql = String.format(insertRecipeQuery, TABLE_RECIPE, recipe.getTitle(), Categories.getId(recipe.getCategory()),
-                        recipe.getPreparationTime(), recipe.getDescription(), recipe.getServings(), NOW.format(ofPattern(DATE_FORMAT_DATABASE)));
+                        recipe.getPreparationTime(), recipe.getDescription(), recipe.getServings(), toEpochMillis(NOW));
                 db.execSQL(sql);
 
                 int id = getIdOfLastInserted(db);
@@ -350,6 +959,31 @@ public class RecipeManagerTest extends RobolectricTest
         return recipeList;
     }
 
+    private List<Recipe> givenRecipesInDiskWithServerIds()
+    {
+        List<Recipe> recipeList = givenRecipesInDisk();
+        try(SQLiteDatabase db = dbHelperTest.getWritableDatabase())
+        {
+            // Same as the local id, to easily identify the recipe of a server id
+            db.execSQL(String.format("UPDATE %s SET server_id = id", TABLE_RECIPE));
+        }
+
+        recipeList.forEach(recipe -> recipe.setServerId(recipe.getId()));
+
+        return recipeList;
+    }
+
+    private void givenCategoriesOfCacheInDisk()
+    {
+        try(SQLiteDatabase db = dbHelperTest.getWritableDatabase())
+        {
+            for(Map.Entry<Integer, String> entry : Categories.getCategoriesMap().entrySet())
+            {
+                db.execSQL(String.format("INSERT INTO %s(id, name) VALUES(%s, '%s')", TABLE_CATEGORIES, entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
     private int getIdOfLastInserted(SQLiteDatabase db)
     {
         String getIdOfLastInsertedQuery = "SELECT last_insert_rowid()";
@@ -433,10 +1067,10 @@ public class RecipeManagerTest extends RobolectricTest
         }
     }
 
-    private void thenShouldCallActionAndConsumerAndAddCompositeToDisposable(Action action, Consumer<ArrayList<Recipe>> consumer, String message)
+    private void thenShouldCallActionAndRunnableAndAddCompositeToDisposable(Action action, Runnable runnable, String message)
             throws Exception
     {
-        verify(consumer, times(1)).accept(any(ArrayList.class));
+        verify(runnable, times(1)).run();
         verify(action, times(1)).run();
 
         List<Recipe> recipesFromDisk = getRecipesFromDisk();
@@ -447,11 +1081,11 @@ public class RecipeManagerTest extends RobolectricTest
         assertEquals(disposables + 1, compositeDisposable.size());
     }
 
-    private void thenShouldSaveRecipesCallActionAndConsumerAndDisposeObserver(Action action, Consumer<ArrayList<Recipe>> consumer,
+    private void thenShouldSaveRecipesCallActionAndRunnableAndDisposeObserver(Action action, Runnable runnable,
             ResponseRecipes response, String message)
             throws Exception
     {
-        verify(consumer, times(1)).accept(any(ArrayList.class));
+        verify(runnable, times(1)).run();
         verify(action, times(1)).run();
 
         assertRecipesSavedInDisk(response);
@@ -465,6 +1099,7 @@ public class RecipeManagerTest extends RobolectricTest
     {
         List<Recipe> recipesFromDisk = getRecipesFromDisk();
         List<ResponseRecipe> recipes = response.getRecipeList();
+        assertUnitsOfMeasurementsSavedInDisk();
 
         for(ResponseRecipe recipe : recipes)
         {
@@ -492,6 +1127,19 @@ public class RecipeManagerTest extends RobolectricTest
         }
     }
 
+    private void assertUnitsOfMeasurementsSavedInDisk()
+    {
+        try(Cursor cursor = dbHelperTest.getReadableDatabase().rawQuery("SELECT quantity, measurement, unit, base_quantity FROM " + TABLE_INGREDIENTS, null))
+        {
+            while(cursor.moveToNext())
+            {
+                Unit unit = Unit.parse(cursor.getString(1));
+                assertEquals(unit.name(), cursor.getString(2));
+                assertEquals(unit.toBaseQuantity(cursor.getDouble(0)), cursor.getDouble(3), 0);
+            }
+        }
+    }
+
     private Recipe getRecipeFromDiskFromList(String title, List<Recipe> recipesFromDisk)
     {
         List<Recipe> recipes = recipesFromDisk.stream().filter(recipe -> recipe.getTitle().equals(title)).collect(Collectors.toList());
@@ -579,9 +1227,9 @@ public class RecipeManagerTest extends RobolectricTest
         return new Instructions("", list);
     }
 
-    private void thenShouldHandleExceptnAndCallActionAndDisposeObserver(Action action, Consumer<ArrayList<Recipe>> consumer, String message) throws Exception
+    private void thenShouldHandleExceptnAndCallActionAndDisposeObserver(Action action, Runnable runnable, String message) throws Exception
     {
-        verify(consumer, times(0)).accept(any(ArrayList.class));
+        verify(runnable, never()).run();
         verify(action, times(1)).run();
 
         assertEquals(ShadowToast.getTextOfLatestToast(), "Error retrieving recipes: " + message);
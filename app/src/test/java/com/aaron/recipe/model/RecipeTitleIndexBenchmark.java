@@ -0,0 +1,119 @@
+package com.aaron.recipe.model;
+
+import com.aaron.recipe.bean.Recipe;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.util.Arrays.asList;
+import static java.util.Arrays.stream;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the title search of the prefix index against the previous search that splits every title on each typed character.
+ * Simulates a user typing words one character at a time over 50k synthetic titles.
+ * Run with: gradlew test -Pbenchmark
+ */
+public class RecipeTitleIndexBenchmark
+{
+    private static final int TITLES = 50_000;
+    private static final int RUNS = 5;
+    private static final String[] TYPED_WORDS = { "lobster", "garlic", "chicken", "zucchini" };
+    private static final String[] TITLE_WORDS = { "lobster", "garlic", "chicken", "beef", "pork", "shrimp", "adobo", "soup", "stew", "bisque",
+            "roasted", "fried", "grilled", "steamed", "crispy", "sweet", "sour", "spicy", "lemon", "butter", "tart", "pie", "cake", "rice" };
+    private static final Set<String> IGNORABLE_WORDS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static
+    {
+        IGNORABLE_WORDS.addAll(asList("a", "an", "and", "at", "by", "in", "on", "the", "with"));
+    }
+
+    @Test
+    public void benchmarkSearchWhileTyping()
+    {
+        List<Recipe> recipes = createRecipes();
+
+        long buildStart = System.nanoTime();
+        RecipeTitleIndex index = new RecipeTitleIndex(recipes);
+        long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - buildStart);
+
+        long scanMicros = typingMicros(recipes, search -> scanTitles(recipes, search));
+        long indexMicros = typingMicros(recipes, index::search);
+
+        System.out.println(String.format("%10s %15s %25s %25s", "titles", "index (ms)", "scan per keystroke (us)", "index per keystroke (us)"));
+        System.out.println(String.format("%10d %15d %25d %25d", TITLES, buildMillis, scanMicros, indexMicros));
+    }
+
+    /**
+     * Average time of one keystroke, each word is typed one character at a time and the result is checked against the scan.
+     */
+    private long typingMicros(List<Recipe> recipes, Function<String, List<Recipe>> search)
+    {
+        long nanos = 0;
+        int keystrokes = 0;
+        for(int run = 0; run <= RUNS; run++)
+        {
+            for(String word : TYPED_WORDS)
+            {
+                for(int length = 1; length <= word.length(); length++)
+                {
+                    String searched = word.substring(0, length);
+
+                    long start = System.nanoTime();
+                    List<Recipe> result = search.apply(searched);
+                    long elapsed = System.nanoTime() - start;
+
+                    // The first run is the warm up
+                    if(run > 0)
+                    {
+                        nanos += elapsed;
+                        keystrokes++;
+                    }
+
+                    assertEquals(scanTitles(recipes, searched), result);
+                }
+            }
+        }
+
+        return TimeUnit.NANOSECONDS.toMicros(nanos / keystrokes);
+    }
+
+    private List<Recipe> createRecipes()
+    {
+        Random random = new Random(TITLES);
+        List<Recipe> recipes = new ArrayList<>(TITLES);
+        for(int id = 1; id <= TITLES; id++)
+        {
+            String title = TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " and " + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " " +
+                    TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " " + id;
+            recipes.add(new Recipe().setId(id).setTitle(title));
+        }
+
+        return recipes;
+    }
+
+    /**
+     * The search before the index, splits and filters the words of every title on each keystroke.
+     */
+    private List<Recipe> scanTitles(List<Recipe> recipes, String searchedText)
+    {
+        String search = searchedText.toLowerCase(Locale.getDefault());
+
+        return recipes.stream().filter(recipe ->
+        {
+            String title = recipe.getTitle().toLowerCase(Locale.getDefault());
+            List<String> titleWordParts = stream(title.split(" ")).filter(s -> !IGNORABLE_WORDS.contains(s)).collect(toList());
+
+            return titleWordParts.stream().anyMatch(word -> word.startsWith(search));
+        }).collect(toList());
+    }
+}
@@ -0,0 +1,108 @@
+package com.aaron.recipe.model;
+
+import com.aaron.recipe.bean.Recipe;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class RecipeTitleIndexTest
+{
+    @Test
+    public void givenSearchText_whenSearch_thenShouldReturnRecipesWithTitleWordThatStartsWithTheSearchTextInListOrder()
+    {
+        RecipeTitleIndex index = new RecipeTitleIndex(givenRecipeList());
+
+        List<Recipe> result = index.search("lObSter");
+
+        assertThat(result, contains(hasProperty("title", is("Lobster and tail")),
+                hasProperty("title", is("lobster and soup")),
+                hasProperty("title", is("Lobster bisque")),
+                hasProperty("title", is("Dessert lobster")),
+                hasProperty("title", is("A whole bunch of LOBSTERballz"))));
+    }
+
+    @Test
+    public void givenSearchTextOfIgnorableWord_whenSearch_thenShouldNotMatchTheIgnorableWords()
+    {
+        RecipeTitleIndex index = new RecipeTitleIndex(givenRecipeList());
+
+        List<Recipe> result = index.search("a");
+
+        assertThat(result, contains(hasProperty("title", is("Apricot yogurt")),
+                hasProperty("title", is("Apple tart"))));
+    }
+
+    @Test
+    public void givenTitleWithRepeatedWord_whenSearch_thenShouldReturnTheRecipeOnce()
+    {
+        RecipeTitleIndex index = new RecipeTitleIndex(givenRecipeList());
+
+        List<Recipe> result = index.search("cake");
+
+        assertThat(result, contains(hasProperty("title", is("Cake o cake"))));
+    }
+
+    @Test
+    public void givenSearchTextTypedOneCharacterAtATime_whenSearch_thenShouldReturnTheSameAsANewIndex()
+    {
+        List<Recipe> recipeList = givenRecipeList();
+        RecipeTitleIndex index = new RecipeTitleIndex(recipeList);
+
+        for(String searchText : new String[] { "l", "lo", "lob", "lobs", "lobsterb", "lobsterbx", "lobsterb", "la", "s", "sh", "st", "x" })
+        {
+            assertEquals(searchText, new RecipeTitleIndex(recipeList).search(searchText), index.search(searchText));
+        }
+    }
+
+    @Test
+    public void givenSearchTextWithoutMatch_whenSearch_thenShouldReturnEmptyList()
+    {
+        RecipeTitleIndex index = new RecipeTitleIndex(givenRecipeList());
+
+        assertTrue(index.search("zucchini").isEmpty());
+        assertTrue(index.search("lobster and").isEmpty());
+    }
+
+    @Test
+    public void givenEmptyRecipeList_whenSearch_thenShouldReturnEmptyList()
+    {
+        RecipeTitleIndex index = new RecipeTitleIndex(new ArrayList<>());
+
+        assertTrue(index.search("lobster").isEmpty());
+    }
+
+    private List<Recipe> givenRecipeList()
+    {
+        List<Recipe> recipeList = new ArrayList<>();
+
+        recipeList.add(newRecipe("Shrimp paste"));
+        recipeList.add(newRecipe("Lasagna"));
+        recipeList.add(newRecipe("Apricot yogurt"));
+        recipeList.add(newRecipe("Lobster and tail"));
+        recipeList.add(newRecipe("Crab stick"));
+        recipeList.add(newRecipe("lobster and soup"));
+        recipeList.add(newRecipe("Beef celery"));
+        recipeList.add(newRecipe("Lobster bisque"));
+        recipeList.add(newRecipe("Cake o cake"));
+        recipeList.add(newRecipe("Dessert lobster"));
+        recipeList.add(newRecipe("Pie"));
+        recipeList.add(newRecipe("Apple tart"));
+        recipeList.add(newRecipe("A whole bunch of LOBSTERballz"));
+
+        return recipeList;
+    }
+
+    private Recipe newRecipe(String title)
+    {
+        return new Recipe().setId(title.hashCode()).setTitle(title);
+    }
+}
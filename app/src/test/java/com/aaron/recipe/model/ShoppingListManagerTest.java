@@ -0,0 +1,160 @@
+package com.aaron.recipe.model;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.aaron.recipe.RobolectricTest;
+import com.aaron.recipe.bean.Ingredient;
+import com.aaron.recipe.bean.Unit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShoppingListManagerTest extends RobolectricTest
+{
+    private static final double DELTA = 1e-6;
+
+    private ShoppingListManager manager;
+
+    @Before
+    public void initialize()
+    {
+        // override Schedulers.io()
+        RxJavaPlugins.setIoSchedulerHandler(schedulerCallable -> Schedulers.trampoline());
+        // override AndroidSchedulers.mainThread()
+        RxAndroidPlugins.setInitMainThreadSchedulerHandler(schedulerCallable -> Schedulers.trampoline());
+        // override the database writer and reader threads
+        DatabaseExecutor.setSchedulers(Schedulers.trampoline(), Schedulers.trampoline());
+
+        manager = new ShoppingListManager(getContext());
+    }
+
+    @After
+    public void cleanUp()
+    {
+        DatabaseExecutor.resetSchedulers();
+        RxJavaPlugins.reset();
+        RxAndroidPlugins.reset();
+    }
+
+    @Test
+    public void givenIngredientsOfRecipes_whenLoadShoppingList_thenShouldMergeIngredientsOfSelectedRecipesByNameAndUnit()
+    {
+        givenIngredientsOfRecipes();
+
+        List<Ingredient> shoppingList = manager.loadShoppingList(new int[] { 1, 2 }).test().assertComplete().values();
+
+        assertEquals(4, shoppingList.size());
+        assertIngredient(shoppingList.get(0), 1.5, "cup", "Flour", "sifted", Unit.CUP);
+        assertIngredient(shoppingList.get(1), 3, "Cloves", "Garlic", "minced", Unit.OTHER);
+        assertIngredient(shoppingList.get(2), 3, "pcs", "Garlic", "", Unit.OTHER);
+        assertIngredient(shoppingList.get(3), 1, "tbsp", "Soy sauce", "", Unit.TABLESPOON);
+    }
+
+    @Test
+    public void givenIngredientsWithDifferentComments_whenLoadShoppingList_thenShouldKeepDistinctComments()
+    {
+        givenIngredientsOfRecipes();
+
+        List<Ingredient> shoppingList = manager.loadShoppingList(new int[] { 1, 3 }).test().assertComplete().values();
+
+        assertEquals(3, shoppingList.size());
+        assertEquals(6, shoppingList.get(0).getQuantity(), DELTA);
+        assertTrue(shoppingList.get(0).getComment().contains("sifted"));
+        assertTrue(shoppingList.get(0).getComment().contains("packed"));
+        assertEquals("Soy sauce", shoppingList.get(2).getIngredient());
+    }
+
+    @Test
+    public void givenIngredientsInUnitsOfTheSameFamily_whenLoadShoppingList_thenShouldSumThemInTheLargestUnitOfAtLeastOne()
+    {
+        SQLiteDatabase db = MySQLiteHelper.getInstance(getContext()).getWritableDatabase();
+        insertIngredient(db, 1, 1, "cup", "Milk", "", Unit.CUP);
+        insertIngredient(db, 2, 2, "tbsp", "milk", "", Unit.TABLESPOON);
+        insertIngredient(db, 1, 1, "tbsp", "Sugar", "", Unit.TABLESPOON);
+        insertIngredient(db, 2, 1, "tsp", "Sugar", "", Unit.TEASPOON);
+        insertIngredient(db, 1, 500, "g", "Beef", "", Unit.GRAM);
+        insertIngredient(db, 2, 1, "kg", "Beef", "", Unit.KILOGRAM);
+
+        List<Ingredient> shoppingList = manager.loadShoppingList(new int[] { 1, 2 }).test().assertComplete().values();
+
+        assertEquals(3, shoppingList.size());
+        assertIngredient(shoppingList.get(0), 1.5, "kg", "Beef", "", Unit.KILOGRAM);
+        assertIngredient(shoppingList.get(1), 1.125, "cup", "Milk", "", Unit.CUP);
+        assertIngredient(shoppingList.get(2), 4.0 / 3, "tbsp", "Sugar", "", Unit.TABLESPOON);
+        assertEquals("1⅛ cup Milk", shoppingList.get(1).toString());
+    }
+
+    @Test
+    public void givenCommentsWithCommas_whenLoadShoppingList_thenShouldKeepTheCommasOfEachComment()
+    {
+        SQLiteDatabase db = MySQLiteHelper.getInstance(getContext()).getWritableDatabase();
+        insertIngredient(db, 1, 1, "pcs", "Onion", "peeled, chopped", Unit.OTHER);
+        insertIngredient(db, 2, 1, "pcs", "Onion", "sliced", Unit.OTHER);
+
+        List<Ingredient> shoppingList = manager.loadShoppingList(new int[] { 1, 2 }).test().assertComplete().values();
+
+        assertEquals(1, shoppingList.size());
+        String comment = shoppingList.get(0).getComment();
+        assertTrue(comment, comment.equals("peeled, chopped, sliced") || comment.equals("sliced, peeled, chopped"));
+    }
+
+    @Test
+    public void givenUnknownStoredUnit_whenLoadShoppingList_thenShouldLoadItAsOther()
+    {
+        SQLiteDatabase db = MySQLiteHelper.getInstance(getContext()).getWritableDatabase();
+        db.execSQL("INSERT INTO ingredients(recipe_id, quantity, measurement, ingredient, comment_, count, unit, base_quantity) " +
+                "VALUES(1, 2, 'dashes', 'Bitters', '', 1, 'DASH', 2)");
+
+        List<Ingredient> shoppingList = manager.loadShoppingList(new int[] { 1 }).test().assertComplete().values();
+
+        assertEquals(1, shoppingList.size());
+        assertIngredient(shoppingList.get(0), 2, "dashes", "Bitters", "", Unit.OTHER);
+    }
+
+    @Test
+    public void givenNoRecipe_whenLoadShoppingList_thenShouldComplete()
+    {
+        givenIngredientsOfRecipes();
+
+        manager.loadShoppingList(new int[0]).test().assertNoValues().assertComplete();
+    }
+
+    private void givenIngredientsOfRecipes()
+    {
+        SQLiteDatabase db = MySQLiteHelper.getInstance(getContext()).getWritableDatabase();
+
+        insertIngredient(db, 1, 1, "cups", "Flour", "sifted", Unit.CUP);
+        insertIngredient(db, 1, 2, "cloves", "Garlic", "minced", Unit.OTHER);
+        insertIngredient(db, 1, 1, "Tbsp", "Soy sauce", "", Unit.TABLESPOON);
+        insertIngredient(db, 2, 0.5, "C.", " flour", "", Unit.CUP);
+        insertIngredient(db, 2, 1, "Cloves", "garlic", "", Unit.OTHER);
+        insertIngredient(db, 2, 3, "pcs", "Garlic", "", Unit.OTHER);
+        insertIngredient(db, 3, 5, "cup", "Flour", "packed", Unit.CUP);
+    }
+
+    private void insertIngredient(SQLiteDatabase db, int recipeId, double quantity, String measurement, String ingredient, String comment, Unit unit)
+    {
+        db.execSQL("INSERT INTO ingredients(recipe_id, quantity, measurement, ingredient, comment_, count, unit, base_quantity) " +
+                "VALUES(?, ?, ?, ?, ?, 1, ?, ?)", new Object[] { recipeId, quantity, measurement, ingredient, comment, unit.name(),
+                unit.toBaseQuantity(quantity) });
+    }
+
+    private void assertIngredient(Ingredient actual, double quantity, String measurement, String ingredient, String comment, Unit unit)
+    {
+        assertEquals(quantity, actual.getQuantity(), DELTA);
+        assertEquals(measurement, actual.getMeasurement());
+        assertEquals(ingredient, actual.getIngredient());
+        assertEquals(comment, actual.getComment());
+        assertEquals(unit, actual.getUnit());
+    }
+}
@@ -0,0 +1,29 @@
+package com.aaron.recipe.model;
+
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Opens the test hook of {@link DatabaseExecutor} to the tests outside of the model package.
+ */
+public final class TestDatabaseExecutor
+{
+    private TestDatabaseExecutor()
+    {
+    }
+
+    /**
+     * Runs the database writes and reads on the calling thread.
+     */
+    public static void runOnCallingThread()
+    {
+        DatabaseExecutor.setSchedulers(Schedulers.trampoline(), Schedulers.trampoline());
+    }
+
+    /**
+     * Restores the database writer thread and reader threads.
+     */
+    public static void reset()
+    {
+        DatabaseExecutor.resetSchedulers();
+    }
+}
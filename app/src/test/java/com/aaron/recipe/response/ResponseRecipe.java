@@ -11,12 +11,13 @@ import java.util.List;
 import java.util.Objects;
 
 /**
- * Bean representing the http response from a /categories request.
+ * Test fixture of a recipe of the /recipes response.
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class ResponseRecipe
 {
+    private int id;
     private String title;
     private String category;
     private int preparationTime;
@@ -25,6 +26,16 @@ public class ResponseRecipe
     private List<ResponseIngredient> ingredientList;
     private List<ResponseInstruction> instructionList;
 
+    public int getId()
+    {
+        return id;
+    }
+
+    public void setId(int id)
+    {
+        this.id = id;
+    }
+
     public String getTitle()
     {
         return title;
@@ -114,6 +125,7 @@ public class ResponseRecipe
         ResponseRecipe that = (ResponseRecipe) o;
 
         return new EqualsBuilder()
+                .append(id, that.id)
                 .append(preparationTime, that.preparationTime)
                 .append(servings, that.servings)
                 .append(title, that.title)
@@ -127,13 +139,14 @@ public class ResponseRecipe
     @Override
     public int hashCode()
     {
-        return Objects.hash(title, category, preparationTime, servings, description, ingredientList, instructionList);
+        return Objects.hash(id, title, category, preparationTime, servings, description, ingredientList, instructionList);
     }
 
     @Override
     public String toString()
     {
         return new ToStringBuilder(this)
+                .append("id", id)
                 .append("title", title)
                 .append("category", category)
                 .append("preparationTime", preparationTime)
@@ -11,7 +11,7 @@ import java.util.List;
 import java.util.Objects;
 
 /**
- * Bean representing the http response from a /categories request.
+ * Test fixture of the /recipes response, serialized to the JSON read by RecipeStreamImporter.
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @JsonIgnoreProperties(ignoreUnknown = true)
@@ -19,6 +19,7 @@ public class ResponseRecipes
 {
     private int recentlyAddedCount;
     private List<ResponseRecipe> recipeList;
+    private List<Integer> deletedRecipeIds;
 
     public int getRecentlyAddedCount()
     {
@@ -42,6 +43,20 @@ public class ResponseRecipes
         return recipeList;
     }
 
+    /**
+     * The ids of the recipes deleted in the server since the last updated date.
+     */
+    public List<Integer> getDeletedRecipeIds()
+    {
+        return deletedRecipeIds;
+    }
+
+    @JsonProperty("deleted_recipe_ids")
+    public void setDeletedRecipeIds(List<Integer> deletedRecipeIds)
+    {
+        this.deletedRecipeIds = deletedRecipeIds;
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -60,13 +75,14 @@ public class ResponseRecipes
         return new EqualsBuilder()
                 .append(recentlyAddedCount, that.recentlyAddedCount)
                 .append(recipeList, that.recipeList)
+                .append(deletedRecipeIds, that.deletedRecipeIds)
                 .isEquals();
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(recentlyAddedCount, recipeList);
+        return Objects.hash(recentlyAddedCount, recipeList, deletedRecipeIds);
     }
 
     @Override
@@ -75,6 +91,7 @@ public class ResponseRecipes
         return new ToStringBuilder(this)
                 .append("recentlyAddedCount", recentlyAddedCount)
                 .append("recipeList", recipeList)
+                .append("deletedRecipeIds", deletedRecipeIds)
                 .toString();
     }
 }